@@ -0,0 +1,103 @@
+package examples;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An embedded H2 database in MySQL mode with the schema of students_db.sql, seeded with
+ * generated students, for the benchmarks. The database lives in memory for as long as its
+ * connection pool is open.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    private static final long FIRST_NIM = 2700000000L;
+    private static final int SEED_CHUNK = 10000;
+    private static final String[] FIRST_NAMES = {"Alia", "Budi", "Citra", "Didik", "Eka", "Fikri", "Gita", "Hafid", "Intan", "James"};
+    private static final String[] LAST_NAMES = {"Anggraini", "Chandra", "Darno", "Leopold", "Maulana", "Mustaqim", "Santoso", "Utsman", "William", "Wijaya"};
+
+    private final DatabaseConnection dbConnection;
+    private final StudentDAO studentDAO;
+
+    /**
+     * Creates the database and inserts rowCount students.
+     *
+     * @param name the name of the in-memory database, unique per benchmark
+     * @param rowCount the number of students to insert
+     * @throws SQLException if the database cannot be created or seeded
+     */
+    BenchmarkDatabase(String name, int rowCount) throws SQLException {
+        dbConnection = new DatabaseConnection("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "");
+        dbConnection.connectPooled(1, 4);
+        studentDAO = new StudentDAO(dbConnection.getPool());
+        createSchema();
+        for (int first = 0; first < rowCount; first += SEED_CHUNK) {
+            BatchResult result = studentDAO.insertStudents(students(first, Math.min(rowCount, first + SEED_CHUNK)));
+            if (!result.getFailures().isEmpty()) {
+                throw new SQLException("Could not seed the benchmark database: " + result.getFailures().get(0).getMessage());
+            }
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Connection connection = dbConnection.getPool().borrow();
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS students");
+        }
+        if (!studentDAO.createSchema()) {
+            throw new SQLException("Could not create the students table");
+        }
+    }
+
+    /**
+     * @return the DAO of the database
+     */
+    StudentDAO getStudentDAO() {
+        return studentDAO;
+    }
+
+    /**
+     * @param index the number of the student
+     * @return the NIM of the generated student
+     */
+    static String nim(int index) {
+        return Long.toString(FIRST_NIM + index);
+    }
+
+    /**
+     * Generates the same student for the same index every time, graded with the default grading engine.
+     *
+     * @param index the number of the student
+     * @return the student
+     */
+    static Student student(int index) {
+        int hash = index * 0x9E3779B1;
+        double tugas = (hash >>> 1) % 10001 / 100.0;
+        double quiz = (hash >>> 5) % 10001 / 100.0;
+        double uts = (hash >>> 9) % 10001 / 100.0;
+        double uas = (hash >>> 13) % 10001 / 100.0;
+        GradingEngine engine = GradingEngine.DEFAULT;
+        double average = engine.average(tugas, quiz, uts, uas);
+        String name = FIRST_NAMES[index % FIRST_NAMES.length] + " " + LAST_NAMES[index / FIRST_NAMES.length % LAST_NAMES.length];
+        return new Student(nim(index), name, tugas, quiz, uts, uas, average, engine.grade(average), engine.description(average));
+    }
+
+    /**
+     * @param from the index of the first student
+     * @param to the index after the last student
+     * @return the generated students from index from (inclusive) to to (exclusive)
+     */
+    static List<Student> students(int from, int to) {
+        List<Student> students = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            students.add(student(i));
+        }
+        return students;
+    }
+
+    @Override
+    public void close() {
+        dbConnection.close();
+    }
+}
@@ -0,0 +1,40 @@
+package examples;
+
+import java.io.File;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes their results as JSON, so runs on different commits can be compared.
+ *
+ * Configured with system properties: bench.include, a regular expression selecting the benchmarks
+ * (default: all of them); bench.rows, a comma-separated list of row counts to seed and run with
+ * (default: 10000); and bench.result, the JSON file to write (default: build/bench/jmh-result.json).
+ */
+public class BenchmarkRunner {
+
+    /**
+     * @param args ignored; see the class description for the system properties
+     * @throws RunnerException if the benchmarks cannot be run
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("bench.include", "examples\\..*Benchmark");
+        String[] rowCounts = System.getProperty("bench.rows", "10000").split(",");
+        File result = new File(System.getProperty("bench.result", "build/bench/jmh-result.json"));
+        if (result.getParentFile() != null) {
+            result.getParentFile().mkdirs();
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .param("rowCount", rowCounts)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build();
+        new Runner(options).run();
+        System.out.println("Benchmark results written to " + result.getPath());
+    }
+}
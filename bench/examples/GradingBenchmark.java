@@ -0,0 +1,62 @@
+package examples;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Grading throughput: one student at a time as StudentForm grades a saved student, against
+ * whole score columns as the regrade job does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingBenchmark {
+
+    @Param({"10000"})
+    public int rowCount;
+
+    private final GradingEngine gradingEngine = GradingEngine.DEFAULT;
+    private StudentColumns columns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        columns = new StudentColumns(rowCount);
+        for (Student student : BenchmarkDatabase.students(0, rowCount)) {
+            columns.add(student);
+        }
+    }
+
+    @Benchmark
+    public void gradeOneByOne(Blackhole blackhole) {
+        double[] tugas = columns.getScoreTugas();
+        double[] quiz = columns.getScoreQuiz();
+        double[] uts = columns.getScoreUTS();
+        double[] uas = columns.getScoreUAS();
+        for (int i = 0; i < rowCount; i++) {
+            double average = gradingEngine.average(tugas[i], quiz[i], uts[i], uas[i]);
+            blackhole.consume(gradingEngine.grade(average));
+            blackhole.consume(gradingEngine.description(average));
+        }
+    }
+
+    @Benchmark
+    public StudentColumns gradeColumns() {
+        gradingEngine.evaluate(columns);
+        return columns;
+    }
+}
@@ -0,0 +1,94 @@
+package examples;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The operations of {@link StudentDAOBenchmark} against the embedded memory-mapped store, so the
+ * two repositories can be compared on the same students.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedStudentRepositoryBenchmark {
+
+    @Param({"10000"})
+    public int rowCount;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private Path file;
+    private MappedStudentRepository repository;
+    private List<Student> batch;
+    private int nextLookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("students", ".store");
+        Files.delete(file);
+        repository = new MappedStudentRepository(file);
+        for (Student student : BenchmarkDatabase.students(0, rowCount)) {
+            repository.upsertStudent(student);
+        }
+        batch = BenchmarkDatabase.students(rowCount, rowCount + batchSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        Files.deleteIfExists(file);
+    }
+
+    private String nextNim() {
+        nextLookup = (nextLookup + 7919) % rowCount;
+        return BenchmarkDatabase.nim(nextLookup);
+    }
+
+    @Benchmark
+    public int upsertRowByRow() {
+        for (Student student : batch) {
+            repository.upsertStudent(student);
+        }
+        return batch.size();
+    }
+
+    @Benchmark
+    public Student findStudent() {
+        return repository.findStudent(nextNim());
+    }
+
+    @Benchmark
+    public int fullScanIntoColumns() {
+        StudentColumns columns = new StudentColumns(rowCount);
+        String after = null;
+        do {
+            after = repository.readStudentsAfter(columns, after, 1000);
+        } while (after != null);
+        return columns.size();
+    }
+
+    @Benchmark
+    public List<Student> topHundredByAverage() {
+        return repository.queryStudents(StudentQuery.ALL.sortedBy(StudentQuery.SortColumn.AVERAGE, true), null, 100);
+    }
+}
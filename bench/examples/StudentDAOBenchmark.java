@@ -0,0 +1,101 @@
+package examples;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the StudentDAO operations against a seeded embedded database: writing a batch of
+ * students row by row against one batched call, point lookups, full scans and an indexed top-N query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentDAOBenchmark {
+
+    @Param({"10000"})
+    public int rowCount;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private BenchmarkDatabase database;
+    private StudentDAO studentDAO;
+    private List<Student> batch;
+    private int nextLookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("dao", rowCount);
+        studentDAO = database.getStudentDAO();
+        // Students just past the seeded ones: the first write inserts them, later ones update them
+        batch = BenchmarkDatabase.students(rowCount, rowCount + batchSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    private String nextNim() {
+        nextLookup = (nextLookup + 7919) % rowCount;
+        return BenchmarkDatabase.nim(nextLookup);
+    }
+
+    @Benchmark
+    public int upsertRowByRow() {
+        for (Student student : batch) {
+            studentDAO.upsertStudent(student);
+        }
+        return batch.size();
+    }
+
+    @Benchmark
+    public BatchResult upsertBatched() {
+        return studentDAO.upsertStudents(batch);
+    }
+
+    @Benchmark
+    public Student findStudent() {
+        return studentDAO.findStudent(nextNim());
+    }
+
+    @Benchmark
+    public boolean studentExists() {
+        return studentDAO.studentExists(nextNim());
+    }
+
+    @Benchmark
+    public int fullScanIntoColumns() throws SQLException {
+        return studentDAO.loadStudents(new StudentColumns(rowCount), 1000);
+    }
+
+    @Benchmark
+    public long fullScanStream() {
+        try (Stream<Student> students = studentDAO.streamStudents(1000)) {
+            return students.count();
+        }
+    }
+
+    @Benchmark
+    public List<Student> topHundredByAverage() {
+        return studentDAO.queryStudents(StudentQuery.ALL.sortedBy(StudentQuery.SortColumn.AVERAGE, true), null, 100);
+    }
+}
@@ -0,0 +1,122 @@
+package examples;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of populating the students table: reading every row into a DefaultTableModel, as the
+ * original loadData() did, against showing the first screen and then every page of the paged
+ * StudentTableModel. Both run their Swing work on the event dispatch thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TableModelBenchmark {
+    private static final int PAGE_SIZE = 100;
+    private static final int CACHED_PAGES = 8;
+    private static final int VISIBLE_ROWS = 25;
+
+    @Param({"10000"})
+    public int rowCount;
+
+    private BenchmarkDatabase database;
+    private StudentDAO studentDAO;
+    private AsyncStudentDAO asyncStudentDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("table", rowCount);
+        studentDAO = database.getStudentDAO();
+        // Run the DAO calls on the calling thread, so only the hops to the event dispatch thread remain
+        asyncStudentDAO = new AsyncStudentDAO(studentDAO, Runnable::run);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public DefaultTableModel fillDefaultTableModel() throws InterruptedException, InvocationTargetException {
+        DefaultTableModel model = new DefaultTableModel(new Object[] {"NIM", "Nama", "Rerata", "Grade", "Keterangan"}, 0);
+        SwingUtilities.invokeAndWait(() -> {
+            try (ResultSet resultSet = studentDAO.getStudents()) {
+                while (resultSet.next()) {
+                    model.addRow(new Object[] {resultSet.getString("nim"), resultSet.getString("name"), resultSet.getDouble("average"),
+                        resultSet.getString("grade"), resultSet.getString("description")});
+                }
+            } catch (SQLException error) {
+                throw new IllegalStateException(error);
+            }
+        });
+        return model;
+    }
+
+    @Benchmark
+    public Object showFirstScreen() throws InterruptedException, InvocationTargetException {
+        StudentTableModel model = newModel();
+        return readRows(model, 0, VISIBLE_ROWS);
+    }
+
+    @Benchmark
+    public Object scrollThroughPagedModel() throws InterruptedException, InvocationTargetException {
+        StudentTableModel model = newModel();
+        Object last = null;
+        for (int first = 0; first < rowCount; first += PAGE_SIZE) {
+            last = readRows(model, first, Math.min(rowCount, first + PAGE_SIZE));
+        }
+        return last;
+    }
+
+    /**
+     * Creates a paged model and counts its rows on the event dispatch thread.
+     */
+    private StudentTableModel newModel() throws InterruptedException, InvocationTargetException {
+        StudentTableModel model = new StudentTableModel(asyncStudentDAO, PAGE_SIZE, CACHED_PAGES);
+        List<CompletableFuture<Void>> refreshed = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> refreshed.add(model.refresh()));
+        refreshed.get(0).join();
+        return model;
+    }
+
+    /**
+     * Reads the rows from index from (inclusive) to to (exclusive) as the table would, waiting for their page to load.
+     */
+    private static Object readRows(StudentTableModel model, int from, int to) throws InterruptedException, InvocationTargetException {
+        Object[] last = new Object[1];
+        // The first read starts the page load; the load completes in an event queued behind this one
+        SwingUtilities.invokeAndWait(() -> model.getValueAt(from, 0));
+        SwingUtilities.invokeAndWait(() -> {
+            for (int row = from; row < to; row++) {
+                for (int column = 0; column < model.getColumnCount(); column++) {
+                    last[0] = model.getValueAt(row, column);
+                }
+            }
+        });
+        return last[0];
+    }
+}
@@ -0,0 +1,61 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation cost: one valid and one invalid record as typed in the form, and a bulk import of
+ * rowCount records of which one in fifty is invalid.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"10000"})
+    public int rowCount;
+
+    private List<String[]> records;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        records = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            Student student = BenchmarkDatabase.student(i);
+            records.add(new String[] {student.getNim(), i % 50 == 0 ? "B4dr" : student.getName(),
+                Double.toString(student.getScoreTugas()), Double.toString(student.getScoreQuiz()),
+                Double.toString(student.getScoreUTS()), i % 50 == 1 ? "101" : Double.toString(student.getScoreUAS())});
+        }
+    }
+
+    @Benchmark
+    public List<StudentValidator.FieldError> validateValidRecord() {
+        return StudentValidator.validate("2702352692", "Didik Maulana Ardiansyah", "95", "98", "95.5", "95");
+    }
+
+    @Benchmark
+    public List<StudentValidator.FieldError> validateInvalidRecord() {
+        return StudentValidator.validate("27023526x", "D", "abc", "98", "195", "");
+    }
+
+    @Benchmark
+    public ValidationReport validateBulkImport() {
+        return StudentValidator.validateAll(records);
+    }
+}
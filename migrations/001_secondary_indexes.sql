@@ -0,0 +1,19 @@
+--
+-- Secondary indexes for StudentQuery
+--
+-- InnoDB appends the primary key to every secondary index, so each index is also ordered
+-- by nim within equal values, which is the keyset order used to page through the results.
+-- Every sort column of StudentQuery has an index that is read in that order: (grade) and
+-- (description) for their sorts, (average) and (name) for theirs. A grade or description
+-- filter reads a range of its index, and (grade, average) or (description, average) when it
+-- is sorted by average or has an average range. A filter sorted by another column, or an
+-- average range sorted by another column, still reads the filtered rows and sorts them.
+--
+
+ALTER TABLE `students`
+  ADD INDEX `idx_students_grade` (`grade`),
+  ADD INDEX `idx_students_description` (`description`),
+  ADD INDEX `idx_students_grade_average` (`grade`, `average`),
+  ADD INDEX `idx_students_description_average` (`description`, `average`),
+  ADD INDEX `idx_students_average` (`average`),
+  ADD INDEX `idx_students_name` (`name`);
@@ -0,0 +1,11 @@
+--
+-- Row versions for optimistic concurrency
+--
+-- Every write to a student increases its version. StudentDAO.saveStudent only updates a row
+-- whose version is still the one the student was read with, so two clerks editing the same
+-- student no longer overwrite each other silently, and no lock is held while they type.
+-- Existing rows start at version 1; 0 is reserved for students not read from the database.
+--
+
+ALTER TABLE `students`
+  ADD COLUMN `version` bigint NOT NULL DEFAULT 1;
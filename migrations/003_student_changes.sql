@@ -0,0 +1,29 @@
+--
+-- Change log for delta sync
+--
+-- Triggers record every insert, update and delete of a student in student_changes, whatever
+-- client made it, under an increasing sequence number. A ChangePoller asks for the changes
+-- since the last sequence it has seen and refreshes only those students, so keeping a window
+-- current costs as much as the number of changes instead of a scan of the whole table.
+-- Rows that every client has read past can be deleted, for example those older than a day;
+-- a client that falls further behind than its batch size reloads its view instead.
+--
+
+CREATE TABLE `student_changes` (
+  `seq` bigint NOT NULL AUTO_INCREMENT,
+  `nim` varchar(10) NOT NULL,
+  `change_type` varchar(8) NOT NULL,
+  `changed_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`seq`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE TRIGGER `students_after_insert` AFTER INSERT ON `students` FOR EACH ROW
+  INSERT INTO `student_changes` (`nim`, `change_type`) VALUES (NEW.`nim`, 'INSERTED');
+
+CREATE TRIGGER `students_after_update` AFTER UPDATE ON `students` FOR EACH ROW
+  INSERT INTO `student_changes` (`nim`, `change_type`)
+  SELECT OLD.`nim`, 'DELETED' FROM DUAL WHERE OLD.`nim` <> NEW.`nim`
+  UNION ALL SELECT NEW.`nim`, 'UPDATED' FROM DUAL;
+
+CREATE TRIGGER `students_after_delete` AFTER DELETE ON `students` FOR EACH ROW
+  INSERT INTO `student_changes` (`nim`, `change_type`) VALUES (OLD.`nim`, 'DELETED');
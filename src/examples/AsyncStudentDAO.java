@@ -0,0 +1,204 @@
+package examples;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs StudentDAO calls, or calls to another {@link StudentRepository}, on a background executor
+ * and returns their results as futures, so database I/O never blocks the Swing event dispatch thread.
+ *
+ * Use {@link #EDT} to continue on the event dispatch thread, for example
+ * {@code asyncDAO.findStudent(nim).thenAcceptAsync(this::show, AsyncStudentDAO.EDT)}.
+ */
+public class AsyncStudentDAO {
+
+    /**
+     * Runs tasks on the Swing event dispatch thread.
+     */
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    private final StudentRepository studentRepository;
+    private final Executor executor;
+    private final Map<String, CompletableFuture<?>> latestByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new AsyncStudentDAO.
+     *
+     * @param studentRepository the DAO or other repository to call
+     * @param executor the executor running the calls
+     */
+    public AsyncStudentDAO(StudentRepository studentRepository, Executor executor) {
+        this.studentRepository = studentRepository;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates an executor for database calls: one virtual thread per task when the JDK supports
+     * virtual threads, otherwise a fixed pool of daemon threads.
+     *
+     * @param platformThreads the number of threads used when virtual threads are not available
+     * @return the executor
+     */
+    public static ExecutorService newExecutor(int platformThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException error) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(platformThreads, runnable -> {
+                Thread thread = new Thread(runnable, "student-db-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return the DAO or other repository this facade calls
+     */
+    public StudentRepository getStudentRepository() {
+        return studentRepository;
+    }
+
+    /**
+     * Runs the work on the executor.
+     *
+     * @param work the work to run
+     * @param <T> the type of the result
+     * @return a future completed with the result of the work
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> run(future, work));
+        return future;
+    }
+
+    /**
+     * Runs the work on the executor, cancelling the previous work submitted with the same key.
+     * Work that is superseded before it starts is skipped, and the future of superseded work is
+     * cancelled, so only the latest request for a key delivers its result.
+     *
+     * @param key identifies the requests that replace each other
+     * @param work the work to run
+     * @param <T> the type of the result
+     * @return a future completed with the result of the work, or cancelled if newer work arrives first
+     */
+    public <T> CompletableFuture<T> latest(String key, Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<?> previous = latestByKey.put(key, future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        executor.execute(() -> {
+            try {
+                if (!future.isDone()) {
+                    run(future, work);
+                }
+            } finally {
+                latestByKey.remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    private static <T> void run(CompletableFuture<T> future, Callable<T> work) {
+        try {
+            future.complete(work.call());
+        } catch (Throwable error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * @see StudentRepository#findStudent(String)
+     */
+    public CompletableFuture<Student> findStudent(String nim) {
+        return submit(() -> studentRepository.findStudent(nim));
+    }
+
+    /**
+     * @see StudentRepository#findStudents(Collection)
+     */
+    public CompletableFuture<List<Student>> findStudents(Collection<String> nims) {
+        return submit(() -> studentRepository.findStudents(nims));
+    }
+
+    /**
+     * @see StudentRepository#upsertStudent(Student)
+     */
+    public CompletableFuture<Void> upsertStudent(Student student) {
+        return submit(() -> {
+            studentRepository.upsertStudent(student);
+            return null;
+        });
+    }
+
+    /**
+     * @see StudentRepository#saveStudent(Student)
+     */
+    public CompletableFuture<SaveResult> saveStudent(Student student) {
+        return submit(() -> studentRepository.saveStudent(student));
+    }
+
+    /**
+     * @see StudentRepository#deleteStudent(String)
+     */
+    public CompletableFuture<Void> deleteStudent(String nim) {
+        return submit(() -> {
+            studentRepository.deleteStudent(nim);
+            return null;
+        });
+    }
+
+    /**
+     * @see StudentRepository#countStudents()
+     */
+    public CompletableFuture<Integer> countStudents() {
+        return submit(studentRepository::countStudents);
+    }
+
+    /**
+     * @see StudentRepository#getStudentsAfter(String, int)
+     */
+    public CompletableFuture<List<Student>> getStudentsAfter(String afterNim, int limit) {
+        return submit(() -> studentRepository.getStudentsAfter(afterNim, limit));
+    }
+
+    /**
+     * @see StudentRepository#getStudentPage(int, int)
+     */
+    public CompletableFuture<List<Student>> getStudentPage(int offset, int limit) {
+        return submit(() -> studentRepository.getStudentPage(offset, limit));
+    }
+
+    /**
+     * @see StudentRepository#countStudents(StudentQuery)
+     */
+    public CompletableFuture<Integer> countStudents(StudentQuery studentQuery) {
+        return submit(() -> studentRepository.countStudents(studentQuery));
+    }
+
+    /**
+     * @see StudentRepository#queryStudents(StudentQuery, Student, int)
+     */
+    public CompletableFuture<List<Student>> queryStudents(StudentQuery studentQuery, Student after, int limit) {
+        return submit(() -> studentRepository.queryStudents(studentQuery, after, limit));
+    }
+
+    /**
+     * @see StudentRepository#queryStudentPage(StudentQuery, int, int)
+     */
+    public CompletableFuture<List<Student>> queryStudentPage(StudentQuery studentQuery, int offset, int limit) {
+        return submit(() -> studentRepository.queryStudentPage(studentQuery, offset, limit));
+    }
+}
@@ -0,0 +1,162 @@
+package examples;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a batched write: how many rows were written, which rows failed and how long it took.
+ */
+public class BatchResult {
+    private final int rowCount;
+    private final List<Failure> failures = new ArrayList<>();
+    private long elapsedNanos;
+
+    /**
+     * Constructs a new BatchResult for a batch of rowCount rows.
+     *
+     * @param rowCount the number of rows submitted
+     */
+    public BatchResult(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    void addFailure(int index, String nim, String message) {
+        failures.add(new Failure(index, nim, message, null, 0, false));
+    }
+
+    void addFailure(int index, String nim, SQLException error) {
+        failures.add(new Failure(index, nim, error.getLocalizedMessage(), error.getSQLState(), error.getErrorCode(),
+                error instanceof SQLTransientException));
+    }
+
+    void addFailure(Failure failure) {
+        failures.add(failure);
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of rows submitted
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    public int getSuccessCount() {
+        return rowCount - failures.size();
+    }
+
+    /**
+     * @return the rows that could not be written, in submission order
+     */
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return the wall-clock time of the batch, in milliseconds
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @return the number of rows written per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getSuccessCount() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d rows in %d ms (%.0f rows/s)", getSuccessCount(), rowCount, getElapsedMillis(), getRowsPerSecond());
+    }
+
+    /**
+     * A row of the batch that could not be written.
+     */
+    public static class Failure {
+        private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+
+        private final int index;
+        private final String nim;
+        private final String message;
+        private final String sqlState;
+        private final int errorCode;
+        private final boolean transientError;
+
+        Failure(int index, String nim, String message, String sqlState, int errorCode, boolean transientError) {
+            this.index = index;
+            this.nim = nim;
+            this.message = message;
+            this.sqlState = sqlState;
+            this.errorCode = errorCode;
+            this.transientError = transientError;
+        }
+
+        /**
+         * @return the position of the row in the submitted collection
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getNim() {
+            return nim;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the SQLState of the error, or null if the row was rejected without one, such as a row that matched no student
+         */
+        public String getSQLState() {
+            return sqlState;
+        }
+
+        /**
+         * @return the vendor error code, or 0
+         */
+        public int getErrorCode() {
+            return errorCode;
+        }
+
+        /**
+         * Tells whether the row could be written if it were tried again: the connection was lost
+         * (SQLState class 08), the transaction was rolled back by a deadlock or serialization
+         * failure (class 40), or a lock or statement timed out, including any SQLTransientException.
+         *
+         * @return true if the failure is transient
+         */
+        public boolean isTransient() {
+            return sqlState != null && (sqlState.startsWith("08") || sqlState.startsWith("40") || sqlState.equals("HYT00"))
+                    || errorCode == MYSQL_LOCK_WAIT_TIMEOUT || transientError;
+        }
+
+        /**
+         * Tells whether the database refused the row for good: a value that does not fit (SQLState
+         * class 22) or a broken constraint (class 23). Writing it again would fail the same way.
+         *
+         * @return true if the row was rejected
+         */
+        public boolean isRejected() {
+            return sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"));
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + " (" + nim + "): " + message;
+        }
+    }
+}
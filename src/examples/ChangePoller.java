@@ -0,0 +1,192 @@
+package examples;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a client in step with the changes other clients make, by reading the change log of a
+ * {@link StudentRepository} at a fixed interval and telling its listeners about each changed
+ * student, as the repository does for its own changes. A poll costs as much as the number of
+ * changes since the previous one, however large the table is.
+ *
+ * Changes of the same student within a poll are reported once, with the student as it is now.
+ * When more than a batch of changes is waiting, listeners are told to reload instead with
+ * {@link StudentChangeEvent.Type#BULK_CHANGED}.
+ *
+ * A sequence number can be taken by a write that has not committed yet, so a gap in the sequence
+ * is waited for during {@link #GAP_POLLS} polls before it is taken for a rolled back write and skipped.
+ * The polls are counted for each gap, so a write that commits late does not shorten the wait for the next one.
+ */
+public class ChangePoller {
+    static final int GAP_POLLS = 2;
+
+    private final StudentRepository studentRepository;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final List<StudentChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+    private volatile long sequence;
+    // The first missing sequence number of the gap being waited for, and the polls spent waiting for it
+    private long gapSequence;
+    private int gapPolls;
+    private boolean failing;
+
+    /**
+     * Constructs a new ChangePoller. Call {@link #start()} to start polling.
+     *
+     * @param studentRepository the repository whose change log is read
+     * @param intervalMillis the time between the end of a poll and the start of the next
+     * @param batchSize the largest number of changes applied one by one in a poll
+     */
+    public ChangePoller(StudentRepository studentRepository, long intervalMillis, int batchSize) {
+        this.studentRepository = studentRepository;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Registers a listener that is told about every change read from the change log.
+     * Listeners are called on the polling thread.
+     *
+     * @param listener the listener to add
+     */
+    public void addChangeListener(StudentChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addChangeListener(StudentChangeListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeChangeListener(StudentChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Reads the latest sequence number in the background and then starts polling for the changes
+     * that follow it. Read what the client shows only after the returned future completes, so no
+     * change falls between the two. If the change log cannot be read, the poller stops; if reading it
+     * throws an unexpected exception, the poller stops and the future completes with that exception.
+     *
+     * @return a future completed once the starting sequence number is known or polling failed to start
+     */
+    public CompletableFuture<Void> start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "student-change-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return CompletableFuture.runAsync(() -> {
+            try {
+                sequence = studentRepository.getLastChangeSequence();
+            } catch (SQLException error) {
+                error.printStackTrace();
+                scheduler.shutdown();
+                return;
+            } catch (RuntimeException error) {
+                scheduler.shutdown();
+                throw error;
+            }
+            scheduler.scheduleWithFixedDelay(this::pollQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }, scheduler);
+    }
+
+    /**
+     * Stops polling.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the sequence number of the last change applied
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+            failing = false;
+        } catch (SQLException | RuntimeException error) {
+            // Report the first failure only, not one per interval while the database is away
+            if (!failing) {
+                error.printStackTrace();
+            }
+            failing = true;
+        }
+    }
+
+    /**
+     * Reads the changes logged since the previous poll and tells the listeners about them.
+     * Polls are normally run by the poller itself; this method must not be called concurrently.
+     *
+     * @return the number of events sent to the listeners
+     * @throws SQLException if the change log cannot be read
+     */
+    public int poll() throws SQLException {
+        List<StudentChange> changes = studentRepository.getChangesSince(sequence, batchSize);
+        if (changes.size() >= batchSize) {
+            sequence = studentRepository.getLastChangeSequence();
+            gapPolls = 0;
+            fireChange(new StudentChangeEvent(StudentChangeEvent.Type.BULK_CHANGED, null, null));
+            return 1;
+        }
+
+        // The first change of each student in this poll; its student is the row as it is now
+        Map<String, StudentChange> changed = new LinkedHashMap<>();
+        long last = sequence;
+        for (StudentChange change : changes) {
+            long expected = last + 1;
+            if (change.getSequence() != expected) {
+                if (expected != gapSequence) {
+                    gapSequence = expected;
+                    gapPolls = 0;
+                }
+                if (gapPolls < GAP_POLLS) {
+                    gapPolls++;
+                    break;
+                }
+            }
+            changed.putIfAbsent(change.getNim(), change);
+            last = change.getSequence();
+        }
+        sequence = last;
+        if (last >= gapSequence) {
+            // Past the gap, whether it was filled or skipped
+            gapPolls = 0;
+        }
+
+        for (StudentChange change : changed.values()) {
+            Student student = change.getStudent();
+            StudentChangeEvent.Type type;
+            if (student == null) {
+                type = StudentChangeEvent.Type.DELETED;
+            } else if (change.getType() == StudentChangeEvent.Type.INSERTED) {
+                type = StudentChangeEvent.Type.INSERTED;
+            } else {
+                type = StudentChangeEvent.Type.UPDATED;
+            }
+            fireChange(new StudentChangeEvent(type, change.getNim(), student));
+        }
+        return changed.size();
+    }
+
+    private void fireChange(StudentChangeEvent event) {
+        for (StudentChangeListener listener : changeListeners) {
+            listener.studentChanged(event);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package examples;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of the whole students table: mean, standard deviation, range, percentiles and a
+ * letter grade histogram for every score component, plus the pass rate and grade distribution.
+ *
+ * Exact aggregates are computed by the database in two grouped queries. Percentiles and the
+ * per-component grade histograms are computed on the client in one pass over the table, reading
+ * one page at a time into a reused columnar buffer and adding it to mergeable sketches, so the
+ * table is never held in memory.
+ */
+public class CohortStatistics {
+
+    /**
+     * The score components, in the order used by the per-component arrays.
+     */
+    public static final String[] COMPONENTS = {"Tugas", "Kuis", "UTS", "UAS", "Rerata"};
+
+    /**
+     * The letter grades counted by the histograms.
+     */
+    public static final String[] LETTERS = {"A", "B", "C", "D", "E"};
+
+    long count;
+    long passCount;
+    final double[] mean = new double[COMPONENTS.length];
+    final double[] standardDeviation = new double[COMPONENTS.length];
+    final double[] min = new double[COMPONENTS.length];
+    final double[] max = new double[COMPONENTS.length];
+    final Map<String, Long> gradeCounts = new LinkedHashMap<>();
+    final ScoreSketch[] sketches = new ScoreSketch[COMPONENTS.length];
+    final long[][] letterCounts = new long[COMPONENTS.length][LETTERS.length];
+
+    /**
+     * Constructs empty statistics.
+     */
+    public CohortStatistics() {
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i] = new ScoreSketch();
+        }
+        Arrays.fill(min, Double.NaN);
+        Arrays.fill(max, Double.NaN);
+    }
+
+    /**
+     * Computes the statistics of the students table.
+     *
+     * @param studentDAO the DAO to read the students with
+     * @param gradingEngine the grading used for the per-component grade histograms
+     * @param pageSize the number of students read per query in the client pass
+     * @return the statistics
+     * @throws SQLException if the students cannot be read
+     */
+    public static CohortStatistics compute(StudentDAO studentDAO, GradingEngine gradingEngine, int pageSize) throws SQLException {
+        CohortStatistics statistics = new CohortStatistics();
+        studentDAO.readAggregates(statistics);
+
+        StudentColumns page = new StudentColumns(pageSize);
+        String lastNim = null;
+        do {
+            page.clear();
+            lastNim = studentDAO.readStudentsAfter(page, lastNim, pageSize);
+            statistics.addScores(page, gradingEngine);
+        } while (lastNim != null && page.size() == pageSize);
+        return statistics;
+    }
+
+    /**
+     * Computes the statistics of students held in memory, such as a whole embedded store, with
+     * the exact aggregates computed here as the database would.
+     *
+     * @param students the students
+     * @param gradingEngine the grading used for the per-component grade histograms
+     * @return the statistics
+     */
+    static CohortStatistics compute(StudentColumns students, GradingEngine gradingEngine) {
+        CohortStatistics statistics = new CohortStatistics();
+        int size = students.size();
+        statistics.count = size;
+        double[][] columns = {students.getScoreTugas(), students.getScoreQuiz(), students.getScoreUTS(), students.getScoreUAS(), students.getAverage()};
+        for (int component = 0; component < columns.length && size > 0; component++) {
+            double[] scores = columns[component];
+            double sum = 0;
+            double low = Double.POSITIVE_INFINITY;
+            double high = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                sum += scores[i];
+                low = Math.min(low, scores[i]);
+                high = Math.max(high, scores[i]);
+            }
+            double mean = sum / size;
+            double squares = 0;
+            for (int i = 0; i < size; i++) {
+                squares += (scores[i] - mean) * (scores[i] - mean);
+            }
+            statistics.mean[component] = mean;
+            statistics.standardDeviation[component] = Math.sqrt(squares / size);
+            statistics.min[component] = low;
+            statistics.max[component] = high;
+        }
+
+        // Grades in the order of the database's ORDER BY grade, students without a grade first
+        Map<String, Long> gradeCounts = new TreeMap<>();
+        long withoutGrade = 0;
+        byte[] descriptionCodes = students.getDescriptionCodes();
+        for (int i = 0; i < size; i++) {
+            if (descriptionCodes[i] == 0) {
+                statistics.passCount++;
+            }
+            String grade = students.getGrade(i);
+            if (grade == null) {
+                withoutGrade++;
+            } else {
+                gradeCounts.merge(grade, 1L, Long::sum);
+            }
+        }
+        if (withoutGrade > 0) {
+            statistics.gradeCounts.put(null, withoutGrade);
+        }
+        statistics.gradeCounts.putAll(gradeCounts);
+        statistics.addScores(students, gradingEngine);
+        return statistics;
+    }
+
+    /**
+     * Adds the scores of a page of students to the sketches and letter grade histograms.
+     */
+    private void addScores(StudentColumns page, GradingEngine gradingEngine) {
+        double[][] columns = {page.getScoreTugas(), page.getScoreQuiz(), page.getScoreUTS(), page.getScoreUAS(), page.getAverage()};
+        String[] grades = gradingEngine.getGrades();
+        int[] letterOfGrade = new int[grades.length];
+        for (int grade = 0; grade < grades.length; grade++) {
+            letterOfGrade[grade] = Math.max(0, Arrays.asList(LETTERS).indexOf(grades[grade].substring(0, 1)));
+        }
+        for (int component = 0; component < columns.length; component++) {
+            double[] scores = columns[component];
+            sketches[component].addAll(scores, 0, page.size());
+            long[] letters = letterCounts[component];
+            for (int i = 0; i < page.size(); i++) {
+                letters[letterOfGrade[gradingEngine.gradeCode(scores[i])]]++;
+            }
+        }
+    }
+
+    /**
+     * Adds the sketches and histograms of other statistics, computed over a different set of
+     * students, to these. The exact aggregates are not merged.
+     *
+     * @param other the statistics to merge
+     */
+    public void mergeDistributions(CohortStatistics other) {
+        for (int component = 0; component < COMPONENTS.length; component++) {
+            sketches[component].merge(other.sketches[component]);
+            for (int letter = 0; letter < LETTERS.length; letter++) {
+                letterCounts[component][letter] += other.letterCounts[component][letter];
+            }
+        }
+    }
+
+    /**
+     * @return the number of students
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the fraction of students who passed, between 0 and 1
+     */
+    public double getPassRate() {
+        return count == 0 ? 0 : (double) passCount / count;
+    }
+
+    /**
+     * @param component the index of the component in {@link #COMPONENTS}
+     * @return the mean score
+     */
+    public double getMean(int component) {
+        return mean[component];
+    }
+
+    /**
+     * @param component the index of the component in {@link #COMPONENTS}
+     * @return the population standard deviation of the score
+     */
+    public double getStandardDeviation(int component) {
+        return standardDeviation[component];
+    }
+
+    /**
+     * @param component the index of the component in {@link #COMPONENTS}
+     * @return the lowest score
+     */
+    public double getMin(int component) {
+        return min[component];
+    }
+
+    /**
+     * @param component the index of the component in {@link #COMPONENTS}
+     * @return the highest score
+     */
+    public double getMax(int component) {
+        return max[component];
+    }
+
+    /**
+     * @param component the index of the component in {@link #COMPONENTS}
+     * @param q the fraction, between 0 and 1
+     * @return the score below which the fraction q of the scores fall, to within 0.01
+     */
+    public double getPercentile(int component, double q) {
+        return sketches[component].quantile(q);
+    }
+
+    /**
+     * @param component the index of the component in {@link #COMPONENTS}
+     * @return the number of scores that earn each letter of {@link #LETTERS}
+     */
+    public long[] getLetterCounts(int component) {
+        return letterCounts[component].clone();
+    }
+
+    /**
+     * @return the number of students per stored grade, as counted by the database
+     */
+    public Map<String, Long> getGradeCounts() {
+        return new LinkedHashMap<>(gradeCounts);
+    }
+}
@@ -0,0 +1,556 @@
+package examples;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small bounded pool of JDBC connections.
+ *
+ * Connections are handed out by {@link #borrow()} and returned to the pool when the
+ * caller closes them. Every borrow gets a handle of its own, so a handle kept or closed
+ * again after its connection went back to the pool cannot touch the next borrower's
+ * connection. Idle connections above the minimum size are evicted after the idle
+ * timeout, connections are validated before they are handed out, and connections
+ * held longer than the leak threshold are reported.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+
+    private long borrowTimeoutMillis = 30000;
+    private long idleTimeoutMillis = 10 * 60 * 1000;
+    private long leakThresholdMillis = 60 * 1000;
+    private int validationTimeoutSeconds = 2;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final List<PooledConnection> borrowed = new ArrayList<>();
+    private int totalCount;
+    private int waiterCount;
+    private boolean closed;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private ScheduledExecutorService housekeeper;
+
+    /**
+     * Constructs a new ConnectionPool for the specified database.
+     *
+     * @param url the JDBC URL of the database
+     * @param user the database user
+     * @param password the database password
+     * @param minSize the number of connections kept open while idle
+     * @param maxSize the maximum number of connections open at the same time
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Sets how long {@link #borrow()} waits for a free connection before failing.
+     *
+     * @param borrowTimeoutMillis the timeout in milliseconds
+     */
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a connection above the minimum size may stay idle before it is closed.
+     *
+     * @param idleTimeoutMillis the timeout in milliseconds
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a connection may be borrowed before it is reported as leaked.
+     *
+     * @param leakThresholdMillis the threshold in milliseconds, or 0 to disable leak detection
+     */
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    /**
+     * Sets the timeout passed to {@link Connection#isValid(int)} when validating on borrow.
+     *
+     * @param validationTimeoutSeconds the timeout in seconds
+     */
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    /**
+     * Opens the minimum number of connections and starts the background housekeeping task.
+     *
+     * @throws SQLException if a connection cannot be opened
+     */
+    public void start() throws SQLException {
+        lock.lock();
+        try {
+            while (totalCount < minSize) {
+                idle.addLast(open());
+                totalCount++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis > 0 ? leakThresholdMillis : idleTimeoutMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool. The connection is returned to the pool when it is closed.
+     *
+     * @return a validated connection
+     * @throws SQLException if the pool is closed, no connection becomes free in time, or a new
+     *         connection cannot be opened
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        borrowCount.incrementAndGet();
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+            lock.lock();
+            try {
+                while (candidate == null && !create) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    if (!idle.isEmpty()) {
+                        candidate = idle.pollFirst();
+                    } else if (totalCount < maxSize) {
+                        totalCount++;
+                        create = true;
+                    } else {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            timeoutCount.incrementAndGet();
+                            totalWaitNanos.addAndGet(System.nanoTime() - start);
+                            throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection");
+                        }
+                        waiterCount++;
+                        try {
+                            available.awaitNanos(remaining);
+                        } catch (InterruptedException error) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted while waiting for a database connection", error);
+                        } finally {
+                            waiterCount--;
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    candidate = open();
+                } catch (SQLException error) {
+                    discard(null);
+                    throw error;
+                }
+            } else if (!isValid(candidate)) {
+                closeQuietly(candidate);
+                discard(null);
+                continue;
+            }
+
+            lock.lock();
+            try {
+                candidate.borrowedAt = System.currentTimeMillis();
+                candidate.borrowerTrace = leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+                candidate.leakReported = false;
+                borrowed.add(candidate);
+            } finally {
+                lock.unlock();
+            }
+            totalWaitNanos.addAndGet(System.nanoTime() - start);
+            return new Lease(candidate).handle;
+        }
+    }
+
+    /**
+     * Closes every connection in the pool. Borrowed connections are closed when they are returned.
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            totalCount -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        for (PooledConnection connection : toClose) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * @return the number of connections currently borrowed
+     */
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return borrowed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of open connections waiting in the pool
+     */
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of open connections, borrowed or idle
+     */
+    public int getTotalCount() {
+        lock.lock();
+        try {
+            return totalCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of threads currently waiting for a connection
+     */
+    public int getWaiterCount() {
+        lock.lock();
+        try {
+            return waiterCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of borrow calls since the pool was created
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * @return the number of borrow calls that timed out
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * @return the number of connections reported as leaked
+     */
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    /**
+     * @return the number of idle connections closed by eviction
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return the total time spent in {@link #borrow()}, in milliseconds
+     */
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * Returns an object that identifies the physical connection behind a borrowed handle, and stays
+     * the same from borrow to borrow, for caches kept per connection such as prepared statements.
+     *
+     * @param connection a connection borrowed from a pool, or any other connection
+     * @return the key of the pooled connection, or the connection itself if it is not from a pool
+     */
+    public static Object connectionKey(Connection connection) {
+        if (Proxy.isProxyClass(connection.getClass()) && Proxy.getInvocationHandler(connection) instanceof Lease) {
+            return ((Lease) Proxy.getInvocationHandler(connection)).connection;
+        }
+        return connection;
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        try {
+            return new PooledConnection(physical);
+        } catch (SQLException error) {
+            physical.close();
+            throw error;
+        }
+    }
+
+    private boolean isValid(PooledConnection connection) {
+        try {
+            return connection.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException error) {
+            return false;
+        }
+    }
+
+    private void release(Lease lease) {
+        PooledConnection connection = lease.connection;
+        lock.lock();
+        try {
+            // Only the first close of a handle returns its connection
+            if (lease.released) {
+                return;
+            }
+            lease.released = true;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean broken;
+        try {
+            broken = connection.physical.isClosed();
+            if (!broken) {
+                reset(connection, lease);
+            }
+        } catch (SQLException error) {
+            broken = true;
+        }
+
+        boolean closeNow = broken;
+        lock.lock();
+        try {
+            if (!borrowed.remove(connection)) {
+                return;
+            }
+            if (closed || broken) {
+                totalCount--;
+                closeNow = true;
+            } else {
+                connection.lastUsedAt = System.currentTimeMillis();
+                idle.addFirst(connection);
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (closeNow) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Rolls back what the borrower left open and puts back the session settings it changed.
+     */
+    private static void reset(PooledConnection connection, Lease lease) throws SQLException {
+        Connection physical = connection.physical;
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        if (lease.readOnlyChanged) {
+            physical.setReadOnly(connection.defaultReadOnly);
+        }
+        if (lease.isolationChanged) {
+            physical.setTransactionIsolation(connection.defaultIsolation);
+        }
+        if (lease.catalogChanged && connection.defaultCatalog != null) {
+            physical.setCatalog(connection.defaultCatalog);
+        }
+    }
+
+    private void discard(PooledConnection connection) {
+        lock.lock();
+        try {
+            if (connection != null) {
+                borrowed.remove(connection);
+            }
+            totalCount--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void housekeep() {
+        List<PooledConnection> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Iterator<PooledConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && totalCount > minSize) {
+                PooledConnection connection = iterator.next();
+                if (now - connection.lastUsedAt >= idleTimeoutMillis) {
+                    iterator.remove();
+                    totalCount--;
+                    evicted.add(connection);
+                }
+            }
+            if (leakThresholdMillis > 0) {
+                for (PooledConnection connection : borrowed) {
+                    if (!connection.leakReported && now - connection.borrowedAt >= leakThresholdMillis) {
+                        connection.leakReported = true;
+                        leakCount.incrementAndGet();
+                        System.out.println("Possible connection leak: connection held for " + (now - connection.borrowedAt) + " ms");
+                        if (connection.borrowerTrace != null) {
+                            connection.borrowerTrace.printStackTrace(System.out);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection connection : evicted) {
+            evictionCount.incrementAndGet();
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(PooledConnection connection) {
+        try {
+            connection.physical.close();
+        } catch (SQLException error) {
+            System.out.println("An error occurred. " + error.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * A physical connection with the session settings it was opened with.
+     */
+    private static final class PooledConnection {
+        final Connection physical;
+        final boolean defaultReadOnly;
+        final int defaultIsolation;
+        final String defaultCatalog;
+        long lastUsedAt = System.currentTimeMillis();
+        long borrowedAt;
+        Throwable borrowerTrace;
+        boolean leakReported;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            defaultReadOnly = physical.isReadOnly();
+            defaultIsolation = physical.getTransactionIsolation();
+            defaultCatalog = physical.getCatalog();
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection, and the proxy handed out for it. Closing the proxy returns
+     * the connection to the pool instead of closing it; after that the proxy refuses every call.
+     */
+    private final class Lease implements InvocationHandler {
+        final PooledConnection connection;
+        final Connection handle;
+        volatile boolean released;
+        boolean readOnlyChanged;
+        boolean isolationChanged;
+        boolean catalogChanged;
+
+        Lease(PooledConnection connection) {
+            this.connection = connection;
+            this.handle = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release(this);
+                    return null;
+                case "isClosed":
+                    return released || connection.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + connection.physical;
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                case "unwrap":
+                    // The physical connection is never handed out, or it could outlive the borrow
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("A pooled connection does not unwrap to " + ((Class<?>) args[0]).getName());
+                case "setReadOnly":
+                    readOnlyChanged = true;
+                    break;
+                case "setTransactionIsolation":
+                    isolationChanged = true;
+                    break;
+                case "setCatalog":
+                    catalogChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(connection.physical, args);
+            } catch (InvocationTargetException error) {
+                throw error.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package examples;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown instead of returning an empty result by a {@link StudentDAO} that rethrows its errors,
+ * so a caller such as {@link StudentServer} can tell a failed call from a missing student.
+ */
+public class DataAccessException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new DataAccessException.
+     *
+     * @param cause the error of the failed call
+     */
+    public DataAccessException(SQLException cause) {
+        super(cause.getLocalizedMessage(), cause);
+    }
+
+    /**
+     * @return the error of the failed call
+     */
+    public SQLException getSQLException() {
+        return (SQLException) getCause();
+    }
+}
@@ -10,11 +10,43 @@ import java.sql.SQLException;
  * @author didikmaulanaardiansyah
  */
 public class DatabaseConnection {
-    private final String url = "jdbc:mysql://localhost:8889/students_db";
-    private final String user = "admin"; 
-    private final String password = "";
+    private final String url;
+    private final String user;
+    private final String password;
     private Connection connection;
+    private ConnectionPool pool;
+    private DatabaseMetrics metrics = DatabaseMetrics.DEFAULT;
     
+     /**
+     * Creates a DatabaseConnection to the local students_db database, or to the database set with
+     * the system properties studentdb.url, studentdb.user and studentdb.password.
+     */
+    public DatabaseConnection() {
+        this(System.getProperty("studentdb.url", "jdbc:mysql://localhost:8889/students_db?rewriteBatchedStatements=true"),
+                System.getProperty("studentdb.user", "admin"), System.getProperty("studentdb.password", ""));
+    }
+    
+     /**
+     * Creates a DatabaseConnection to another database, such as an embedded one.
+     * 
+     * @param url the JDBC URL of the database
+     * @param user the user to connect as
+     * @param password the password of the user
+     */
+    public DatabaseConnection(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+    
+     /**
+     * Sets where connect attempts, failures and the connection state are recorded.
+     * 
+     * @param metrics the metrics to record to, {@link DatabaseMetrics#DEFAULT} unless set
+     */
+    public void setMetrics(DatabaseMetrics metrics) {
+        this.metrics = metrics;
+    }
     
      /**
      * Returns the current database connection.
@@ -29,25 +61,64 @@ public class DatabaseConnection {
      * Connects to the database using the specified URL, user, and password.
      */
     public void connect() {
+        metrics.connectAttempted();
         try {
             connection = DriverManager.getConnection(url, user, password);
             if (connection != null) {
+                metrics.setConnected(true, null);
                 System.out.println("Connected to the database");
             }
 
         } catch (SQLException error) {
+            metrics.connectFailed(error);
             System.out.println("An error occurred. Maybe the credentials is invalid");
         }
     }
 
      /**
-     * Closes the current database connection if it exists.
+     * Returns the connection pool opened by {@link #connectPooled(int, int)}.
+     *
+     * @return the connection pool, or null when not connected in pooled mode
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+     /**
+     * Connects to the database through a pool holding between minSize and maxSize connections.
+     *
+     * @param minSize the number of connections kept open while idle
+     * @param maxSize the maximum number of connections open at the same time
+     * @throws SQLException if the first connections cannot be opened; no pool is left open then
+     */
+    public void connectPooled(int minSize, int maxSize) throws SQLException {
+        metrics.connectAttempted();
+        ConnectionPool opened = new ConnectionPool(url, user, password, minSize, maxSize);
+        try {
+            opened.start();
+        } catch (SQLException error) {
+            opened.close();
+            metrics.connectFailed(error);
+            System.out.println("An error occurred. Maybe the credentials is invalid");
+            throw error;
+        }
+        pool = opened;
+        metrics.setConnected(true, pool);
+        System.out.println("Connected to the database (pool of " + minSize + ".." + maxSize + " connections)");
+    }
+
+     /**
+     * Closes the current database connection and the connection pool if they exist.
      */
     public void close() {
         try {
+            if (pool != null) {
+                pool.close();
+            }
             if (connection != null) {
                 connection.close();
             }
+            metrics.setConnected(false, null);
         } catch (SQLException error) {
             System.out.println("An error occurred. " + error.getLocalizedMessage());
         }
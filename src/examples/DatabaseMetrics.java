@@ -0,0 +1,301 @@
+package examples;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the database layer: per StudentDAO operation a latency
+ * histogram and an error counter, the number of rows read and written, and the state of the
+ * connection or connection pool. Everything is lock-free to update, so recording costs next to
+ * nothing on the calling thread.
+ *
+ * The metrics can be read over JMX (see {@link #registerMBean()}) or scraped as plain text
+ * (see {@link #writeText(Appendable)} and {@link MetricsServer}).
+ */
+public class DatabaseMetrics implements DatabaseMetricsMXBean, MetricsSource {
+    /** The JMX object name the metrics are registered under. */
+    public static final String OBJECT_NAME = "examples:type=DatabaseMetrics";
+
+    /** The metrics shared by the DAOs and connections of this process. */
+    public static final DatabaseMetrics DEFAULT = new DatabaseMetrics();
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder connectAttempts = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private volatile String lastConnectError;
+    private volatile boolean connected;
+    private volatile ConnectionPool connectionPool;
+
+    /**
+     * The latency histogram and error counter of one operation.
+     */
+    private static final class Operation {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * A snapshot of the statistics of one operation, as shown over JMX.
+     */
+    public static final class OperationStatistics {
+        private final long count;
+        private final long errors;
+        private final double meanMillis;
+        private final double medianMillis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        OperationStatistics(LatencyHistogram latency, long errors) {
+            this.count = latency.getCount();
+            this.errors = errors;
+            this.meanMillis = latency.getMeanMillis();
+            this.medianMillis = latency.getPercentileMillis(0.5);
+            this.p99Millis = latency.getPercentileMillis(0.99);
+            this.maxMillis = latency.getMaxNanos() / 1e6;
+        }
+
+        /**
+         * @return the number of calls
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the number of calls that failed
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the mean latency in milliseconds
+         */
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        /**
+         * @return the estimated median latency in milliseconds
+         */
+        public double getMedianMillis() {
+            return medianMillis;
+        }
+
+        /**
+         * @return the estimated 99th percentile latency in milliseconds
+         */
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        /**
+         * @return the largest latency in milliseconds
+         */
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+
+    private Operation operation(String name) {
+        Operation operation = operations.get(name);
+        return operation != null ? operation : operations.computeIfAbsent(name, key -> new Operation());
+    }
+
+    /**
+     * Records one call of an operation.
+     *
+     * @param name the name of the operation, such as findStudent
+     * @param startNanos the value of System.nanoTime() when the call started
+     * @param failed whether the call failed
+     */
+    public void record(String name, long startNanos, boolean failed) {
+        Operation operation = operation(name);
+        operation.latency.recordSince(startNanos);
+        if (failed) {
+            operation.errors.increment();
+        }
+    }
+
+    /**
+     * Returns the latency histogram of an operation.
+     *
+     * @param name the name of the operation
+     * @return the histogram, or null if the operation has not been called
+     */
+    public LatencyHistogram getLatency(String name) {
+        Operation operation = operations.get(name);
+        return operation != null ? operation.latency : null;
+    }
+
+    /**
+     * @param rows the number of student rows read
+     */
+    public void addRowsRead(long rows) {
+        rowsRead.add(rows);
+    }
+
+    /**
+     * @param rows the number of student rows written
+     */
+    public void addRowsWritten(long rows) {
+        rowsWritten.add(rows);
+    }
+
+    /**
+     * Records an attempt to connect to the database.
+     */
+    public void connectAttempted() {
+        connectAttempts.increment();
+    }
+
+    /**
+     * Records a failed attempt to connect to the database.
+     *
+     * @param error the reason it failed
+     */
+    public void connectFailed(Exception error) {
+        connectFailures.increment();
+        lastConnectError = error.getLocalizedMessage();
+        connected = false;
+    }
+
+    /**
+     * Records that a connection was opened, or closed when connected is false.
+     *
+     * @param connected whether the database is now connected
+     * @param connectionPool the pool of the connection, or null when not pooled
+     */
+    public void setConnected(boolean connected, ConnectionPool connectionPool) {
+        this.connected = connected;
+        this.connectionPool = connected ? connectionPool : null;
+    }
+
+    @Override
+    public Map<String, OperationStatistics> getOperations() {
+        Map<String, OperationStatistics> statistics = new TreeMap<>();
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            statistics.put(entry.getKey(), new OperationStatistics(entry.getValue().latency, entry.getValue().errors.sum()));
+        }
+        return statistics;
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    @Override
+    public long getConnectAttempts() {
+        return connectAttempts.sum();
+    }
+
+    @Override
+    public long getConnectFailures() {
+        return connectFailures.sum();
+    }
+
+    @Override
+    public String getLastConnectError() {
+        return lastConnectError;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        ConnectionPool pool = connectionPool;
+        return pool != null ? pool.getActiveCount() : 0;
+    }
+
+    @Override
+    public int getIdleConnections() {
+        ConnectionPool pool = connectionPool;
+        return pool != null ? pool.getIdleCount() : 0;
+    }
+
+    @Override
+    public int getPoolWaiters() {
+        ConnectionPool pool = connectionPool;
+        return pool != null ? pool.getWaiterCount() : 0;
+    }
+
+    @Override
+    public long getPoolTimeouts() {
+        ConnectionPool pool = connectionPool;
+        return pool != null ? pool.getTimeoutCount() : 0;
+    }
+
+    @Override
+    public void reset() {
+        operations.clear();
+        rowsRead.reset();
+        rowsWritten.reset();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as {@value #OBJECT_NAME},
+     * replacing metrics registered there before.
+     *
+     * @throws JMException if the metrics cannot be registered
+     */
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    @Override
+    public void writeText(Appendable out) throws IOException {
+        Map<String, Operation> sorted = new TreeMap<>(operations);
+
+        out.append("# HELP studentdao_operation_seconds Latency of StudentDAO operations.\n");
+        out.append("# TYPE studentdao_operation_seconds histogram\n");
+        for (Map.Entry<String, Operation> entry : sorted.entrySet()) {
+            entry.getValue().latency.writeText(out, "studentdao_operation_seconds", "operation=\"" + entry.getKey() + "\"");
+        }
+
+        out.append("# HELP studentdao_operation_errors_total Failed StudentDAO operations.\n");
+        out.append("# TYPE studentdao_operation_errors_total counter\n");
+        for (Map.Entry<String, Operation> entry : sorted.entrySet()) {
+            out.append("studentdao_operation_errors_total{operation=\"").append(entry.getKey()).append("\"} ")
+                    .append(Long.toString(entry.getValue().errors.sum())).append('\n');
+        }
+
+        writeSample(out, "studentdao_rows_read_total", "counter", "Student rows read from the database.", getRowsRead());
+        writeSample(out, "studentdao_rows_written_total", "counter", "Student rows written to the database.", getRowsWritten());
+        writeSample(out, "database_connect_attempts_total", "counter", "Attempts to connect to the database.", getConnectAttempts());
+        writeSample(out, "database_connect_failures_total", "counter", "Failed attempts to connect to the database.", getConnectFailures());
+        writeSample(out, "database_connected", "gauge", "1 while the database is connected.", isConnected() ? 1 : 0);
+        writeSample(out, "database_pool_active_connections", "gauge", "Pooled connections in use.", getActiveConnections());
+        writeSample(out, "database_pool_idle_connections", "gauge", "Pooled connections waiting to be borrowed.", getIdleConnections());
+        writeSample(out, "database_pool_waiters", "gauge", "Threads waiting for a pooled connection.", getPoolWaiters());
+        writeSample(out, "database_pool_timeouts_total", "counter", "Borrows that timed out waiting for a connection.", getPoolTimeouts());
+    }
+
+    private static void writeSample(Appendable out, String name, String type, String help, long value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ').append(Long.toString(value)).append('\n');
+    }
+}
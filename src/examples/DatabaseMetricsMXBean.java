@@ -0,0 +1,70 @@
+package examples;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link DatabaseMetrics}, registered with the platform MBean server
+ * as {@value DatabaseMetrics#OBJECT_NAME}.
+ */
+public interface DatabaseMetricsMXBean {
+
+    /**
+     * @return the latency and error statistics of every DAO operation that has been called, by operation name
+     */
+    Map<String, DatabaseMetrics.OperationStatistics> getOperations();
+
+    /**
+     * @return the number of student rows read from the database
+     */
+    long getRowsRead();
+
+    /**
+     * @return the number of student rows written to the database
+     */
+    long getRowsWritten();
+
+    /**
+     * @return the number of attempts to connect to the database
+     */
+    long getConnectAttempts();
+
+    /**
+     * @return the number of attempts to connect to the database that failed
+     */
+    long getConnectFailures();
+
+    /**
+     * @return the message of the last failed connect, or null if none failed
+     */
+    String getLastConnectError();
+
+    /**
+     * @return true while a connection or connection pool to the database is open
+     */
+    boolean isConnected();
+
+    /**
+     * @return the number of pooled connections in use, or 0 when not pooled
+     */
+    int getActiveConnections();
+
+    /**
+     * @return the number of pooled connections waiting to be borrowed, or 0 when not pooled
+     */
+    int getIdleConnections();
+
+    /**
+     * @return the number of threads waiting for a pooled connection, or 0 when not pooled
+     */
+    int getPoolWaiters();
+
+    /**
+     * @return the number of borrows that timed out waiting for a pooled connection
+     */
+    long getPoolTimeouts();
+
+    /**
+     * Clears the operation statistics and row counters. Connection counters are kept.
+     */
+    void reset();
+}
@@ -0,0 +1,222 @@
+package examples;
+
+import java.util.Arrays;
+
+/**
+ * Computes the average, grade and pass/fail description of students from their four scores.
+ *
+ * The weights and grade thresholds are configurable. The thresholds are compiled into a table
+ * indexed by the whole part of the average, so grading a score is one array lookup instead of
+ * a chain of comparisons. The batch methods work on whole score columns in two tight loops
+ * (weighted sum, then lookup) that allocate nothing and that the JIT can vectorize.
+ */
+public class GradingEngine {
+
+    /**
+     * The grading used by StudentForm: equal weights, grades A to E and a pass mark of 60.
+     */
+    public static final GradingEngine DEFAULT = new GradingEngine(
+            new double[] {0.25, 0.25, 0.25, 0.25},
+            StudentColumns.GRADES,
+            new double[] {90, 85, 80, 75, 70, 65, 60, 55, 50, Double.NEGATIVE_INFINITY},
+            60);
+
+    private static final int BUCKETS = 101;
+
+    private final double weightTugas;
+    private final double weightQuiz;
+    private final double weightUTS;
+    private final double weightUAS;
+    private final String[] grades;
+    private final double[] minimumScores;
+    private final double passScore;
+
+    // Grade of every score whose whole part is the bucket, or -1 when a threshold falls inside the bucket
+    private final byte[] gradeByBucket = new byte[BUCKETS];
+    // StudentColumns code of every grade of this engine
+    private final byte[] columnCodes;
+
+    /**
+     * Constructs a new GradingEngine.
+     *
+     * @param weights the weights of the task, quiz, UTS and UAS scores in the average
+     * @param grades the grades, best first
+     * @param minimumScores the lowest average that earns each grade, in descending order; use
+     *        {@link Double#NEGATIVE_INFINITY} for the last grade so every score gets a grade
+     * @param passScore the lowest average that passes
+     */
+    public GradingEngine(double[] weights, String[] grades, double[] minimumScores, double passScore) {
+        if (weights.length != 4) {
+            throw new IllegalArgumentException("Expected 4 weights, got " + weights.length);
+        }
+        if (grades.length == 0 || grades.length != minimumScores.length || grades.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Expected one minimum score per grade");
+        }
+        for (int i = 1; i < minimumScores.length; i++) {
+            if (!(minimumScores[i] < minimumScores[i - 1])) {
+                throw new IllegalArgumentException("Minimum scores must be in descending order");
+            }
+        }
+        if (minimumScores[minimumScores.length - 1] != Double.NEGATIVE_INFINITY) {
+            throw new IllegalArgumentException("The last grade must accept every score");
+        }
+        this.weightTugas = weights[0];
+        this.weightQuiz = weights[1];
+        this.weightUTS = weights[2];
+        this.weightUAS = weights[3];
+        this.grades = grades.clone();
+        this.minimumScores = minimumScores.clone();
+        this.passScore = passScore;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            byte low = scan(bucket);
+            byte high = scan(Math.nextDown(bucket + 1.0));
+            gradeByBucket[bucket] = low == high ? low : -1;
+        }
+        columnCodes = new byte[grades.length];
+        for (int i = 0; i < grades.length; i++) {
+            columnCodes[i] = StudentColumns.gradeCode(grades[i]);
+        }
+    }
+
+    private byte scan(double average) {
+        int grade = 0;
+        int last = minimumScores.length - 1;
+        while (grade < last && !(average >= minimumScores[grade])) {
+            grade++;
+        }
+        return (byte) grade;
+    }
+
+    /**
+     * Computes the weighted average of the four scores.
+     *
+     * @param tugas the task score
+     * @param quiz the quiz score
+     * @param uts the UTS score
+     * @param uas the UAS score
+     * @return the average
+     */
+    public double average(double tugas, double quiz, double uts, double uas) {
+        return tugas * weightTugas + quiz * weightQuiz + uts * weightUTS + uas * weightUAS;
+    }
+
+    /**
+     * Looks up the grade of an average.
+     *
+     * @param average the average score
+     * @return the index of the grade in {@link #getGrades()}
+     */
+    public byte gradeCode(double average) {
+        if (average >= 0 && average < BUCKETS) {
+            byte grade = gradeByBucket[(int) average];
+            if (grade >= 0) {
+                return grade;
+            }
+        }
+        return scan(average);
+    }
+
+    /**
+     * @param average the average score
+     * @return the grade of the average
+     */
+    public String grade(double average) {
+        return grades[gradeCode(average)];
+    }
+
+    /**
+     * @param average the average score
+     * @return whether the average passes
+     */
+    public boolean passed(double average) {
+        return average >= passScore;
+    }
+
+    /**
+     * @param average the average score
+     * @return the index of the description in {@link StudentColumns#DESCRIPTIONS}
+     */
+    public byte descriptionCode(double average) {
+        return (byte) (average >= passScore ? 0 : 1);
+    }
+
+    /**
+     * @param average the average score
+     * @return the pass/fail description of the average
+     */
+    public String description(double average) {
+        return StudentColumns.DESCRIPTIONS[descriptionCode(average)];
+    }
+
+    /**
+     * @return the grades of this engine, best first
+     */
+    public String[] getGrades() {
+        return grades.clone();
+    }
+
+    /**
+     * Grades the students from index from (inclusive) to to (exclusive) of the score arrays.
+     * Nothing is allocated; the results are written to the output arrays at the same indexes.
+     *
+     * @param tugas the task scores
+     * @param quiz the quiz scores
+     * @param uts the UTS scores
+     * @param uas the UAS scores
+     * @param averageOut receives the averages
+     * @param gradeOut receives the grade codes, indexes into {@link #getGrades()}
+     * @param descriptionOut receives the description codes, indexes into {@link StudentColumns#DESCRIPTIONS}
+     * @param from the first index to grade
+     * @param to the index after the last one to grade
+     */
+    public void evaluate(double[] tugas, double[] quiz, double[] uts, double[] uas,
+            double[] averageOut, byte[] gradeOut, byte[] descriptionOut, int from, int to) {
+        double wTugas = weightTugas;
+        double wQuiz = weightQuiz;
+        double wUTS = weightUTS;
+        double wUAS = weightUAS;
+        for (int i = from; i < to; i++) {
+            averageOut[i] = tugas[i] * wTugas + quiz[i] * wQuiz + uts[i] * wUTS + uas[i] * wUAS;
+        }
+        double pass = passScore;
+        for (int i = from; i < to; i++) {
+            double average = averageOut[i];
+            gradeOut[i] = gradeCode(average);
+            descriptionOut[i] = (byte) (average >= pass ? 0 : 1);
+        }
+    }
+
+    /**
+     * Grades the students from index from (inclusive) to to (exclusive) of the store, replacing
+     * their average, grade and description. Grades not in {@link StudentColumns#GRADES} are
+     * stored as {@link StudentColumns#UNKNOWN_CODE}.
+     *
+     * @param columns the students to grade
+     * @param from the first index to grade
+     * @param to the index after the last one to grade
+     */
+    public void evaluate(StudentColumns columns, int from, int to) {
+        byte[] gradeCodes = columns.getGradeCodes();
+        evaluate(columns.getScoreTugas(), columns.getScoreQuiz(), columns.getScoreUTS(), columns.getScoreUAS(),
+                columns.getAverage(), gradeCodes, columns.getDescriptionCodes(), from, to);
+        for (int i = from; i < to; i++) {
+            gradeCodes[i] = columnCodes[gradeCodes[i]];
+        }
+    }
+
+    /**
+     * Grades every student of the store, see {@link #evaluate(StudentColumns, int, int)}.
+     *
+     * @param columns the students to grade
+     */
+    public void evaluate(StudentColumns columns) {
+        evaluate(columns, 0, columns.size());
+    }
+
+    @Override
+    public String toString() {
+        return "GradingEngine[weights=" + Arrays.toString(new double[] {weightTugas, weightQuiz, weightUTS, weightUAS})
+                + ", grades=" + Arrays.toString(grades) + ", minimumScores=" + Arrays.toString(minimumScores) + ", pass=" + passScore + "]";
+    }
+}
@@ -0,0 +1,285 @@
+package examples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reads and writes students through a {@link StudentServer}, so a StudentForm can run as a thin
+ * client without a database connection of its own.
+ *
+ * Listeners are told about the changes made through this repository, as they are for StudentDAO;
+ * changes made by other clients are picked up with a {@link ChangePoller}.
+ */
+public class HttpStudentRepository implements StudentRepository {
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 60000;
+
+    private final String baseUrl;
+    private final List<StudentChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a new HttpStudentRepository.
+     *
+     * @param baseUrl the URL of the server, such as http://localhost:8080
+     */
+    public HttpStudentRepository(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public void addChangeListener(StudentChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(StudentChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void fireChange(Object change, String nim, Student student) {
+        if (change == null) {
+            return;
+        }
+        StudentChangeEvent.Type type = StudentChangeEvent.Type.valueOf((String) change);
+        StudentChangeEvent event = new StudentChangeEvent(type, nim, type == StudentChangeEvent.Type.DELETED ? null : student);
+        for (StudentChangeListener listener : changeListeners) {
+            listener.studentChanged(event);
+        }
+    }
+
+    /**
+     * Sends a request and reads the JSON answer.
+     *
+     * @return the answer, or null if the server answered 404
+     * @throws IOException if the server cannot be reached or answered with an error
+     */
+    private Object call(String method, String path, Object body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        if (body != null) {
+            byte[] json = Json.write(body).getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            connection.setFixedLengthStreamingMode(json.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json);
+            }
+        }
+        int status = connection.getResponseCode();
+        String answer = read(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+        if (status == 404) {
+            return null;
+        }
+        if (status >= 400) {
+            Object message = answer.isEmpty() ? null : StudentJson.object(Json.parse(answer)).get("error");
+            throw new IOException("The student server answered " + status + (message == null ? "" : ": " + message));
+        }
+        return Json.parse(answer);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String encode(String value) throws UnsupportedEncodingException {
+        return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+    }
+
+    @Override
+    public Student findStudent(String nim) {
+        try {
+            return StudentJson.toStudent(call("GET", "/api/students/" + encode(nim), null));
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public List<Student> findStudents(Collection<String> nims) {
+        if (nims.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return StudentJson.toStudents(call("POST", "/api/students/find", Collections.singletonMap("nims", new ArrayList<>(nims))));
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public int countStudents() {
+        try {
+            return (int) StudentJson.number(StudentJson.object(call("GET", "/api/students/count", null)).get("count"));
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public int countStudents(StudentQuery studentQuery) {
+        try {
+            Object answer = call("POST", "/api/students/count", Collections.singletonMap("query", StudentJson.toJson(studentQuery)));
+            return (int) StudentJson.number(StudentJson.object(answer).get("count"));
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public List<Student> getStudentsAfter(String afterNim, int limit) {
+        try {
+            return StudentJson.toStudents(call("GET", "/api/students?limit=" + limit + (afterNim == null ? "" : "&after=" + encode(afterNim)), null));
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Student> getStudentPage(int offset, int limit) {
+        try {
+            return StudentJson.toStudents(call("GET", "/api/students?offset=" + offset + "&limit=" + limit, null));
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Student> queryStudents(StudentQuery studentQuery, Student after, int limit) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("query", StudentJson.toJson(studentQuery));
+        body.put("after", StudentJson.toJson(after));
+        body.put("limit", limit);
+        try {
+            return StudentJson.toStudents(call("POST", "/api/students/query", body));
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Student> queryStudentPage(StudentQuery studentQuery, int offset, int limit) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("query", StudentJson.toJson(studentQuery));
+        body.put("offset", offset);
+        body.put("limit", limit);
+        try {
+            return StudentJson.toStudents(call("POST", "/api/students/query", body));
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String readStudentsAfter(StudentColumns columns, String afterNim, int limit) throws SQLException {
+        List<Student> page;
+        try {
+            page = StudentJson.toStudents(call("GET", "/api/students?limit=" + limit + (afterNim == null ? "" : "&after=" + encode(afterNim)), null));
+        } catch (IOException | RuntimeException error) {
+            throw new SQLException("Could not read the students after " + afterNim + " from " + baseUrl, error);
+        }
+        for (Student student : page) {
+            columns.add(student);
+        }
+        return page.isEmpty() ? null : page.get(page.size() - 1).getNim();
+    }
+
+    @Override
+    public void upsertStudent(Student student) {
+        try {
+            Object answer = call("PUT", "/api/students/" + encode(student.getNim()), StudentJson.toJson(student));
+            fireChange(StudentJson.object(answer).get("change"), student.getNim(), student);
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+    }
+
+    @Override
+    public SaveResult saveStudent(Student student) {
+        try {
+            SaveResult result = StudentJson.toSaveResult(call("POST", "/api/students/save", StudentJson.toJson(student)));
+            if (result.isSaved()) {
+                fireChange(student.getVersion() == 0 ? "INSERTED" : "UPDATED", student.getNim(), result.getStudent());
+            }
+            return result;
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+        return new SaveResult(SaveResult.Status.FAILED, null, null);
+    }
+
+    @Override
+    public void deleteStudent(String nim) {
+        try {
+            Object answer = call("DELETE", "/api/students/" + encode(nim), null);
+            fireChange(answer == null ? null : StudentJson.object(answer).get("change"), nim, null);
+        } catch (IOException | RuntimeException error) {
+            error.printStackTrace();
+        }
+    }
+
+    @Override
+    public List<StudentChange> getChangesSince(long sequence, int limit) throws SQLException {
+        try {
+            return StudentJson.toChanges(call("GET", "/api/changes?since=" + sequence + "&limit=" + limit, null));
+        } catch (IOException | RuntimeException error) {
+            throw new SQLException("Could not read the changes after " + sequence + " from " + baseUrl, error);
+        }
+    }
+
+    @Override
+    public long getLastChangeSequence() throws SQLException {
+        try {
+            return (long) StudentJson.number(StudentJson.object(call("GET", "/api/changes/last", null)).get("sequence"));
+        } catch (IOException | RuntimeException error) {
+            throw new SQLException("Could not read the latest change from " + baseUrl, error);
+        }
+    }
+
+    @Override
+    public CohortStatistics getStatistics() throws SQLException {
+        try {
+            return StudentJson.toStatistics(call("GET", "/api/statistics", null));
+        } catch (IOException | RuntimeException error) {
+            throw new SQLException("Could not read the statistics from " + baseUrl, error);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package examples;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event queue that times every event dispatch on the event dispatch thread and keeps a latency
+ * histogram per handler, such as "saveButton MOUSE_RELEASED" for a click on SIMPAN. A handler is
+ * named after the component the event is for, so components should be given names with
+ * {@link Component#setName(String)}; unnamed ones are named after their class.
+ *
+ * Time the handler spends in a nested event loop, such as a modal dialog, is not counted against it.
+ * A watchdog thread samples the stack of the event dispatch thread while a dispatch runs longer than
+ * the stall threshold. It appends the first sampled stack to a file as soon as the threshold is
+ * crossed, so a dispatch that never returns is still reported, and a report of the whole stall
+ * when it ends.
+ */
+public class InstrumentedEventQueue extends EventQueue implements MetricsSource {
+    private static final int MAX_DEPTH = 32;
+    private static final int MAX_SAMPLES = 50;
+    private static final int MAX_FRAMES = 25;
+    private static final int REPORTED_HANDLERS = 10;
+
+    private final long stallThresholdNanos;
+    private final long sampleIntervalMillis;
+    private final Path reportFile;
+
+    private final Map<String, LatencyHistogram> handlers = new ConcurrentHashMap<>();
+    private final Map<Integer, String> eventNames = new ConcurrentHashMap<>();
+    private final AtomicLong stallCount = new AtomicLong();
+
+    // Dispatches in progress, innermost last; only touched on the event dispatch thread
+    private final long[] excludedNanos = new long[MAX_DEPTH];
+    private final String[] handlerNames = new String[MAX_DEPTH];
+    private int depth;
+
+    // What the watchdog sees: when the running handler started or resumed (0 while idle), and which handler it is
+    private volatile long busySince;
+    private volatile String busyHandler;
+    private volatile Thread dispatchThread;
+    private final AtomicLong busySequence = new AtomicLong();
+
+    private final Thread watchdog;
+
+    /**
+     * Creates an event queue. Use {@link #install(long, Path)} to put it in place.
+     *
+     * @param stallThresholdMillis how long a dispatch may run before it is reported as a stall
+     * @param reportFile the file stall reports are appended to
+     */
+    public InstrumentedEventQueue(long stallThresholdMillis, Path reportFile) {
+        this.stallThresholdNanos = stallThresholdMillis * 1000000;
+        this.sampleIntervalMillis = Math.max(10, stallThresholdMillis / 5);
+        this.reportFile = reportFile;
+        watchdog = new Thread(this::watch, "EDT stall watchdog");
+        watchdog.setDaemon(true);
+    }
+
+    /**
+     * Replaces the system event queue with an instrumented one and starts its watchdog.
+     *
+     * @param stallThresholdMillis how long a dispatch may run before it is reported as a stall
+     * @param reportFile the file stall reports are appended to
+     * @return the installed event queue
+     */
+    public static InstrumentedEventQueue install(long stallThresholdMillis, Path reportFile) {
+        InstrumentedEventQueue eventQueue = new InstrumentedEventQueue(stallThresholdMillis, reportFile);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(eventQueue);
+        eventQueue.watchdog.start();
+        return eventQueue;
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        if (depth == 0) {
+            dispatchThread = Thread.currentThread();
+        }
+        if (depth >= MAX_DEPTH) {
+            super.dispatchEvent(event);
+            return;
+        }
+        int frame = depth++;
+        String handler = handlerOf(event);
+        long start = System.nanoTime();
+        excludedNanos[frame] = 0;
+        handlerNames[frame] = handler;
+        busy(handler, start);
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long end = System.nanoTime();
+            long total = end - start;
+            histogram(handler).record(total - excludedNanos[frame]);
+            depth = frame;
+            if (frame > 0) {
+                excludedNanos[frame - 1] += total;
+                busy(handlerNames[frame - 1], end);
+            } else {
+                busySince = 0;
+            }
+        }
+    }
+
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException {
+        if (depth == 0 || Thread.currentThread() != dispatchThread) {
+            return super.getNextEvent();
+        }
+        // A handler runs a nested event loop, such as a modal dialog: waiting for events is not its work
+        long start = System.nanoTime();
+        busySince = 0;
+        try {
+            return super.getNextEvent();
+        } finally {
+            excludedNanos[depth - 1] += System.nanoTime() - start;
+        }
+    }
+
+    private void busy(String handler, long since) {
+        busyHandler = handler;
+        busySequence.incrementAndGet();
+        busySince = since;
+    }
+
+    private LatencyHistogram histogram(String handler) {
+        LatencyHistogram histogram = handlers.get(handler);
+        return histogram != null ? histogram : handlers.computeIfAbsent(handler, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Names the handler of an event after its source component and its type, such as "saveButton MOUSE_RELEASED".
+     */
+    private String handlerOf(AWTEvent event) {
+        String eventName = eventNames.get(event.getID());
+        if (eventName == null) {
+            String params = event.paramString();
+            int comma = params.indexOf(',');
+            eventName = comma < 0 ? params : params.substring(0, comma);
+            eventNames.put(event.getID(), eventName);
+        }
+        Object source = event.getSource();
+        if (source instanceof Component) {
+            String name = ((Component) source).getName();
+            return (name != null ? name : source.getClass().getSimpleName()) + " " + eventName;
+        }
+        return eventName;
+    }
+
+    /**
+     * @return the latency histogram of every handler that has run, by handler name
+     */
+    public Map<String, LatencyHistogram> getHandlers() {
+        return new TreeMap<>(handlers);
+    }
+
+    /**
+     * @return the number of stalls reported, counted when they start
+     */
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    /**
+     * A dispatch that ran longer than the stall threshold, and the stacks sampled while it ran.
+     */
+    private static final class Stall {
+        final String handler;
+        final long sequence;
+        final long startNanos;
+        final long startMillis;
+        long lastSeenNanos;
+        final List<StackTraceElement[]> samples = new ArrayList<>();
+
+        Stall(String handler, long sequence, long startNanos) {
+            this.handler = handler;
+            this.sequence = sequence;
+            this.startNanos = startNanos;
+            this.startMillis = System.currentTimeMillis() - (System.nanoTime() - startNanos) / 1000000;
+        }
+    }
+
+    private void watch() {
+        Stall stall = null;
+        while (true) {
+            try {
+                Thread.sleep(sampleIntervalMillis);
+            } catch (InterruptedException error) {
+                return;
+            }
+            long sequence = busySequence.get();
+            long since = busySince;
+            String handler = busyHandler;
+            Thread thread = dispatchThread;
+            long now = System.nanoTime();
+            boolean stalled = since != 0 && thread != null && now - since >= stallThresholdNanos;
+            if (stall != null && (!stalled || stall.sequence != sequence)) {
+                writeReport(stall);
+                stall = null;
+            }
+            if (stalled) {
+                boolean started = stall == null;
+                if (started) {
+                    stall = new Stall(handler, sequence, since);
+                }
+                stall.lastSeenNanos = now;
+                if (stall.samples.size() < MAX_SAMPLES) {
+                    stall.samples.add(thread.getStackTrace());
+                }
+                if (started) {
+                    writeStart(stall);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the start of the stall to the report file, with its first sampled stack.
+     */
+    private void writeStart(Stall stall) {
+        stallCount.incrementAndGet();
+        StringBuilder report = new StringBuilder(String.format("%s stall started in %s, still running after %d ms%n",
+                formatTime(stall.startMillis), stall.handler, (stall.lastSeenNanos - stall.startNanos) / 1000000));
+        StackTraceElement[] sample = stall.samples.get(0);
+        for (StackTraceElement frame : Arrays.copyOf(sample, Math.min(sample.length, MAX_FRAMES))) {
+            report.append("    at ").append(frame).append(System.lineSeparator());
+        }
+        report.append(System.lineSeparator());
+        append(report.toString());
+    }
+
+    /**
+     * Appends a report of the ended stall to the report file: how long it lasted, each distinct
+     * sampled stack with the number of samples that saw it, and the slowest handlers so far.
+     */
+    private void writeReport(Stall stall) {
+        Map<List<StackTraceElement>, Integer> stacks = new LinkedHashMap<>();
+        for (StackTraceElement[] sample : stall.samples) {
+            List<StackTraceElement> stack = Arrays.asList(Arrays.copyOf(sample, Math.min(sample.length, MAX_FRAMES)));
+            stacks.merge(stack, 1, Integer::sum);
+        }
+        List<Map.Entry<String, LatencyHistogram>> slowest = new ArrayList<>(handlers.entrySet());
+        slowest.sort((a, b) -> Long.compare(b.getValue().getMaxNanos(), a.getValue().getMaxNanos()));
+
+        StringBuilder report = new StringBuilder(String.format("%s stall of at least %d ms in %s, %d samples%n",
+                formatTime(stall.startMillis), (stall.lastSeenNanos - stall.startNanos) / 1000000, stall.handler, stall.samples.size()));
+        for (Map.Entry<List<StackTraceElement>, Integer> stack : stacks.entrySet()) {
+            report.append(String.format("  %d of %d samples:%n", stack.getValue(), stall.samples.size()));
+            for (StackTraceElement frame : stack.getKey()) {
+                report.append("    at ").append(frame).append(System.lineSeparator());
+            }
+        }
+        report.append("  slowest handlers (count, p50, p99, max ms):").append(System.lineSeparator());
+        for (Map.Entry<String, LatencyHistogram> entry : slowest.subList(0, Math.min(REPORTED_HANDLERS, slowest.size()))) {
+            LatencyHistogram latency = entry.getValue();
+            report.append(String.format("    %-40s %8d %8.1f %8.1f %8.1f%n", entry.getKey(), latency.getCount(),
+                    latency.getPercentileMillis(0.5), latency.getPercentileMillis(0.99), latency.getMaxNanos() / 1e6));
+        }
+        report.append(System.lineSeparator());
+        append(report.toString());
+    }
+
+    private static String formatTime(long millis) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(millis));
+    }
+
+    private void append(String report) {
+        try (Writer out = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            out.write(report);
+        } catch (IOException error) {
+            error.printStackTrace();
+        }
+    }
+
+    @Override
+    public void writeText(Appendable out) throws IOException {
+        out.append("# HELP ui_event_dispatch_seconds Time handlers spent on the event dispatch thread.\n");
+        out.append("# TYPE ui_event_dispatch_seconds histogram\n");
+        for (Map.Entry<String, LatencyHistogram> entry : getHandlers().entrySet()) {
+            String handler = entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"");
+            entry.getValue().writeText(out, "ui_event_dispatch_seconds", "handler=\"" + handler + "\"");
+        }
+        out.append("# HELP ui_event_dispatch_stalls_total Dispatches that ran longer than the stall threshold.\n");
+        out.append("# TYPE ui_event_dispatch_stalls_total counter\n");
+        out.append("ui_event_dispatch_stalls_total ").append(Long.toString(getStallCount())).append('\n');
+    }
+}
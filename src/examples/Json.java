@@ -0,0 +1,304 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON codec for the student server and its client.
+ *
+ * Objects are read into LinkedHashMaps, arrays into ArrayLists, numbers into Doubles, and
+ * true, false and null into Boolean and null. Maps, collections, strings, numbers, booleans and
+ * null can be written; a number that is not finite is written as null.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Writes a value as JSON.
+     *
+     * @param value the value to write
+     * @return the JSON text
+     */
+    static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(value, out);
+        return out.toString();
+    }
+
+    private static void write(Object value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String) {
+            writeString((String) value, out);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                out.append("null");
+            } else if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                out.append((long) number);
+            } else {
+                out.append(number);
+            }
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeString(String.valueOf(entry.getKey()), out);
+                out.append(':');
+                write(entry.getValue(), out);
+            }
+            out.append('}');
+        } else if (value instanceof Collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                write(element, out);
+            }
+            out.append(']');
+        } else {
+            throw new IllegalArgumentException("Cannot write " + value.getClass().getName() + " as JSON");
+        }
+    }
+
+    private static void writeString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Reads a JSON text.
+     *
+     * @param text the JSON text
+     * @return the value it holds
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    static Object parse(String text) {
+        Parser parser = new Parser(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected text after the value");
+        }
+        return value;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object readValue() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Unexpected end of text");
+            }
+            char c = text.charAt(position);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    return readLiteral("true", Boolean.TRUE);
+                case 'f':
+                    return readLiteral("false", Boolean.FALSE);
+                case 'n':
+                    return readLiteral("null", null);
+                default:
+                    return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("Expected a member name");
+                }
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    position++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+            while (true) {
+                array.add(readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    position++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String readString() {
+            position++;
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Truncated escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException invalid) {
+                            throw error("Invalid escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!text.startsWith(literal, position)) {
+                throw error("Unexpected character");
+            }
+            position += literal.length();
+            return value;
+        }
+
+        private Double readNumber() {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Unexpected character");
+            }
+            try {
+                return Double.valueOf(text.substring(start, position));
+            } catch (NumberFormatException invalid) {
+                throw error("Invalid number");
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw error("Unexpected end of text");
+            }
+            return text.charAt(position);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " of the JSON text");
+        }
+    }
+}
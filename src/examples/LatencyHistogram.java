@@ -0,0 +1,156 @@
+package examples;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed buckets from 50 microseconds to 60 seconds.
+ * Recording is a couple of atomic increments, so it can be called on every DAO call or event
+ * from any thread; the buckets are exported cumulatively, as a Prometheus histogram.
+ */
+public class LatencyHistogram {
+    /** Upper bounds of the buckets in microseconds; one more bucket counts everything above the last bound. */
+    private static final long[] BOUNDS_MICROS = {
+        50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000,
+        1000000, 2500000, 5000000, 10000000, 30000000, 60000000
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MICROS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketOf(nanos / 1000));
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Records the time elapsed since a value of {@link System#nanoTime()}.
+     *
+     * @param startNanos the value of System.nanoTime() when the measured work started
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    private static int bucketOf(long micros) {
+        int low = 0;
+        int high = BOUNDS_MICROS.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (BOUNDS_MICROS[middle] < micros) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of all recorded latencies in nanoseconds
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * @return the largest recorded latency in nanoseconds, or 0 if none was recorded
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return the mean latency in milliseconds, or 0 if none was recorded
+     */
+    public double getMeanMillis() {
+        long n = getCount();
+        return n == 0 ? 0 : getSumNanos() / 1e6 / n;
+    }
+
+    /**
+     * Estimates a percentile by interpolating linearly within the bucket that holds it.
+     * Latencies in the overflow bucket are estimated by the maximum.
+     *
+     * @param q the quantile, between 0 and 1
+     * @return the estimated latency in milliseconds, or 0 if none was recorded
+     */
+    public double getPercentileMillis(double q) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double rank = Math.max(0, Math.min(1, q)) * total;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && seen + counts[i] >= rank) {
+                if (i == BOUNDS_MICROS.length) {
+                    return getMaxNanos() / 1e6;
+                }
+                double lower = i == 0 ? 0 : BOUNDS_MICROS[i - 1];
+                double fraction = (rank - seen) / counts[i];
+                double micros = lower + (BOUNDS_MICROS[i] - lower) * fraction;
+                return Math.min(micros / 1000, getMaxNanos() / 1e6);
+            }
+            seen += counts[i];
+        }
+        return getMaxNanos() / 1e6;
+    }
+
+    /**
+     * @return the number of latencies per bucket; the last element counts the overflow bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Writes the histogram as the cumulative buckets, sum and count of a Prometheus histogram in seconds.
+     *
+     * @param out where to write the histogram
+     * @param name the name of the metric, such as studentdao_operation_seconds
+     * @param labels the labels that tell this histogram apart from others of the metric, such as operation="findStudent"
+     * @throws IOException if out cannot be written
+     */
+    public void writeText(Appendable out, String name, String labels) throws IOException {
+        long[] counts = getBucketCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String bound = i < BOUNDS_MICROS.length ? Double.toString(BOUNDS_MICROS[i] / 1e6) : "+Inf";
+            out.append(name).append("_bucket{").append(labels).append(",le=\"").append(bound).append("\"} ")
+                    .append(Long.toString(cumulative)).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ").append(Double.toString(getSumNanos() / 1e9)).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(Long.toString(cumulative)).append('\n');
+    }
+}
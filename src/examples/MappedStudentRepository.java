@@ -0,0 +1,751 @@
+package examples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An embedded student store in a memory-mapped file, for running the form or the server on one
+ * machine without a database server.
+ *
+ * Students are kept in fixed-width records of {@link #RECORD_BYTES} bytes after a small header.
+ * The NIM is packed into a long, grades and descriptions are stored as the one-byte codes of
+ * {@link StudentColumns}, and the name as up to {@link #NAME_BYTES} bytes of UTF-8; a longer name
+ * is cut, and a grade or description outside the tables of StudentColumns is stored as null.
+ * Only NIMs of 10 digits can be stored.
+ *
+ * A primitive open-addressing hash index from packed NIM to record finds a student without
+ * touching any other record, and a sorted array of the packed NIMs serves the pages in NIM order.
+ * Both are rebuilt from the file when it is opened. Queries that filter or sort on another column
+ * scan the records. Deleted records are reused by later inserts.
+ *
+ * Writes go to the mapped memory and reach the disk when the operating system writes the pages
+ * back, or at {@link #sync()} and {@link #close()}; they survive a crash of the process, not of the
+ * machine. The file is locked, so only one process can open it at a time. There is no change log:
+ * every change is made through this instance and reported to its listeners.
+ */
+public class MappedStudentRepository implements StudentRepository, Closeable {
+
+    /**
+     * The size of a student record in the file.
+     */
+    public static final int RECORD_BYTES = 256;
+
+    /**
+     * The most bytes of UTF-8 kept of a name.
+     */
+    public static final int NAME_BYTES = 192;
+
+    private static final int MAGIC = 0x53544442;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+
+    // Header fields
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_FORMAT = 4;
+    private static final int HEADER_RECORD_BYTES = 8;
+    private static final int HEADER_SLOT_COUNT = 12;
+
+    // Record fields
+    private static final int STATUS = 0;
+    private static final int GRADE = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int NAME_LENGTH = 4;
+    private static final int NIM = 8;
+    private static final int VERSION = 16;
+    private static final int SCORES = 24;
+    private static final int NAME = 64;
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+    private static final short NULL_NAME = -1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<StudentChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by lock
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private final NimIndex index = new NimIndex();
+    private long[] sortedNims = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Opens a store, creating the file if it does not exist.
+     *
+     * @param file the file of the store
+     * @throws IOException if the file cannot be opened, is locked by another process or is not a student store
+     */
+    public MappedStudentRepository(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            try {
+                fileLock = channel.tryLock();
+            } catch (OverlappingFileLockException error) {
+                throw new IOException("The student store " + file + " is already open", error);
+            }
+            if (fileLock == null) {
+                throw new IOException("The student store " + file + " is open in another process");
+            }
+            open();
+        } catch (IOException | RuntimeException error) {
+            channel.close();
+            throw error;
+        }
+    }
+
+    private void open() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize == 0) {
+            map(INITIAL_CAPACITY);
+            buffer.putInt(HEADER_MAGIC, MAGIC);
+            buffer.putInt(HEADER_FORMAT, FORMAT_VERSION);
+            buffer.putInt(HEADER_RECORD_BYTES, RECORD_BYTES);
+            buffer.putInt(HEADER_SLOT_COUNT, 0);
+            return;
+        }
+        map((int) Math.max(INITIAL_CAPACITY, Math.min(MAX_CAPACITY, (fileSize - HEADER_BYTES) / RECORD_BYTES)));
+        if (buffer.getInt(HEADER_MAGIC) != MAGIC || buffer.getInt(HEADER_FORMAT) != FORMAT_VERSION
+                || buffer.getInt(HEADER_RECORD_BYTES) != RECORD_BYTES) {
+            throw new IOException(file + " is not a student store");
+        }
+        slotCount = buffer.getInt(HEADER_SLOT_COUNT);
+        if (slotCount < 0 || slotCount > capacity) {
+            throw new IOException("The student store " + file + " is damaged");
+        }
+        for (int slot = slotCount - 1; slot >= 0; slot--) {
+            int offset = offsetOf(slot);
+            if (buffer.get(offset + STATUS) == LIVE) {
+                long nim = buffer.getLong(offset + NIM);
+                index.put(nim, slot);
+                appendSorted(nim);
+            } else {
+                pushFree(slot);
+            }
+        }
+        Arrays.sort(sortedNims, 0, size);
+    }
+
+    private void map(int newCapacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) newCapacity * RECORD_BYTES);
+        capacity = newCapacity;
+    }
+
+    private static int offsetOf(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+
+    @Override
+    public void addChangeListener(StudentChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(StudentChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void fireChange(StudentChangeEvent.Type type, String nim, Student student) {
+        StudentChangeEvent event = new StudentChangeEvent(type, nim, student);
+        for (StudentChangeListener listener : changeListeners) {
+            listener.studentChanged(event);
+        }
+    }
+
+    /**
+     * Packs a NIM, or returns -1 for a NIM that cannot be stored.
+     */
+    private static long keyOf(String nim) {
+        try {
+            return StudentColumns.packNim(nim);
+        } catch (IllegalArgumentException error) {
+            return -1;
+        }
+    }
+
+    private String readName(int offset) {
+        short nameLength = buffer.getShort(offset + NAME_LENGTH);
+        if (nameLength == NULL_NAME) {
+            return null;
+        }
+        byte[] bytes = new byte[nameLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + NAME);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Student read(int slot) {
+        int offset = offsetOf(slot);
+        String name = readName(offset);
+        byte grade = buffer.get(offset + GRADE);
+        byte description = buffer.get(offset + DESCRIPTION);
+        return new Student(StudentColumns.unpackNim(buffer.getLong(offset + NIM)), name,
+                buffer.getDouble(offset + SCORES), buffer.getDouble(offset + SCORES + 8), buffer.getDouble(offset + SCORES + 16),
+                buffer.getDouble(offset + SCORES + 24), buffer.getDouble(offset + SCORES + 32),
+                grade == StudentColumns.UNKNOWN_CODE ? null : StudentColumns.GRADES[grade],
+                description == StudentColumns.UNKNOWN_CODE ? null : StudentColumns.DESCRIPTIONS[description],
+                buffer.getLong(offset + VERSION));
+    }
+
+    /**
+     * Writes the fields of a student into a slot. The status is written last, so a new record
+     * only counts once it is complete.
+     */
+    private void write(int slot, long nim, Student student, long version) {
+        int offset = offsetOf(slot);
+        buffer.putLong(offset + NIM, nim);
+        buffer.putLong(offset + VERSION, version);
+        buffer.putDouble(offset + SCORES, student.getScoreTugas());
+        buffer.putDouble(offset + SCORES + 8, student.getScoreQuiz());
+        buffer.putDouble(offset + SCORES + 16, student.getScoreUTS());
+        buffer.putDouble(offset + SCORES + 24, student.getScoreUAS());
+        buffer.putDouble(offset + SCORES + 32, student.getAverage());
+        buffer.put(offset + GRADE, StudentColumns.gradeCode(student.getGrade()));
+        buffer.put(offset + DESCRIPTION, StudentColumns.descriptionCode(student.getDescription()));
+        if (student.getName() == null) {
+            buffer.putShort(offset + NAME_LENGTH, NULL_NAME);
+        } else {
+            byte[] name = encodeName(student.getName());
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset + NAME);
+            view.put(name);
+            buffer.putShort(offset + NAME_LENGTH, (short) name.length);
+        }
+        buffer.put(offset + STATUS, LIVE);
+    }
+
+    /**
+     * Encodes a name as UTF-8, cut at a character boundary to at most {@link #NAME_BYTES} bytes.
+     */
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= NAME_BYTES) {
+            return bytes;
+        }
+        int length = NAME_BYTES;
+        while ((bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private int allocate() throws IOException {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == capacity) {
+            if (capacity == MAX_CAPACITY) {
+                throw new IOException("The student store " + file + " is full");
+            }
+            map((int) Math.min(MAX_CAPACITY, capacity * 2L));
+        }
+        int slot = slotCount++;
+        buffer.putInt(HEADER_SLOT_COUNT, slotCount);
+        return slot;
+    }
+
+    private void pushFree(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void appendSorted(long nim) {
+        if (size == sortedNims.length) {
+            sortedNims = Arrays.copyOf(sortedNims, size * 2);
+        }
+        sortedNims[size++] = nim;
+    }
+
+    private void insertSorted(long nim) {
+        int position = -Arrays.binarySearch(sortedNims, 0, size, nim) - 1;
+        if (size == sortedNims.length) {
+            sortedNims = Arrays.copyOf(sortedNims, size * 2);
+        }
+        System.arraycopy(sortedNims, position, sortedNims, position + 1, size - position);
+        sortedNims[position] = nim;
+        size++;
+    }
+
+    private void removeSorted(long nim) {
+        int position = Arrays.binarySearch(sortedNims, 0, size, nim);
+        System.arraycopy(sortedNims, position + 1, sortedNims, position, size - position - 1);
+        size--;
+    }
+
+    /**
+     * @return the position in NIM order of the first student after afterNim
+     */
+    private int positionAfter(String afterNim) {
+        if (afterNim == null) {
+            return 0;
+        }
+        long key = keyOf(afterNim);
+        if (key >= 0) {
+            int position = Arrays.binarySearch(sortedNims, 0, size, key);
+            return position >= 0 ? position + 1 : -position - 1;
+        }
+        // Every stored NIM has 10 digits, so their numeric order is also their text order
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (StudentColumns.unpackNim(sortedNims[middle]).compareTo(afterNim) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private List<Student> readSorted(int from, int limit) {
+        int to = (int) Math.min(size, (long) from + Math.max(0, limit));
+        List<Student> students = new ArrayList<>(Math.max(0, to - from));
+        for (int position = from; position < to; position++) {
+            students.add(read(index.get(sortedNims[position])));
+        }
+        return students;
+    }
+
+    /**
+     * Reads the students a query keeps, in the order of the query.
+     */
+    private List<Student> readQuery(StudentQuery studentQuery) {
+        List<Student> students = new ArrayList<>();
+        for (int position = 0; position < size; position++) {
+            Student student = read(index.get(sortedNims[position]));
+            if (studentQuery.matches(student)) {
+                students.add(student);
+            }
+        }
+        students.sort(comparator(studentQuery));
+        return students;
+    }
+
+    /**
+     * Orders students as the database orders the query: by its sort column, nulls first, then by NIM.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Student> comparator(StudentQuery studentQuery) {
+        StudentQuery.SortColumn sortColumn = studentQuery.getSortColumn();
+        Comparator<Comparable> values = Comparator.nullsFirst(Comparator.<Comparable>naturalOrder());
+        Comparator<Student> order = (a, b) -> values.compare((Comparable) sortColumn.valueOf(a), (Comparable) sortColumn.valueOf(b));
+        order = order.thenComparing(Student::getNim);
+        return studentQuery.isDescending() ? order.reversed() : order;
+    }
+
+    @Override
+    public Student findStudent(String nim) {
+        long key = keyOf(nim);
+        lock.readLock().lock();
+        try {
+            int slot = key < 0 ? -1 : index.get(key);
+            return slot < 0 ? null : read(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Student> findStudents(Collection<String> nims) {
+        long[] keys = new long[nims.size()];
+        int count = 0;
+        for (String nim : nims) {
+            long key = keyOf(nim);
+            if (key >= 0) {
+                keys[count++] = key;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        List<Student> students = new ArrayList<>(count);
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                int slot = index.get(keys[i]);
+                if (slot >= 0 && (i == 0 || keys[i] != keys[i - 1])) {
+                    students.add(read(slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return students;
+    }
+
+    @Override
+    public int countStudents() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int countStudents(StudentQuery studentQuery) {
+        lock.readLock().lock();
+        try {
+            if (studentQuery.isAll()) {
+                return size;
+            }
+            int count = 0;
+            for (int position = 0; position < size; position++) {
+                if (studentQuery.matches(read(index.get(sortedNims[position])))) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Student> getStudentsAfter(String afterNim, int limit) {
+        lock.readLock().lock();
+        try {
+            return readSorted(positionAfter(afterNim), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Student> getStudentPage(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return readSorted(Math.max(0, offset), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Student> queryStudents(StudentQuery studentQuery, Student after, int limit) {
+        if (studentQuery.isAll()) {
+            return getStudentsAfter(after == null ? null : after.getNim(), limit);
+        }
+        List<Student> students;
+        lock.readLock().lock();
+        try {
+            students = readQuery(studentQuery);
+        } finally {
+            lock.readLock().unlock();
+        }
+        int from = 0;
+        if (after != null) {
+            Comparator<Student> order = comparator(studentQuery);
+            while (from < students.size() && order.compare(students.get(from), after) <= 0) {
+                from++;
+            }
+        }
+        return new ArrayList<>(students.subList(from, Math.min(students.size(), from + limit)));
+    }
+
+    @Override
+    public List<Student> queryStudentPage(StudentQuery studentQuery, int offset, int limit) {
+        if (studentQuery.isAll()) {
+            return getStudentPage(offset, limit);
+        }
+        List<Student> students;
+        lock.readLock().lock();
+        try {
+            students = readQuery(studentQuery);
+        } finally {
+            lock.readLock().unlock();
+        }
+        int from = Math.min(students.size(), Math.max(0, offset));
+        return new ArrayList<>(students.subList(from, Math.min(students.size(), from + limit)));
+    }
+
+    @Override
+    public String readStudentsAfter(StudentColumns columns, String afterNim, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = positionAfter(afterNim);
+            int to = (int) Math.min(size, (long) from + Math.max(0, limit));
+            readColumns(columns, from, to);
+            return to > from ? StudentColumns.unpackNim(sortedNims[to - 1]) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the students at positions from to to - 1 in NIM order to the columnar store,
+     * straight from the records.
+     */
+    private void readColumns(StudentColumns columns, int from, int to) {
+        for (int position = from; position < to; position++) {
+            int offset = offsetOf(index.get(sortedNims[position]));
+            columns.add(sortedNims[position], readName(offset), buffer.getDouble(offset + SCORES), buffer.getDouble(offset + SCORES + 8),
+                    buffer.getDouble(offset + SCORES + 16), buffer.getDouble(offset + SCORES + 24), buffer.getDouble(offset + SCORES + 32),
+                    buffer.get(offset + GRADE), buffer.get(offset + DESCRIPTION));
+        }
+    }
+
+    @Override
+    public void upsertStudent(Student student) {
+        long key = keyOf(student.getNim());
+        if (key < 0) {
+            new IllegalArgumentException("Only NIMs of 10 digits can be stored: " + student.getNim()).printStackTrace();
+            return;
+        }
+        Student saved;
+        boolean inserted;
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(key);
+            inserted = slot < 0;
+            long version = 1;
+            if (inserted) {
+                slot = allocate();
+                index.put(key, slot);
+                insertSorted(key);
+            } else {
+                version = buffer.getLong(offsetOf(slot) + VERSION) + 1;
+            }
+            write(slot, key, student, version);
+            saved = student.withVersion(version);
+        } catch (IOException error) {
+            error.printStackTrace();
+            return;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChange(inserted ? StudentChangeEvent.Type.INSERTED : StudentChangeEvent.Type.UPDATED, student.getNim(), saved);
+    }
+
+    @Override
+    public SaveResult saveStudent(Student student) {
+        long key = keyOf(student.getNim());
+        if (key < 0) {
+            new IllegalArgumentException("Only NIMs of 10 digits can be stored: " + student.getNim()).printStackTrace();
+            return new SaveResult(SaveResult.Status.FAILED, null, null);
+        }
+        Student saved;
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(key);
+            if (student.getVersion() == 0) {
+                if (slot >= 0) {
+                    return new SaveResult(SaveResult.Status.CONFLICT, null, read(slot));
+                }
+                slot = allocate();
+                index.put(key, slot);
+                insertSorted(key);
+            } else if (slot < 0) {
+                return new SaveResult(SaveResult.Status.NOT_FOUND, null, null);
+            } else if (buffer.getLong(offsetOf(slot) + VERSION) != student.getVersion()) {
+                return new SaveResult(SaveResult.Status.CONFLICT, null, read(slot));
+            }
+            saved = student.withVersion(student.getVersion() + 1);
+            write(slot, key, student, saved.getVersion());
+        } catch (IOException error) {
+            error.printStackTrace();
+            return new SaveResult(SaveResult.Status.FAILED, null, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChange(student.getVersion() == 0 ? StudentChangeEvent.Type.INSERTED : StudentChangeEvent.Type.UPDATED, student.getNim(), saved);
+        return new SaveResult(SaveResult.Status.SAVED, saved, null);
+    }
+
+    @Override
+    public void deleteStudent(String nim) {
+        long key = keyOf(nim);
+        lock.writeLock().lock();
+        try {
+            int slot = key < 0 ? -1 : index.remove(key);
+            if (slot < 0) {
+                return;
+            }
+            buffer.put(offsetOf(slot) + STATUS, FREE);
+            removeSorted(key);
+            pushFree(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChange(StudentChangeEvent.Type.DELETED, nim, null);
+    }
+
+    /**
+     * There is no change log; every change is reported to the listeners of this instance.
+     *
+     * @return an empty list
+     */
+    @Override
+    public List<StudentChange> getChangesSince(long sequence, int limit) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * There is no change log; every change is reported to the listeners of this instance.
+     *
+     * @return 0
+     */
+    @Override
+    public long getLastChangeSequence() {
+        return 0;
+    }
+
+    @Override
+    public CohortStatistics getStatistics() {
+        StudentColumns students;
+        lock.readLock().lock();
+        try {
+            students = new StudentColumns(size);
+            readColumns(students, 0, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return CohortStatistics.compute(students, GradingEngine.DEFAULT);
+    }
+
+    /**
+     * Writes the changed pages of the file to the disk.
+     */
+    public void sync() {
+        lock.readLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the changed pages to the disk and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+            fileLock.release();
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A hash index from packed NIM to record slot, kept in two primitive arrays with open
+     * addressing and linear probing. Removal shifts the following entries back, so there are no
+     * tombstones and a lookup stops at the first empty entry.
+     */
+    private static final class NimIndex {
+        private static final long EMPTY = -1;
+
+        private long[] keys;
+        private int[] slots;
+        private int mask;
+        private int count;
+
+        NimIndex() {
+            allocate(INITIAL_CAPACITY * 2);
+        }
+
+        private void allocate(int tableSize) {
+            keys = new long[tableSize];
+            slots = new int[tableSize];
+            Arrays.fill(keys, EMPTY);
+            mask = tableSize - 1;
+        }
+
+        private int home(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        int get(long key) {
+            for (int i = home(key); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return slots[i];
+                }
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long key, int slot) {
+            if ((count + 1) * 2 > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldSlots = slots;
+                allocate(keys.length * 2);
+                count = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != EMPTY) {
+                        put(oldKeys[i], oldSlots[i]);
+                    }
+                }
+            }
+            int i = home(key);
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                count++;
+            }
+            keys[i] = key;
+            slots[i] = slot;
+        }
+
+        /**
+         * @return the slot of the removed key, or -1 if it was not in the index
+         */
+        int remove(long key) {
+            int i = home(key);
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+                i = (i + 1) & mask;
+            }
+            int slot = slots[i];
+            // Move back every following entry whose home is not between the hole and itself
+            int hole = i;
+            for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = home(keys[j]);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    slots[hole] = slots[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = EMPTY;
+            count--;
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package examples;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Serves {@link DatabaseMetrics}, and any other {@link MetricsSource} added, as plain text at /metrics,
+ * for a Prometheus-style scraper.
+ * The server only listens on the loopback address, so the metrics are not visible to other hosts.
+ */
+public class MetricsServer {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final List<MetricsSource> sources = new CopyOnWriteArrayList<>();
+    private final HttpServer server;
+
+    /**
+     * Creates a server for the metrics on a local port. Call {@link #start()} to start serving.
+     *
+     * @param metrics the metrics to serve
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public MetricsServer(DatabaseMetrics metrics, int port) throws IOException {
+        sources.add(metrics);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder text = new StringBuilder(4096);
+            for (MetricsSource source : sources) {
+                source.writeText(text);
+            }
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Adds metrics to serve after the ones already served.
+     *
+     * @param source the metrics to add
+     */
+    public void addSource(MetricsSource source) {
+        sources.add(source);
+    }
+
+    /**
+     * Starts serving the metrics on a background thread.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, waiting at most a second for scrapes in progress.
+     */
+    public void stop() {
+        server.stop(1);
+    }
+}
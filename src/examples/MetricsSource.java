@@ -0,0 +1,17 @@
+package examples;
+
+import java.io.IOException;
+
+/**
+ * Something whose metrics {@link MetricsServer} can serve.
+ */
+public interface MetricsSource {
+
+    /**
+     * Writes the metrics in the Prometheus text exposition format.
+     *
+     * @param out where to write the metrics
+     * @throws IOException if out cannot be written
+     */
+    void writeText(Appendable out) throws IOException;
+}
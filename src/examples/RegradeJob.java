@@ -0,0 +1,277 @@
+package examples;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Recomputes the average, grade and description of every student with a grading engine and
+ * writes back the rows whose stored values differ, for example after the grade thresholds changed.
+ *
+ * The table is read in NIM order, one chunk at a time, into a columnar store. Each chunk is
+ * graded in parallel on a fork/join pool and its changed rows are written in batched
+ * transactions. After every chunk the last NIM is saved to a checkpoint file, so a run that is
+ * interrupted resumes after the last finished chunk. The checkpoint is deleted when the run completes.
+ * A lost connection, a deadlock or another transient error stops the run with the checkpoint still
+ * before the chunk, so a resumed run writes it again. A row the database refuses for good, such as a
+ * value or constraint error, is skipped and counted instead, as it would stop every resume.
+ */
+public class RegradeJob {
+    private static final int SPLIT_THRESHOLD = 4096;
+
+    private final StudentDAO studentDAO;
+    private final GradingEngine gradingEngine;
+    private final Path checkpointFile;
+    private final int chunkSize;
+    private final ForkJoinPool forkJoinPool;
+
+    private long rowsRead;
+    private long rowsChanged;
+    private long rowsFailed;
+    private long rowsRejected;
+    private long elapsedNanos;
+
+    /**
+     * Constructs a new RegradeJob running on the common fork/join pool.
+     *
+     * @param studentDAO the DAO to read and write students with
+     * @param gradingEngine the grading to apply
+     * @param checkpointFile the file recording the progress of the run
+     * @param chunkSize the number of students read and written per chunk
+     */
+    public RegradeJob(StudentDAO studentDAO, GradingEngine gradingEngine, Path checkpointFile, int chunkSize) {
+        this(studentDAO, gradingEngine, checkpointFile, chunkSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new RegradeJob.
+     *
+     * @param studentDAO the DAO to read and write students with
+     * @param gradingEngine the grading to apply
+     * @param checkpointFile the file recording the progress of the run
+     * @param chunkSize the number of students read and written per chunk
+     * @param forkJoinPool the pool grading the chunks
+     */
+    public RegradeJob(StudentDAO studentDAO, GradingEngine gradingEngine, Path checkpointFile, int chunkSize, ForkJoinPool forkJoinPool) {
+        this.studentDAO = studentDAO;
+        this.gradingEngine = gradingEngine;
+        this.checkpointFile = checkpointFile;
+        this.chunkSize = chunkSize;
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Runs the job, resuming from the checkpoint file if it exists.
+     *
+     * @throws IOException if the checkpoint cannot be read or written
+     * @throws SQLException if the students cannot be read, or a row of a chunk failed with a transient
+     *         error; the checkpoint then stays before that chunk
+     */
+    public void run() throws IOException, SQLException {
+        Properties checkpoint = readCheckpoint();
+        String lastNim = checkpoint.getProperty("lastNim");
+        rowsRead = Long.parseLong(checkpoint.getProperty("rowsRead", "0"));
+        rowsChanged = Long.parseLong(checkpoint.getProperty("rowsChanged", "0"));
+        rowsFailed = Long.parseLong(checkpoint.getProperty("rowsFailed", "0"));
+        rowsRejected = Long.parseLong(checkpoint.getProperty("rowsRejected", "0"));
+        if (lastNim != null) {
+            System.out.println("Resuming regrade after NIM " + lastNim + " (" + rowsRead + " rows already done)");
+        }
+
+        StudentColumns columns = new StudentColumns(chunkSize);
+        double[] oldAverage = new double[chunkSize];
+        byte[] oldGrades = new byte[chunkSize];
+        byte[] oldDescriptions = new byte[chunkSize];
+        boolean[] changed = new boolean[chunkSize];
+        long start = System.nanoTime();
+        long rowsAtStart = rowsRead;
+
+        while (true) {
+            columns.clear();
+            String chunkEnd = studentDAO.readStudentsAfter(columns, lastNim, chunkSize);
+            if (chunkEnd == null) {
+                break;
+            }
+            int size = columns.size();
+            System.arraycopy(columns.getAverage(), 0, oldAverage, 0, size);
+            System.arraycopy(columns.getGradeCodes(), 0, oldGrades, 0, size);
+            System.arraycopy(columns.getDescriptionCodes(), 0, oldDescriptions, 0, size);
+            forkJoinPool.invoke(new RegradeTask(columns, oldAverage, oldGrades, oldDescriptions, changed, 0, size));
+
+            List<Student> changedStudents = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (changed[i]) {
+                    changedStudents.add(columns.get(i));
+                }
+            }
+            if (!changedStudents.isEmpty()) {
+                BatchResult result = studentDAO.regradeStudents(changedStudents);
+                int rejected = 0;
+                for (BatchResult.Failure failure : result.getFailures()) {
+                    // A lost connection or a deadlock stops the run before the checkpoint moves past the
+                    // chunk, so a resumed run writes it again. Any other failure would fail the same way
+                    // on every resume and is skipped: a row edited during the run matches no row
+                    if (failure.isRejected()) {
+                        System.err.println("Skipping the regrade of " + failure.getNim() + ": " + failure.getMessage());
+                        rejected++;
+                    } else if (failure.isTransient()) {
+                        elapsedNanos = System.nanoTime() - start;
+                        throw new SQLException("Regrade stopped after NIM " + (lastNim == null ? "(start)" : lastNim) + ": " + failure.getMessage(),
+                                failure.getSQLState(), failure.getErrorCode());
+                    } else if (failure.getSQLState() != null) {
+                        System.err.println("Skipping the regrade of " + failure.getNim() + ": " + failure.getMessage());
+                    }
+                }
+                rowsChanged += result.getSuccessCount();
+                rowsRejected += rejected;
+                rowsFailed += result.getFailures().size() - rejected;
+            }
+            rowsRead += size;
+            lastNim = chunkEnd;
+            writeCheckpoint(lastNim);
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Regraded %d rows (%d changed), %.0f rows/s%n", rowsRead, rowsChanged, (rowsRead - rowsAtStart) / Math.max(seconds, 1e-9));
+            if (size < chunkSize) {
+                break;
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    /**
+     * @return the number of students read, including those done before a resume
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * @return the number of students whose derived columns were rewritten
+     */
+    public long getRowsChanged() {
+        return rowsChanged;
+    }
+
+    /**
+     * @return the number of changed students left as they were, mostly because they were edited during
+     *         the run, not counting rejected ones
+     */
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    /**
+     * @return the number of changed students the database refused to write, such as a value that
+     *         does not fit its column
+     */
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * @return the wall-clock time of the last run, in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    private Properties readCheckpoint() throws IOException {
+        Properties checkpoint = new Properties();
+        if (Files.exists(checkpointFile)) {
+            try (InputStream in = Files.newInputStream(checkpointFile)) {
+                checkpoint.load(in);
+            }
+        }
+        return checkpoint;
+    }
+
+    private void writeCheckpoint(String lastNim) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("lastNim", lastNim);
+        checkpoint.setProperty("rowsRead", Long.toString(rowsRead));
+        checkpoint.setProperty("rowsChanged", Long.toString(rowsChanged));
+        checkpoint.setProperty("rowsFailed", Long.toString(rowsFailed));
+        checkpoint.setProperty("rowsRejected", Long.toString(rowsRejected));
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            checkpoint.store(out, "Regrade progress");
+        }
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Grades a range of a chunk and marks the students whose derived columns changed.
+     */
+    private final class RegradeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient StudentColumns columns;
+        private final double[] oldAverage;
+        private final byte[] oldGrades;
+        private final byte[] oldDescriptions;
+        private final boolean[] changed;
+        private final int from;
+        private final int to;
+
+        RegradeTask(StudentColumns columns, double[] oldAverage, byte[] oldGrades, byte[] oldDescriptions, boolean[] changed, int from, int to) {
+            this.columns = columns;
+            this.oldAverage = oldAverage;
+            this.oldGrades = oldGrades;
+            this.oldDescriptions = oldDescriptions;
+            this.changed = changed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RegradeTask(columns, oldAverage, oldGrades, oldDescriptions, changed, from, middle),
+                        new RegradeTask(columns, oldAverage, oldGrades, oldDescriptions, changed, middle, to));
+                return;
+            }
+            gradingEngine.evaluate(columns, from, to);
+            double[] average = columns.getAverage();
+            byte[] grades = columns.getGradeCodes();
+            byte[] descriptions = columns.getDescriptionCodes();
+            for (int i = from; i < to; i++) {
+                changed[i] = Double.compare(average[i], oldAverage[i]) != 0 || grades[i] != oldGrades[i] || descriptions[i] != oldDescriptions[i];
+            }
+        }
+    }
+
+    /**
+     * Regrades the students table with the default grading engine.
+     *
+     * @param args optionally the checkpoint file and the chunk size
+     * @throws Exception if the run fails
+     */
+    public static void main(String[] args) throws Exception {
+        Path checkpointFile = Paths.get(args.length > 0 ? args[0] : "regrade.checkpoint");
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        DatabaseConnection dbConnection = new DatabaseConnection();
+        dbConnection.connectPooled(1, Runtime.getRuntime().availableProcessors());
+        try {
+            RegradeJob job = new RegradeJob(new StudentDAO(dbConnection.getPool()), GradingEngine.DEFAULT, checkpointFile, chunkSize);
+            job.run();
+            System.out.printf("Done: %d rows read, %d changed, %d failed, %d rejected in %d ms%n", job.getRowsRead(), job.getRowsChanged(),
+                    job.getRowsFailed(), job.getRowsRejected(), job.getElapsedMillis());
+        } finally {
+            dbConnection.close();
+        }
+    }
+}
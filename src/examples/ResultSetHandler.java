@@ -0,0 +1,22 @@
+package examples;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the rows of a ResultSet that is closed as soon as the handler returns.
+ *
+ * @param <T> the type produced from the rows
+ */
+@FunctionalInterface
+public interface ResultSetHandler<T> {
+
+    /**
+     * Reads the rows of the result set.
+     *
+     * @param resultSet the result set, positioned before the first row
+     * @return the value produced from the rows
+     * @throws SQLException if the rows cannot be read
+     */
+    T handle(ResultSet resultSet) throws SQLException;
+}
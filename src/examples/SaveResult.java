@@ -0,0 +1,71 @@
+package examples;
+
+/**
+ * The outcome of a conditional save with {@link StudentRepository#saveStudent(Student)}.
+ */
+public class SaveResult {
+
+    /**
+     * Whether the student was saved, and why not.
+     */
+    public enum Status {
+        /** The student was written; {@link #getStudent()} holds its new version. */
+        SAVED,
+        /** The row was written by someone else since it was read; {@link #getCurrent()} holds it as it is now. */
+        CONFLICT,
+        /** The row was deleted since it was read. */
+        NOT_FOUND,
+        /** The statement failed. */
+        FAILED
+    }
+
+    private final Status status;
+    private final Student student;
+    private final Student current;
+
+    /**
+     * Constructs a new SaveResult.
+     *
+     * @param status whether the student was saved
+     * @param student the student as saved, or null if it was not saved
+     * @param current the student as it is in the database after a conflict, or null
+     */
+    public SaveResult(Status status, Student student, Student current) {
+        this.status = status;
+        this.student = student;
+        this.current = current;
+    }
+
+    /**
+     * @return whether the student was saved, and why not
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if the student was saved
+     */
+    public boolean isSaved() {
+        return status == Status.SAVED;
+    }
+
+    /**
+     * @return the student as saved, with its new row version, or null if it was not saved
+     */
+    public Student getStudent() {
+        return student;
+    }
+
+    /**
+     * @return the student as it is in the database after a conflict, or null
+     */
+    public Student getCurrent() {
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return status + (current != null ? " " + current + " v" + current.getVersion() : "");
+    }
+}
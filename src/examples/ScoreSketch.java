@@ -0,0 +1,116 @@
+package examples;
+
+/**
+ * A mergeable quantile sketch for scores between 0 and 100.
+ *
+ * Scores are counted in fixed bins of 0.01, so a quantile is exact to the bin width whatever the
+ * number of scores, the sketch takes a constant 80 KB, and two sketches are merged by adding their
+ * bins. Scores outside the range are counted in the first or last bin.
+ */
+public class ScoreSketch {
+    private static final double MIN_SCORE = 0;
+    private static final double MAX_SCORE = 100;
+    private static final int BINS_PER_POINT = 100;
+    private static final int BIN_COUNT = (int) ((MAX_SCORE - MIN_SCORE) * BINS_PER_POINT) + 1;
+
+    private final long[] bins = new long[BIN_COUNT];
+    private long count;
+
+    /**
+     * Adds a score.
+     *
+     * @param score the score
+     */
+    public void add(double score) {
+        if (score != score) {
+            return;
+        }
+        int bin = (int) Math.round((score - MIN_SCORE) * BINS_PER_POINT);
+        bins[Math.max(0, Math.min(BIN_COUNT - 1, bin))]++;
+        count++;
+    }
+
+    /**
+     * Adds the scores from index from (inclusive) to to (exclusive).
+     *
+     * @param scores the scores
+     * @param from the first index to add
+     * @param to the index after the last one to add
+     */
+    public void addAll(double[] scores, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(scores[i]);
+        }
+    }
+
+    /**
+     * Adds the counts of another sketch to this one.
+     *
+     * @param other the sketch to merge
+     */
+    public void merge(ScoreSketch other) {
+        for (int i = 0; i < BIN_COUNT; i++) {
+            bins[i] += other.bins[i];
+        }
+        count += other.count;
+    }
+
+    /**
+     * Returns the bins that hold scores, as pairs of a bin index and its count, for sending the sketch elsewhere.
+     */
+    long[] toSparseBins() {
+        int used = 0;
+        for (long bin : bins) {
+            if (bin != 0) {
+                used++;
+            }
+        }
+        long[] pairs = new long[used * 2];
+        int next = 0;
+        for (int i = 0; i < BIN_COUNT; i++) {
+            if (bins[i] != 0) {
+                pairs[next++] = i;
+                pairs[next++] = bins[i];
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Adds the counts of bins returned by {@link #toSparseBins()} to this sketch.
+     */
+    void addSparseBins(long[] pairs) {
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            bins[(int) Math.max(0, Math.min(BIN_COUNT - 1, pairs[i]))] += pairs[i + 1];
+            count += pairs[i + 1];
+        }
+    }
+
+    /**
+     * @return the number of scores added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the score below which the fraction q of the scores fall.
+     *
+     * @param q the fraction, between 0 and 1
+     * @return the quantile, or NaN if the sketch is empty
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < BIN_COUNT; i++) {
+            seen += bins[i];
+            if (seen >= rank) {
+                return MIN_SCORE + (double) i / BINS_PER_POINT;
+            }
+        }
+        return MAX_SCORE;
+    }
+}
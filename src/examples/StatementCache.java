@@ -0,0 +1,62 @@
+package examples;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of prepared statements for one connection, keyed by SQL.
+ * Statements pushed out of the cache are closed.
+ *
+ * A cache must only be used by the thread that currently owns its connection.
+ */
+public class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    /**
+     * Constructs a new StatementCache holding up to capacity statements.
+     *
+     * @param capacity the maximum number of cached statements
+     */
+    public StatementCache(int capacity) {
+        super(16, 0.75f, true);
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the maximum number of cached statements
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        if (size() <= capacity) {
+            return false;
+        }
+        close(eldest.getValue());
+        return true;
+    }
+
+    /**
+     * Closes every cached statement and empties the cache.
+     */
+    public void closeAll() {
+        for (PreparedStatement statement : values()) {
+            close(statement);
+        }
+        clear();
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException error) {
+            error.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package examples;
+
+import java.awt.BorderLayout;
+import java.awt.GridLayout;
+import java.util.Map;
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * Shows the statistics of the students table: a summary line, a table with the mean, standard
+ * deviation, range and percentiles of every score component, a table with the letter grade
+ * histogram of every component, and the number of students per stored grade.
+ */
+public class StatisticsPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    private static final double[] PERCENTILES = {0.25, 0.5, 0.75, 0.9};
+
+    /**
+     * Constructs a new StatisticsPanel showing the statistics.
+     *
+     * @param statistics the statistics to show
+     */
+    public StatisticsPanel(CohortStatistics statistics) {
+        super(new BorderLayout(0, 8));
+        setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+
+        add(new JLabel(String.format("Jumlah mahasiswa: %d    Lulus: %.1f%%", statistics.getCount(), statistics.getPassRate() * 100)), BorderLayout.NORTH);
+
+        JPanel tables = new JPanel(new GridLayout(3, 1, 0, 8));
+        tables.add(new JScrollPane(new JTable(summaryModel(statistics))));
+        tables.add(new JScrollPane(new JTable(letterModel(statistics))));
+        tables.add(new JScrollPane(new JTable(gradeModel(statistics))));
+        add(tables, BorderLayout.CENTER);
+    }
+
+    private static DefaultTableModel summaryModel(CohortStatistics statistics) {
+        DefaultTableModel model = newModel("Nilai", "Rerata", "Simpangan Baku", "Min", "P25", "Median", "P75", "P90", "Maks");
+        for (int component = 0; component < CohortStatistics.COMPONENTS.length; component++) {
+            Object[] row = new Object[9];
+            row[0] = CohortStatistics.COMPONENTS[component];
+            row[1] = format(statistics.getMean(component));
+            row[2] = format(statistics.getStandardDeviation(component));
+            row[3] = format(statistics.getMin(component));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                row[4 + i] = format(statistics.getPercentile(component, PERCENTILES[i]));
+            }
+            row[8] = format(statistics.getMax(component));
+            model.addRow(row);
+        }
+        return model;
+    }
+
+    private static DefaultTableModel letterModel(CohortStatistics statistics) {
+        Object[] columns = new Object[CohortStatistics.LETTERS.length + 1];
+        columns[0] = "Nilai";
+        System.arraycopy(CohortStatistics.LETTERS, 0, columns, 1, CohortStatistics.LETTERS.length);
+        DefaultTableModel model = newModel(columns);
+        for (int component = 0; component < CohortStatistics.COMPONENTS.length; component++) {
+            long[] counts = statistics.getLetterCounts(component);
+            Object[] row = new Object[columns.length];
+            row[0] = CohortStatistics.COMPONENTS[component];
+            for (int letter = 0; letter < counts.length; letter++) {
+                row[letter + 1] = counts[letter];
+            }
+            model.addRow(row);
+        }
+        return model;
+    }
+
+    private static DefaultTableModel gradeModel(CohortStatistics statistics) {
+        DefaultTableModel model = newModel("Grade", "Jumlah");
+        for (Map.Entry<String, Long> entry : statistics.getGradeCounts().entrySet()) {
+            model.addRow(new Object[] {entry.getKey(), entry.getValue()});
+        }
+        return model;
+    }
+
+    private static DefaultTableModel newModel(Object... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format("%.2f", value);
+    }
+}
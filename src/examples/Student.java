@@ -0,0 +1,147 @@
+package examples;
+
+/**
+ * A student row of the students table.
+ */
+public class Student {
+    private final String nim;
+    private final String name;
+    private final double scoreTugas;
+    private final double scoreQuiz;
+    private final double scoreUTS;
+    private final double scoreUAS;
+    private final double average;
+    private final String grade;
+    private final String description;
+    private final long version;
+
+    /**
+     * Constructs a new Student.
+     *
+     * @param nim the NIM of the student
+     * @param name the name of the student
+     * @param scoreTugas the task score of the student
+     * @param scoreQuiz the quiz score of the student
+     * @param scoreUTS the UTS score of the student
+     * @param scoreUAS the UAS score of the student
+     * @param average the average score of the student
+     * @param grade the grade of the student
+     * @param description the description of the student
+     */
+    public Student(String nim, String name, double scoreTugas, double scoreQuiz, double scoreUTS, double scoreUAS, double average, String grade, String description) {
+        this(nim, name, scoreTugas, scoreQuiz, scoreUTS, scoreUAS, average, grade, description, 0);
+    }
+
+    /**
+     * Constructs a new Student as read from the database.
+     *
+     * @param nim the NIM of the student
+     * @param name the name of the student
+     * @param scoreTugas the task score of the student
+     * @param scoreQuiz the quiz score of the student
+     * @param scoreUTS the UTS score of the student
+     * @param scoreUAS the UAS score of the student
+     * @param average the average score of the student
+     * @param grade the grade of the student
+     * @param description the description of the student
+     * @param version the version of the student's row, or 0 if the student was not read from the database
+     */
+    public Student(String nim, String name, double scoreTugas, double scoreQuiz, double scoreUTS, double scoreUAS, double average, String grade, String description, long version) {
+        this.nim = nim;
+        this.name = name;
+        this.scoreTugas = scoreTugas;
+        this.scoreQuiz = scoreQuiz;
+        this.scoreUTS = scoreUTS;
+        this.scoreUAS = scoreUAS;
+        this.average = average;
+        this.grade = grade;
+        this.description = description;
+        this.version = version;
+    }
+
+    /**
+     * @return the NIM of the student
+     */
+    public String getNim() {
+        return nim;
+    }
+
+    /**
+     * @return the name of the student
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the task score of the student
+     */
+    public double getScoreTugas() {
+        return scoreTugas;
+    }
+
+    /**
+     * @return the quiz score of the student
+     */
+    public double getScoreQuiz() {
+        return scoreQuiz;
+    }
+
+    /**
+     * @return the UTS score of the student
+     */
+    public double getScoreUTS() {
+        return scoreUTS;
+    }
+
+    /**
+     * @return the UAS score of the student
+     */
+    public double getScoreUAS() {
+        return scoreUAS;
+    }
+
+    /**
+     * @return the average score of the student
+     */
+    public double getAverage() {
+        return average;
+    }
+
+    /**
+     * @return the grade of the student
+     */
+    public String getGrade() {
+        return grade;
+    }
+
+    /**
+     * @return the description of the student
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the version of the student's row when it was read. Every write to the row increases
+     * its version, so a conditional update of a student only succeeds if nobody wrote the row since.
+     *
+     * @return the version of the row, or 0 if the student was not read from the database
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version the version of the row
+     * @return a copy of this student with another row version
+     */
+    public Student withVersion(long version) {
+        return new Student(nim, name, scoreTugas, scoreQuiz, scoreUTS, scoreUAS, average, grade, description, version);
+    }
+
+    @Override
+    public String toString() {
+        return "Student[" + nim + ", " + name + "]";
+    }
+}
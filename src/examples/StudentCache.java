@@ -0,0 +1,210 @@
+package examples;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A bounded read-through cache of students keyed by NIM.
+ *
+ * Entries are evicted when the cache is full (least recently used first) or when they are
+ * older than the time to live. Registered as a StudentChangeListener, the cache stores the
+ * students a DAO writes and forgets the ones it deletes, so it never serves stale rows
+ * written through that DAO.
+ */
+public class StudentCache implements StudentChangeListener {
+    private final Function<String, Student> loader;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, CachedStudent> entries;
+
+    // Bumped on every change, so a load that raced with a change is not cached
+    private long changeCount;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long loadCount;
+    private long totalLoadNanos;
+
+    /**
+     * Constructs a new StudentCache.
+     *
+     * @param loader reads a student on a cache miss, returning null if there is no such student
+     * @param maxSize the maximum number of cached students
+     * @param ttl how long a student stays cached
+     * @param unit the unit of ttl
+     */
+    public StudentCache(Function<String, Student> loader, int maxSize, long ttl, TimeUnit unit) {
+        this.loader = loader;
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<String, CachedStudent>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStudent> eldest) {
+                if (size() <= StudentCache.this.maxSize) {
+                    return false;
+                }
+                evictionCount++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the student with the NIM, reading it with the loader if it is not cached.
+     *
+     * @param nim the NIM of the student
+     * @return the student, or null if there is no such student
+     */
+    public Student get(String nim) {
+        long loadedChangeCount;
+        synchronized (this) {
+            CachedStudent entry = entries.get(nim);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hitCount++;
+                    return entry.student;
+                }
+                entries.remove(nim);
+                evictionCount++;
+            }
+            missCount++;
+            loadedChangeCount = changeCount;
+        }
+
+        long start = System.nanoTime();
+        Student student = loader.apply(nim);
+        long end = System.nanoTime();
+
+        synchronized (this) {
+            loadCount++;
+            totalLoadNanos += end - start;
+            if (student != null && loadedChangeCount == changeCount) {
+                entries.put(nim, new CachedStudent(student, end));
+            }
+        }
+        return student;
+    }
+
+    /**
+     * Removes the student with the NIM from the cache.
+     *
+     * @param nim the NIM of the student
+     */
+    public synchronized void invalidate(String nim) {
+        changeCount++;
+        entries.remove(nim);
+    }
+
+    /**
+     * Removes every student from the cache.
+     */
+    public synchronized void invalidateAll() {
+        changeCount++;
+        entries.clear();
+    }
+
+    /**
+     * Removes the entries that outlived the time to live.
+     */
+    public synchronized void evictExpired() {
+        long now = System.nanoTime();
+        Iterator<CachedStudent> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().loadedAt >= ttlNanos) {
+                iterator.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Keeps the cache in step with the changes made through the DAO.
+     *
+     * @param event the change
+     */
+    @Override
+    public synchronized void studentChanged(StudentChangeEvent event) {
+        switch (event.getType()) {
+            case INSERTED:
+            case UPDATED:
+                changeCount++;
+                if (event.getStudent().getVersion() == 0) {
+                    // Written without reading the row version back, so the next read has to fetch it
+                    invalidate(event.getNim());
+                } else {
+                    entries.put(event.getNim(), new CachedStudent(event.getStudent(), System.nanoTime()));
+                }
+                break;
+            case DELETED:
+                invalidate(event.getNim());
+                break;
+            default:
+                invalidateAll();
+                break;
+        }
+    }
+
+    /**
+     * @return the number of cached students
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups that had to call the loader
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the fraction of lookups served from the cache, between 0 and 1
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * @return the number of students evicted because the cache was full or they expired
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the average time the loader took, in milliseconds
+     */
+    public synchronized double getAverageLoadMillis() {
+        return loadCount == 0 ? 0 : totalLoadNanos / 1e6 / loadCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("StudentCache[size=%d, hitRatio=%.2f, evictions=%d, avgLoad=%.2f ms]", entries.size(), getHitRatio(), evictionCount, getAverageLoadMillis());
+    }
+
+    private static final class CachedStudent {
+        final Student student;
+        final long loadedAt;
+
+        CachedStudent(Student student, long loadedAt) {
+            this.student = student;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
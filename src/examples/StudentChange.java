@@ -0,0 +1,63 @@
+package examples;
+
+/**
+ * An entry of the change log: one insert, update or delete of a student, with the student as
+ * it is now.
+ */
+public class StudentChange {
+    private final long sequence;
+    private final StudentChangeEvent.Type type;
+    private final String nim;
+    private final Student student;
+
+    /**
+     * Constructs a new StudentChange.
+     *
+     * @param sequence the sequence number of the change; later changes have greater numbers
+     * @param type {@link StudentChangeEvent.Type#INSERTED}, {@link StudentChangeEvent.Type#UPDATED} or {@link StudentChangeEvent.Type#DELETED}
+     * @param nim the NIM of the changed student
+     * @param student the student as it is now, or null if it no longer exists
+     */
+    public StudentChange(long sequence, StudentChangeEvent.Type type, String nim, Student student) {
+        this.sequence = sequence;
+        this.type = type;
+        this.nim = nim;
+        this.student = student;
+    }
+
+    /**
+     * @return the sequence number of the change
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the kind of change that was logged
+     */
+    public StudentChangeEvent.Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the NIM of the changed student
+     */
+    public String getNim() {
+        return nim;
+    }
+
+    /**
+     * Returns the student as it was when the change log was read, which may already include later
+     * changes of the same student.
+     *
+     * @return the student, or null if it no longer exists
+     */
+    public Student getStudent() {
+        return student;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + type + " " + nim;
+    }
+}
@@ -0,0 +1,64 @@
+package examples;
+
+/**
+ * Describes a change made to the students table through a StudentDAO.
+ */
+public class StudentChangeEvent {
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        /** A new student was inserted. */
+        INSERTED,
+        /** An existing student was updated. */
+        UPDATED,
+        /** A student was deleted. */
+        DELETED,
+        /** Many students were written at once; listeners should reload what they show. */
+        BULK_CHANGED
+    }
+
+    private final Type type;
+    private final String nim;
+    private final Student student;
+
+    /**
+     * Constructs a new StudentChangeEvent.
+     *
+     * @param type the kind of change
+     * @param nim the NIM of the changed student, or null for {@link Type#BULK_CHANGED}
+     * @param student the student as written, or null for deletes and bulk changes
+     */
+    public StudentChangeEvent(Type type, String nim, Student student) {
+        this.type = type;
+        this.nim = nim;
+        this.student = student;
+    }
+
+    /**
+     * @return the kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the NIM of the changed student, or null for bulk changes
+     */
+    public String getNim() {
+        return nim;
+    }
+
+    /**
+     * @return the student as written, or null for deletes and bulk changes
+     */
+    public Student getStudent() {
+        return student;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + nim;
+    }
+}
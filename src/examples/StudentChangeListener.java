@@ -0,0 +1,16 @@
+package examples;
+
+/**
+ * Receives the changes a StudentDAO makes to the students table.
+ *
+ * Events are delivered on the thread that made the change, after it was committed.
+ */
+public interface StudentChangeListener {
+
+    /**
+     * Called after a change to the students table.
+     *
+     * @param event the change
+     */
+    void studentChanged(StudentChangeEvent event);
+}
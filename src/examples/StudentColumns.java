@@ -0,0 +1,342 @@
+package examples;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A compact in-memory store for many students, kept column by column.
+ *
+ * Scores are stored in parallel primitive arrays, the NIM is packed into a long, grades and
+ * descriptions are stored as one-byte codes into {@link #GRADES} and {@link #DESCRIPTIONS},
+ * and names are stored as UTF-8 bytes in one shared array. A student takes about 60 bytes
+ * plus its name, against several hundred bytes for a Student object with its strings.
+ */
+public class StudentColumns {
+
+    /**
+     * The grades, best first. A grade code is an index into this array.
+     */
+    public static final String[] GRADES = {"A", "A-", "B+", "B", "B-", "C+", "C", "C-", "D", "E"};
+
+    /**
+     * The descriptions. A description code is an index into this array.
+     */
+    public static final String[] DESCRIPTIONS = {"Dinyatakan Lulus", "Dinyatakan Tidak Lulus"};
+
+    /**
+     * The code stored for a grade or description that is not in the table.
+     */
+    public static final byte UNKNOWN_CODE = -1;
+
+    private static final int NIM_LENGTH = 10;
+
+    private int size;
+    private long[] nims;
+    private int[] nameOffsets;
+    private byte[] nameBytes;
+    private double[] scoreTugas;
+    private double[] scoreQuiz;
+    private double[] scoreUTS;
+    private double[] scoreUAS;
+    private double[] average;
+    private byte[] gradeCodes;
+    private byte[] descriptionCodes;
+
+    /**
+     * Constructs a new StudentColumns with room for 1024 students.
+     */
+    public StudentColumns() {
+        this(1024);
+    }
+
+    /**
+     * Constructs a new StudentColumns with room for capacity students before it has to grow.
+     *
+     * @param capacity the initial number of students
+     */
+    public StudentColumns(int capacity) {
+        capacity = Math.max(capacity, 1);
+        nims = new long[capacity];
+        nameOffsets = new int[capacity + 1];
+        nameBytes = new byte[capacity * 16];
+        scoreTugas = new double[capacity];
+        scoreQuiz = new double[capacity];
+        scoreUTS = new double[capacity];
+        scoreUAS = new double[capacity];
+        average = new double[capacity];
+        gradeCodes = new byte[capacity];
+        descriptionCodes = new byte[capacity];
+    }
+
+    /**
+     * Packs a 10-digit NIM into a long.
+     *
+     * @param nim the NIM, made of 10 digits
+     * @return the NIM as a number
+     * @throws IllegalArgumentException if the NIM is not made of 10 digits
+     */
+    public static long packNim(String nim) {
+        if (nim == null || nim.length() != NIM_LENGTH) {
+            throw new IllegalArgumentException("NIM must have " + NIM_LENGTH + " digits: " + nim);
+        }
+        long packed = 0;
+        for (int i = 0; i < NIM_LENGTH; i++) {
+            char c = nim.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("NIM must have " + NIM_LENGTH + " digits: " + nim);
+            }
+            packed = packed * 10 + (c - '0');
+        }
+        return packed;
+    }
+
+    /**
+     * Turns a NIM packed by {@link #packNim(String)} back into its 10 digits.
+     *
+     * @param packed the NIM as a number
+     * @return the NIM, padded with leading zeros
+     */
+    public static String unpackNim(long packed) {
+        char[] digits = new char[NIM_LENGTH];
+        for (int i = NIM_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + packed % 10);
+            packed /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * @param grade a grade such as "B+"
+     * @return the code of the grade, or {@link #UNKNOWN_CODE}
+     */
+    public static byte gradeCode(String grade) {
+        return indexOf(GRADES, grade);
+    }
+
+    /**
+     * @param description a description such as "Dinyatakan Lulus"
+     * @return the code of the description, or {@link #UNKNOWN_CODE}
+     */
+    public static byte descriptionCode(String description) {
+        return indexOf(DESCRIPTIONS, description);
+    }
+
+    private static byte indexOf(String[] table, String value) {
+        for (int i = 0; i < table.length; i++) {
+            if (table[i].equals(value)) {
+                return (byte) i;
+            }
+        }
+        return UNKNOWN_CODE;
+    }
+
+    /**
+     * Appends a student.
+     *
+     * @param student the student to append
+     */
+    public void add(Student student) {
+        add(student.getNim(), student.getName(), student.getScoreTugas(), student.getScoreQuiz(), student.getScoreUTS(),
+                student.getScoreUAS(), student.getAverage(), student.getGrade(), student.getDescription());
+    }
+
+    /**
+     * Appends a student.
+     *
+     * @param nim the NIM of the student, made of 10 digits
+     * @param name the name of the student
+     * @param tugas the task score of the student
+     * @param quiz the quiz score of the student
+     * @param uts the UTS score of the student
+     * @param uas the UAS score of the student
+     * @param averageScore the average score of the student
+     * @param grade the grade of the student
+     * @param description the description of the student
+     */
+    public void add(String nim, String name, double tugas, double quiz, double uts, double uas, double averageScore, String grade, String description) {
+        add(packNim(nim), name, tugas, quiz, uts, uas, averageScore, gradeCode(grade), descriptionCode(description));
+    }
+
+    /**
+     * Appends a student given in its packed form.
+     *
+     * @param nim the NIM packed by {@link #packNim(String)}
+     * @param name the name of the student
+     * @param tugas the task score of the student
+     * @param quiz the quiz score of the student
+     * @param uts the UTS score of the student
+     * @param uas the UAS score of the student
+     * @param averageScore the average score of the student
+     * @param gradeCode the code of the grade
+     * @param descriptionCode the code of the description
+     */
+    public void add(long nim, String name, double tugas, double quiz, double uts, double uas, double averageScore, byte gradeCode, byte descriptionCode) {
+        if (size == nims.length) {
+            // Doubling alone would never leave an empty, trimmed store
+            grow(Math.max(1, size * 2));
+        }
+        byte[] encodedName = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+        int nameStart = nameOffsets[size];
+        if (nameStart + encodedName.length > nameBytes.length) {
+            nameBytes = Arrays.copyOf(nameBytes, Math.max(nameBytes.length * 2, nameStart + encodedName.length));
+        }
+        System.arraycopy(encodedName, 0, nameBytes, nameStart, encodedName.length);
+
+        nims[size] = nim;
+        nameOffsets[size + 1] = nameStart + encodedName.length;
+        scoreTugas[size] = tugas;
+        scoreQuiz[size] = quiz;
+        scoreUTS[size] = uts;
+        scoreUAS[size] = uas;
+        average[size] = averageScore;
+        gradeCodes[size] = gradeCode;
+        descriptionCodes[size] = descriptionCode;
+        size++;
+    }
+
+    private void grow(int capacity) {
+        nims = Arrays.copyOf(nims, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        scoreTugas = Arrays.copyOf(scoreTugas, capacity);
+        scoreQuiz = Arrays.copyOf(scoreQuiz, capacity);
+        scoreUTS = Arrays.copyOf(scoreUTS, capacity);
+        scoreUAS = Arrays.copyOf(scoreUAS, capacity);
+        average = Arrays.copyOf(average, capacity);
+        gradeCodes = Arrays.copyOf(gradeCodes, capacity);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, capacity);
+    }
+
+    /**
+     * Shrinks the arrays to the number of students stored.
+     */
+    public void trimToSize() {
+        grow(size);
+        nameBytes = Arrays.copyOf(nameBytes, nameOffsets[size]);
+    }
+
+    /**
+     * Removes every student, keeping the allocated arrays.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the number of students stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the approximate number of bytes held by the arrays
+     */
+    public long getMemoryBytes() {
+        return (long) nims.length * (8 + 4 + 5 * 8 + 2) + nameBytes.length;
+    }
+
+    /**
+     * Returns the student at the index as a Student object.
+     *
+     * @param index the index of the student
+     * @return the student
+     */
+    public Student get(int index) {
+        return new Student(getNim(index), getName(index), scoreTugas[index], scoreQuiz[index], scoreUTS[index], scoreUAS[index],
+                average[index], getGrade(index), getDescription(index));
+    }
+
+    /**
+     * @param index the index of the student
+     * @return the NIM packed by {@link #packNim(String)}
+     */
+    public long getPackedNim(int index) {
+        return nims[index];
+    }
+
+    /**
+     * @param index the index of the student
+     * @return the NIM of the student
+     */
+    public String getNim(int index) {
+        return unpackNim(nims[index]);
+    }
+
+    /**
+     * @param index the index of the student
+     * @return the name of the student
+     */
+    public String getName(int index) {
+        return new String(nameBytes, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param index the index of the student
+     * @return the grade of the student, or null if it is not in {@link #GRADES}
+     */
+    public String getGrade(int index) {
+        byte code = gradeCodes[index];
+        return code == UNKNOWN_CODE ? null : GRADES[code];
+    }
+
+    /**
+     * @param index the index of the student
+     * @return the description of the student, or null if it is not in {@link #DESCRIPTIONS}
+     */
+    public String getDescription(int index) {
+        byte code = descriptionCodes[index];
+        return code == UNKNOWN_CODE ? null : DESCRIPTIONS[code];
+    }
+
+    /**
+     * Returns the task scores. Only the first {@link #size()} entries are used; the array is
+     * shared with the store and is replaced when the store grows.
+     *
+     * @return the task score column
+     */
+    public double[] getScoreTugas() {
+        return scoreTugas;
+    }
+
+    /**
+     * @return the quiz score column, see {@link #getScoreTugas()}
+     */
+    public double[] getScoreQuiz() {
+        return scoreQuiz;
+    }
+
+    /**
+     * @return the UTS score column, see {@link #getScoreTugas()}
+     */
+    public double[] getScoreUTS() {
+        return scoreUTS;
+    }
+
+    /**
+     * @return the UAS score column, see {@link #getScoreTugas()}
+     */
+    public double[] getScoreUAS() {
+        return scoreUAS;
+    }
+
+    /**
+     * @return the average score column, see {@link #getScoreTugas()}
+     */
+    public double[] getAverage() {
+        return average;
+    }
+
+    /**
+     * @return the grade code column, see {@link #getScoreTugas()}
+     */
+    public byte[] getGradeCodes() {
+        return gradeCodes;
+    }
+
+    /**
+     * @return the description code column, see {@link #getScoreTugas()}
+     */
+    public byte[] getDescriptionCodes() {
+        return descriptionCodes;
+    }
+}
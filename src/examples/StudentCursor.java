@@ -0,0 +1,76 @@
+package examples;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over all students in NIM order, reading one page at a time with keyset pagination.
+ *
+ * Each page is read by its own query whose result set is closed before the rows are returned,
+ * so the cursor never keeps a server cursor or more than one page of rows open.
+ */
+public class StudentCursor implements Iterator<Student>, AutoCloseable {
+    private final StudentDAO studentDAO;
+    private final int pageSize;
+    private List<Student> page;
+    private int position;
+    private String lastNim;
+    private boolean exhausted;
+
+    /**
+     * Constructs a new StudentCursor.
+     *
+     * @param studentDAO the DAO to read pages from
+     * @param pageSize the number of rows read per query
+     */
+    public StudentCursor(StudentDAO studentDAO, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.studentDAO = studentDAO;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page != null && position < page.size()) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        try {
+            page = studentDAO.readStudentsAfter(lastNim, pageSize);
+        } catch (SQLException error) {
+            throw new IllegalStateException("Could not read the next page of students after " + lastNim, error);
+        }
+        position = 0;
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (page.isEmpty()) {
+            return false;
+        }
+        lastNim = page.get(page.size() - 1).getNim();
+        return true;
+    }
+
+    @Override
+    public Student next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(position++);
+    }
+
+    /**
+     * Stops the iteration and drops the current page.
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        page = null;
+    }
+}
@@ -4,15 +4,111 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
 
 /**
  * Data Access Object (DAO) class for managing student data.
  *
  * @author didikmaulanaardiansyah
  */
-public class StudentDAO {
+public class StudentDAO implements StudentRepository {
+    private static final int DEFAULT_STATEMENT_CACHE_CAPACITY = 32;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    // Times a chunk replayed row by row is tried when a deadlock rolls it back
+    private static final int MAX_REPLAY_ATTEMPTS = 3;
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int STATISTICS_PAGE_SIZE = 5000;
+    // The lengths findStudents pads its IN lists to, so a handful of statements share the cache
+    private static final int[] IN_LIST_SIZES = {1, 8, 32, 128, 512};
+
+    private static final String STUDENT_COLUMNS = "nim, name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description, version";
+    private static final String OFFSET_PAGE_SQL = "SELECT " + STUDENT_COLUMNS + " FROM students ORDER BY nim LIMIT ? OFFSET ?";
+    private static final String PAGE_SQL = "SELECT " + STUDENT_COLUMNS + " FROM students WHERE nim > ? ORDER BY nim LIMIT ?";
+
+    private static final String INSERT_SQL = "INSERT INTO students (nim, name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_SQL = INSERT_SQL + " ON DUPLICATE KEY UPDATE name = VALUES(name), score_tugas = VALUES(score_tugas), score_quiz = VALUES(score_quiz), score_uts = VALUES(score_uts), score_uas = VALUES(score_uas), average = VALUES(average), grade = VALUES(grade), description = VALUES(description), version = version + 1";
+    private static final String REGRADE_SQL = "UPDATE students SET average = ?, grade = ?, description = ?, version = version + 1 WHERE nim = ? AND score_tugas = ? AND score_quiz = ? AND score_uts = ? AND score_uas = ?";
+    private static final String AGGREGATE_SQL = "SELECT COUNT(*), SUM(CASE WHEN description = ? THEN 1 ELSE 0 END)"
+            + aggregatesOf("score_tugas") + aggregatesOf("score_quiz") + aggregatesOf("score_uts") + aggregatesOf("score_uas") + aggregatesOf("average")
+            + " FROM students";
+    private static final String GRADE_COUNT_SQL = "SELECT grade, COUNT(*) FROM students GROUP BY grade ORDER BY grade";
+    private static final String UPDATE_SQL = "UPDATE students SET name = ?, score_tugas = ?, score_quiz = ?, score_uts = ?, score_uas = ?, average = ?, grade = ?, description = ?, version = version + 1 WHERE nim = ?";
+    private static final String CONDITIONAL_UPDATE_SQL = UPDATE_SQL + " AND version = ?";
+    // Each change with the student as it is now, or null columns if it was deleted since
+    private static final String CHANGES_SQL = "SELECT " + STUDENT_COLUMNS.replaceAll("(\\w+)", "s.$1") + ", c.seq, c.nim, c.change_type"
+            + " FROM student_changes c LEFT JOIN students s ON s.nim = c.nim WHERE c.seq > ? ORDER BY c.seq LIMIT ?";
+    private static final String LAST_CHANGE_SQL = "SELECT COALESCE(MAX(seq), 0) FROM student_changes";
+    private static final String[] FIND_STUDENTS_SQL = new String[IN_LIST_SIZES.length];
+
+    static {
+        for (int i = 0; i < IN_LIST_SIZES.length; i++) {
+            StringBuilder sql = new StringBuilder("SELECT ").append(STUDENT_COLUMNS).append(" FROM students WHERE nim IN (?");
+            for (int j = 1; j < IN_LIST_SIZES[i]; j++) {
+                sql.append(", ?");
+            }
+            FIND_STUDENTS_SQL[i] = sql.append(") ORDER BY nim").toString();
+        }
+    }
+
+    // The schema of students_db.sql, in SQL that MySQL and embedded databases in MySQL mode both accept
+    private static final String[] SCHEMA_SQL = {
+        "CREATE TABLE students (nim varchar(10) NOT NULL PRIMARY KEY, name varchar(100), score_tugas double, score_quiz double,"
+                + " score_uts double, score_uas double, average double, grade varchar(2), description varchar(50),"
+                + " version bigint NOT NULL DEFAULT 1)",
+        "CREATE INDEX idx_students_grade ON students (grade)",
+        "CREATE INDEX idx_students_description ON students (description)",
+        "CREATE INDEX idx_students_grade_average ON students (grade, average)",
+        "CREATE INDEX idx_students_description_average ON students (description, average)",
+        "CREATE INDEX idx_students_average ON students (average)",
+        "CREATE INDEX idx_students_name ON students (name)",
+        "CREATE TABLE student_changes (seq bigint NOT NULL AUTO_INCREMENT PRIMARY KEY, nim varchar(10) NOT NULL,"
+                + " change_type varchar(8) NOT NULL, changed_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP)"
+    };
+
+    // The triggers that fill the change log, in MySQL syntax; other databases need their own
+    private static final String[] CHANGE_TRIGGER_SQL = {
+        "CREATE TRIGGER students_after_insert AFTER INSERT ON students FOR EACH ROW"
+                + " INSERT INTO student_changes (nim, change_type) VALUES (NEW.nim, 'INSERTED')",
+        "CREATE TRIGGER students_after_update AFTER UPDATE ON students FOR EACH ROW"
+                + " INSERT INTO student_changes (nim, change_type) SELECT OLD.nim, 'DELETED' FROM DUAL WHERE OLD.nim <> NEW.nim"
+                + " UNION ALL SELECT NEW.nim, 'UPDATED' FROM DUAL",
+        "CREATE TRIGGER students_after_delete AFTER DELETE ON students FOR EACH ROW"
+                + " INSERT INTO student_changes (nim, change_type) VALUES (OLD.nim, 'DELETED')"
+    };
+
     private Connection dbConnection;
+    private ConnectionPool connectionPool;
+
+    // Prepared statements are cached per connection; pooled connections keep their cache between borrows
+    private final Map<Object, StatementCache> statementCaches = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile int statementCacheCapacity = DEFAULT_STATEMENT_CACHE_CAPACITY;
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong openCursors = new AtomicLong();
+
+    private final List<StudentChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile boolean rethrowErrors;
+
+    private volatile DatabaseMetrics metrics = DatabaseMetrics.DEFAULT;
 
      /**
      * Constructs a new StudentDAO with the specified database connection.
@@ -22,22 +118,620 @@ public class StudentDAO {
     public StudentDAO(Connection dbConnection) {
         this.dbConnection = dbConnection;
     }
-    
+
+     /**
+     * Constructs a new StudentDAO that borrows a connection from the pool for every call,
+     * so it can be used from many threads at the same time.
+     *
+     * @param connectionPool the connection pool to use
+     */
+    public StudentDAO(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Sets whether a failed call throws a {@link DataAccessException} instead of printing the error and
+     * returning null, an empty result or false. A server sets this so it can answer with an error
+     * rather than with "no students".
+     *
+     * @param rethrowErrors true to throw, false to print and return an empty result
+     */
+    public void setRethrowErrors(boolean rethrowErrors) {
+        this.rethrowErrors = rethrowErrors;
+    }
+
+    /**
+     * Reports the error of a failed call: throws it if the DAO rethrows errors, otherwise prints it
+     * and lets the caller return its empty result.
+     */
+    private void failed(SQLException error) {
+        if (rethrowErrors) {
+            throw new DataAccessException(error);
+        }
+        error.printStackTrace();
+    }
+
+    /**
+     * Registers a listener that is told about every change this DAO makes to the students table.
+     *
+     * @param listener the listener to add
+     */
+    public void addChangeListener(StudentChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addChangeListener(StudentChangeListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeChangeListener(StudentChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void fireChange(StudentChangeEvent.Type type, String nim, Student student) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+        StudentChangeEvent event = new StudentChangeEvent(type, nim, student);
+        for (StudentChangeListener listener : changeListeners) {
+            listener.studentChanged(event);
+        }
+    }
+
+    /**
+     * Sets how many prepared statements are cached per connection. Existing caches are
+     * closed and rebuilt the next time their connection is used.
+     *
+     * @param statementCacheCapacity the maximum number of cached statements per connection
+     */
+    public void setStatementCacheCapacity(int statementCacheCapacity) {
+        this.statementCacheCapacity = statementCacheCapacity;
+    }
+
+    /**
+     * Sets how many rows the bulk methods send per JDBC batch. Each chunk is committed in its own transaction.
+     *
+     * @param batchSize the number of rows per chunk
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets where the latency, errors and row counts of this DAO's operations are recorded.
+     *
+     * @param metrics the metrics to record to, {@link DatabaseMetrics#DEFAULT} unless set
+     */
+    public void setMetrics(DatabaseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the metrics this DAO records to
+     */
+    public DatabaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the number of statements served from the statement cache
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * @return the number of statements that had to be prepared
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * @return the number of result sets currently open
+     */
+    public long getOpenCursorCount() {
+        return openCursors.get();
+    }
+
+    /**
+     * Returns the connection to use for one call: a connection borrowed from the pool,
+     * or the shared connection when the DAO is not pooled.
+     */
+    private Connection acquire() throws SQLException {
+        return connectionPool != null ? connectionPool.borrow() : dbConnection;
+    }
+
+    /**
+     * Gives a connection obtained from {@link #acquire()} back to the pool.
+     */
+    private void release(Connection connection) {
+        if (connectionPool != null && connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException error) {
+                error.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns the cached prepared statement for the SQL on this connection, preparing it on a miss.
+     */
+    private PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        // Every borrow hands out a new proxy, so caches are kept per physical connection
+        Object key = ConnectionPool.connectionKey(connection);
+        StatementCache cache;
+        synchronized (statementCaches) {
+            cache = statementCaches.get(key);
+            if (cache == null || cache.getCapacity() != statementCacheCapacity) {
+                if (cache != null) {
+                    cache.closeAll();
+                }
+                cache = new StatementCache(statementCacheCapacity);
+                statementCaches.put(key, cache);
+            }
+        }
+        PreparedStatement preparedStatement = cache.get(sql);
+        if (preparedStatement != null && !preparedStatement.isClosed()) {
+            statementCacheHits.incrementAndGet();
+            preparedStatement.clearParameters();
+            return preparedStatement;
+        }
+        statementCacheMisses.incrementAndGet();
+        preparedStatement = connection.prepareStatement(sql);
+        cache.put(sql, preparedStatement);
+        return preparedStatement;
+    }
+
+    private static void bind(PreparedStatement preparedStatement, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            preparedStatement.setObject(i + 1, params[i]);
+        }
+    }
+
+    /**
+     * Runs a query and hands its rows to the handler. The result set is always closed
+     * before this method returns.
+     */
+    private <T> T query(Connection connection, String sql, int fetchSize, ResultSetHandler<T> handler, Object... params) throws SQLException {
+        PreparedStatement preparedStatement = prepare(connection, sql);
+        bind(preparedStatement, params);
+        preparedStatement.setFetchSize(fetchSize);
+        ResultSet resultSet = preparedStatement.executeQuery();
+        openCursors.incrementAndGet();
+        try {
+            return handler.handle(resultSet);
+        } finally {
+            resultSet.close();
+            openCursors.decrementAndGet();
+        }
+    }
+
+    private <T> T query(String operation, String sql, ResultSetHandler<T> handler, Object... params) throws SQLException {
+        return query(operation, sql, 0, handler, params);
+    }
+
+    /**
+     * Runs a query on a connection of its own and records its latency, including the wait for
+     * a pooled connection, under the operation name.
+     */
+    private <T> T query(String operation, String sql, int fetchSize, ResultSetHandler<T> handler, Object... params) throws SQLException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        Connection connection = null;
+        try {
+            connection = acquire();
+            T result = query(connection, sql, fetchSize, handler, params);
+            failed = false;
+            return result;
+        } finally {
+            release(connection);
+            metrics.record(operation, start, failed);
+        }
+    }
+
+    /**
+     * Runs a single-row insert, update or delete and records its latency under the operation name.
+     */
+    private int update(String operation, String sql, Object... params) throws SQLException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        Connection connection = null;
+        try {
+            connection = acquire();
+            PreparedStatement preparedStatement = prepare(connection, sql);
+            bind(preparedStatement, params);
+            int count = preparedStatement.executeUpdate();
+            failed = false;
+            // MySQL reports an upsert that updates an existing row as 2 affected rows
+            metrics.addRowsWritten(Math.min(count, 1));
+            return count;
+        } finally {
+            release(connection);
+            metrics.record(operation, start, failed);
+        }
+    }
+
+    /**
+     * Copies the rows into a result set that no longer needs the connection or a server cursor.
+     */
+    private ResultSet detach(ResultSet resultSet) throws SQLException {
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.populate(resultSet);
+        metrics.addRowsRead(rowSet.size());
+        return rowSet;
+    }
+
+    /**
+     * Maps the current row of a result set selecting {@link #STUDENT_COLUMNS} to a Student.
+     */
+    private static Student toStudent(ResultSet resultSet) throws SQLException {
+        return new Student(resultSet.getString(1), resultSet.getString(2), resultSet.getDouble(3), resultSet.getDouble(4),
+                resultSet.getDouble(5), resultSet.getDouble(6), resultSet.getDouble(7), resultSet.getString(8), resultSet.getString(9), resultSet.getLong(10));
+    }
+
+    /**
+     * Maps the first row of a result set selecting {@link #STUDENT_COLUMNS} to a Student.
+     */
+    private Student toStudentOrNull(ResultSet resultSet) throws SQLException {
+        if (!resultSet.next()) {
+            return null;
+        }
+        metrics.addRowsRead(1);
+        return toStudent(resultSet);
+    }
+
+    /**
+     * Maps all remaining rows of a result set selecting {@link #STUDENT_COLUMNS} to Students.
+     */
+    private List<Student> toStudents(ResultSet resultSet) throws SQLException {
+        List<Student> students = new ArrayList<>();
+        while (resultSet.next()) {
+            students.add(toStudent(resultSet));
+        }
+        metrics.addRowsRead(students.size());
+        return students;
+    }
+
+    /**
+     * Creates the students table and its indexes if the database has no students table yet,
+     * for example an empty embedded database used for testing. The change log table is created
+     * too, but the triggers that fill it only on MySQL; elsewhere {@link #getChangesSince(long, int)}
+     * finds no changes.
+     *
+     * @return true if the schema was created, false if it already existed or could not be created
+     */
+    public boolean createSchema() {
+        Connection connection = null;
+        try {
+            connection = acquire();
+            try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, "students", new String[] {"TABLE"})) {
+                if (tables.next()) {
+                    return false;
+                }
+            }
+            String product = connection.getMetaData().getDatabaseProductName();
+            boolean mysql = product.contains("MySQL") || product.contains("MariaDB");
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA_SQL) {
+                    statement.execute(sql);
+                }
+                if (mysql) {
+                    for (String sql : CHANGE_TRIGGER_SQL) {
+                        statement.execute(sql);
+                    }
+                }
+            }
+            return true;
+        } catch (SQLException error) {
+            failed(error);
+        } finally {
+            release(connection);
+        }
+        return false;
+    }
+
+    /**
+     * Reads the change log: the changes made to the students table after a sequence number, in
+     * sequence order, each with the student as it is now.
+     *
+     * @param sequence the sequence number of the last change already seen, or 0 for all changes
+     * @param limit the maximum number of changes to read
+     * @return the changes, in sequence order
+     * @throws SQLException if the change log cannot be read
+     */
+    public List<StudentChange> getChangesSince(long sequence, int limit) throws SQLException {
+        return query("getChangesSince", CHANGES_SQL, limit, resultSet -> {
+            List<StudentChange> changes = new ArrayList<>();
+            while (resultSet.next()) {
+                Student student = resultSet.getString(1) == null ? null : toStudent(resultSet);
+                changes.add(new StudentChange(resultSet.getLong(11), StudentChangeEvent.Type.valueOf(resultSet.getString(13)),
+                        resultSet.getString(12), student));
+            }
+            metrics.addRowsRead(changes.size());
+            return changes;
+        }, sequence, limit);
+    }
+
+    /**
+     * @return the sequence number of the latest change in the change log, or 0 if it is empty
+     * @throws SQLException if the change log cannot be read
+     */
+    public long getLastChangeSequence() throws SQLException {
+        return query("getLastChangeSequence", LAST_CHANGE_SQL, resultSet -> resultSet.next() ? resultSet.getLong(1) : 0L);
+    }
+
+    /**
+     * Reads the page of students that follows afterNim in NIM order.
+     *
+     * @param afterNim the last NIM of the previous page, or null for the first page
+     * @param limit the maximum number of students to read
+     * @return the students of the page, in NIM order
+     * @throws SQLException if the page cannot be read
+     */
+    List<Student> readStudentsAfter(String afterNim, int limit) throws SQLException {
+        return query("readPage", PAGE_SQL, limit, this::toStudents, afterNim == null ? "" : afterNim, limit);
+    }
+
+    /**
+     * Reads the page of students that follows afterNim straight into the columnar store,
+     * without creating a Student object per row.
+     *
+     * @param columns the store to append the students to
+     * @param afterNim the last NIM of the previous page, or null for the first page
+     * @param limit the maximum number of students to read
+     * @return the last NIM read, or null if the page was empty
+     * @throws SQLException if the page cannot be read
+     */
+    public String readStudentsAfter(StudentColumns columns, String afterNim, int limit) throws SQLException {
+        return query("readPage", PAGE_SQL, limit, resultSet -> {
+            String lastNim = null;
+            int rows = 0;
+            while (resultSet.next()) {
+                rows++;
+                lastNim = resultSet.getString(1);
+                columns.add(StudentColumns.packNim(lastNim), resultSet.getString(2), resultSet.getDouble(3), resultSet.getDouble(4),
+                        resultSet.getDouble(5), resultSet.getDouble(6), resultSet.getDouble(7),
+                        StudentColumns.gradeCode(resultSet.getString(8)), StudentColumns.descriptionCode(resultSet.getString(9)));
+            }
+            metrics.addRowsRead(rows);
+            return lastNim;
+        }, afterNim == null ? "" : afterNim, limit);
+    }
+
+    /**
+     * Reads every student, in NIM order, into the columnar store, pageSize rows at a time.
+     *
+     * @param columns the store to append the students to
+     * @param pageSize the number of rows read per query
+     * @return the number of students read
+     * @throws SQLException if a page cannot be read; the students of the pages read before it stay
+     *         in columns
+     */
+    public int loadStudents(StudentColumns columns, int pageSize) throws SQLException {
+        int before = columns.size();
+        String lastNim = null;
+        do {
+            lastNim = readStudentsAfter(columns, lastNim, pageSize);
+        } while (lastNim != null);
+        return columns.size() - before;
+    }
+
+    /**
+     * Retrieves the page of students that follows afterNim in NIM order. Seeking on the primary key
+     * keeps every page equally cheap however deep into the table it is.
+     *
+     * @param afterNim the last NIM of the previous page, or null for the first page
+     * @param limit the maximum number of students to retrieve
+     * @return the students of the page, in NIM order
+     */
+    public List<Student> getStudentsAfter(String afterNim, int limit) {
+        try {
+            return readStudentsAfter(afterNim, limit);
+        } catch (SQLException error) {
+            failed(error);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Retrieves the students at positions offset to offset + limit - 1 in NIM order.
+     * Prefer {@link #getStudentsAfter(String, int)} when the previous page is known, as the
+     * database has to skip over offset rows to answer this query.
+     *
+     * @param offset the position of the first student to retrieve
+     * @param limit the maximum number of students to retrieve
+     * @return the students of the page, in NIM order
+     */
+    public List<Student> getStudentPage(int offset, int limit) {
+        try {
+            return query("getStudentPage", OFFSET_PAGE_SQL, limit, this::toStudents, limit, offset);
+        } catch (SQLException error) {
+            failed(error);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Counts the students in the database.
+     *
+     * @return the number of students, or 0 if the query failed
+     */
+    public int countStudents() {
+        try {
+            return query("countStudents", "SELECT COUNT(*) FROM students", resultSet -> resultSet.next() ? resultSet.getInt(1) : 0);
+        } catch (SQLException error) {
+            failed(error);
+        }
+        return 0;
+    }
+
+    /**
+     * Counts the students kept by a query.
+     *
+     * @param studentQuery the filters to apply
+     * @return the number of students, or 0 if the query failed
+     */
+    public int countStudents(StudentQuery studentQuery) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM students");
+        List<Object> params = new ArrayList<>();
+        studentQuery.appendWhere(sql, params, null);
+        try {
+            return query("countStudents", sql.toString(), resultSet -> resultSet.next() ? resultSet.getInt(1) : 0, params.toArray());
+        } catch (SQLException error) {
+            failed(error);
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieves the page of students kept by a query that follows after in the order of the query.
+     * The page is read with a keyset condition on the sort column and the NIM, so with the indexes of
+     * migrations/001_secondary_indexes.sql every page is an index range scan of at most limit rows.
+     *
+     * @param studentQuery the filters and sort order to apply
+     * @param after the last student of the previous page, or null for the first page
+     * @param limit the maximum number of students to retrieve
+     * @return the students of the page, in the order of the query
+     */
+    public List<Student> queryStudents(StudentQuery studentQuery, Student after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(STUDENT_COLUMNS).append(" FROM students");
+        List<Object> params = new ArrayList<>();
+        studentQuery.appendWhere(sql, params, after);
+        studentQuery.appendOrderBy(sql);
+        sql.append(" LIMIT ?");
+        params.add(limit);
+        try {
+            return query("queryStudents", sql.toString(), limit, this::toStudents, params.toArray());
+        } catch (SQLException error) {
+            failed(error);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Retrieves the students kept by a query at positions offset to offset + limit - 1 in the order
+     * of the query. Prefer {@link #queryStudents(StudentQuery, Student, int)} when the previous page is known.
+     *
+     * @param studentQuery the filters and sort order to apply
+     * @param offset the position of the first student to retrieve
+     * @param limit the maximum number of students to retrieve
+     * @return the students of the page, in the order of the query
+     */
+    public List<Student> queryStudentPage(StudentQuery studentQuery, int offset, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(STUDENT_COLUMNS).append(" FROM students");
+        List<Object> params = new ArrayList<>();
+        studentQuery.appendWhere(sql, params, null);
+        studentQuery.appendOrderBy(sql);
+        sql.append(" LIMIT ? OFFSET ?");
+        params.add(limit);
+        params.add(offset);
+        try {
+            return query("queryStudentPage", sql.toString(), limit, this::toStudents, params.toArray());
+        } catch (SQLException error) {
+            failed(error);
+        }
+        return Collections.emptyList();
+    }
+
+    private static String aggregatesOf(String column) {
+        return ", AVG(" + column + "), STDDEV_POP(" + column + "), MIN(" + column + "), MAX(" + column + ")";
+    }
+
+    /**
+     * Reads the exact aggregates of the students table into statistics: the number of students,
+     * how many passed, the mean, standard deviation and range of every score component, and the
+     * number of students per grade. The database computes them in two grouped queries.
+     *
+     * @param statistics the statistics to fill
+     * @throws SQLException if the aggregates cannot be read
+     */
+    void readAggregates(CohortStatistics statistics) throws SQLException {
+        query("readAggregates", AGGREGATE_SQL, resultSet -> {
+            if (resultSet.next()) {
+                statistics.count = resultSet.getLong(1);
+                statistics.passCount = resultSet.getLong(2);
+                for (int component = 0; component < CohortStatistics.COMPONENTS.length && statistics.count > 0; component++) {
+                    int column = 3 + component * 4;
+                    statistics.mean[component] = resultSet.getDouble(column);
+                    statistics.standardDeviation[component] = resultSet.getDouble(column + 1);
+                    statistics.min[component] = resultSet.getDouble(column + 2);
+                    statistics.max[component] = resultSet.getDouble(column + 3);
+                }
+            }
+            return null;
+        }, StudentColumns.DESCRIPTIONS[0]);
+        query("readGradeCounts", GRADE_COUNT_SQL, resultSet -> {
+            while (resultSet.next()) {
+                statistics.gradeCounts.put(resultSet.getString(1), resultSet.getLong(2));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Computes the statistics of the students table with the default grading engine.
+     *
+     * @return the statistics
+     * @throws SQLException if the students cannot be read
+     * @see CohortStatistics#compute(StudentDAO, GradingEngine, int)
+     */
+    public CohortStatistics getStatistics() throws SQLException {
+        return CohortStatistics.compute(this, GradingEngine.DEFAULT, STATISTICS_PAGE_SIZE);
+    }
+
+    /**
+     * Opens a cursor over all students in NIM order that reads pageSize rows at a time.
+     *
+     * @param pageSize the number of rows read per query, which is also the JDBC fetch size
+     * @return a cursor over all students
+     */
+    public StudentCursor openCursor(int pageSize) {
+        return new StudentCursor(this, pageSize);
+    }
+
+    /**
+     * Streams all students in NIM order. Only one page of {@link #DEFAULT_PAGE_SIZE} rows is held in memory at a time.
+     *
+     * @return a sequential stream of all students
+     */
+    public Stream<Student> streamStudents() {
+        return streamStudents(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Streams all students in NIM order. Only one page of pageSize rows is held in memory at a time.
+     *
+     * @param pageSize the number of rows read per query, which is also the JDBC fetch size
+     * @return a sequential stream of all students
+     */
+    public Stream<Student> streamStudents(int pageSize) {
+        StudentCursor cursor = openCursor(pageSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false)
+                .onClose(cursor::close);
+    }
+
     /**
      * Retrieves all students from the database.
      *
      * @return a ResultSet containing all students
+     * @deprecated copies the whole table into memory; use {@link #streamStudents(int)} or {@link #openCursor(int)}
      */
+    @Deprecated
     public ResultSet getStudents() {
         try {
-            Statement statement = dbConnection.createStatement();
-            return statement.executeQuery("SELECT * FROM students");
+            return query("getStudents", "SELECT * FROM students", this::detach);
         } catch (SQLException error) {
-            error.printStackTrace();
+            failed(error);
         }
         return null;
     }
-    
+
     /**
      * Retrieves a student with the specified NIM from the database.
      *
@@ -46,11 +740,83 @@ public class StudentDAO {
      */
     public ResultSet getStudent(String nim) {
         try {
-            PreparedStatement preparedStatement = dbConnection.prepareStatement("SELECT * FROM students WHERE nim = ?");
-            preparedStatement.setString(1, nim);
-            return preparedStatement.executeQuery();
+            return query("getStudent", "SELECT * FROM students WHERE nim = ?", this::detach, nim);
         } catch (SQLException error) {
-            error.printStackTrace();
+            failed(error);
+        }
+        return null;
+    }
+
+    /**
+     * Finds the student with the specified NIM.
+     *
+     * @param nim the NIM of the student to find
+     * @return the student, or null if there is no such student or the query failed
+     */
+    public Student findStudent(String nim) {
+        try {
+            return query("findStudent", "SELECT " + STUDENT_COLUMNS + " FROM students WHERE nim = ?", this::toStudentOrNull, nim);
+        } catch (SQLException error) {
+            failed(error);
+        }
+        return null;
+    }
+
+    /**
+     * Finds the students with the specified NIMs, up to 512 per query. The IN list is padded to 1, 8,
+     * 32, 128 or 512 NIMs by repeating the last one, so lists of any length reuse five cached
+     * statements instead of pushing the common ones out of the statement cache.
+     *
+     * @param nims the NIMs of the students to find
+     * @return the students that exist, in NIM order, or an empty list if a query failed
+     */
+    public List<Student> findStudents(Collection<String> nims) {
+        if (nims.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String[] remaining = nims.toArray(new String[0]);
+        int largest = IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+        try {
+            if (remaining.length <= largest) {
+                return findPaddedStudents(remaining, 0, remaining.length);
+            }
+            List<Student> students = new ArrayList<>();
+            for (int from = 0; from < remaining.length; from += largest) {
+                students.addAll(findPaddedStudents(remaining, from, Math.min(remaining.length, from + largest)));
+            }
+            students.sort(Comparator.comparing(Student::getNim));
+            return students;
+        } catch (SQLException error) {
+            failed(error);
+        }
+        return Collections.emptyList();
+    }
+
+    private List<Student> findPaddedStudents(String[] nims, int from, int to) throws SQLException {
+        int sizeIndex = 0;
+        while (IN_LIST_SIZES[sizeIndex] < to - from) {
+            sizeIndex++;
+        }
+        Object[] params = new Object[IN_LIST_SIZES[sizeIndex]];
+        System.arraycopy(nims, from, params, 0, to - from);
+        Arrays.fill(params, to - from, params.length, nims[to - 1]);
+        return query("findStudents", FIND_STUDENTS_SQL[sizeIndex], to - from, this::toStudents, params);
+    }
+
+    /**
+     * Retrieves a student with the specified NIM and reads it with the handler.
+     * The result set is closed as soon as the handler returns.
+     *
+     * @param nim the NIM of the student to retrieve
+     * @param handler reads the matching row, if any
+     * @param <T> the type produced by the handler
+     * @return the value produced by the handler, or null if the query failed
+     */
+    public <T> T getStudent(String nim, ResultSetHandler<T> handler) {
+        try {
+            return query("getStudent", "SELECT * FROM students WHERE nim = ?", handler, nim);
+        } catch (SQLException error) {
+            failed(error);
         }
         return null;
     }
@@ -70,19 +836,11 @@ public class StudentDAO {
      */
     public void insertStudent(String nim, String name, double score_tugas, double score_quiz, double score_uts, double score_uas, double average, String grade, String description) {
         try {
-            PreparedStatement preparedStatement = dbConnection.prepareStatement("INSERT INTO students (nim, name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
-            preparedStatement.setString(1, nim);
-            preparedStatement.setString(2, name);
-            preparedStatement.setDouble(3, score_tugas);
-            preparedStatement.setDouble(4, score_quiz);
-            preparedStatement.setDouble(5, score_uts);
-            preparedStatement.setDouble(6, score_uas);
-            preparedStatement.setDouble(7, average);
-            preparedStatement.setString(8, grade);
-            preparedStatement.setString(9, description);
-            preparedStatement.executeUpdate();
+            update("insertStudent", INSERT_SQL,
+                    nim, name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description);
+            fireChange(StudentChangeEvent.Type.INSERTED, nim, new Student(nim, name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description));
         } catch (SQLException error) {
-            error.printStackTrace();
+            failed(error);
         }
     }
 
@@ -101,20 +859,325 @@ public class StudentDAO {
      */
     public void updateStudent(String nim, String name, double score_tugas, double score_quiz, double score_uts, double score_uas, double average, String grade, String description) {
         try {
-            PreparedStatement preparedStatement = dbConnection.prepareStatement("UPDATE students SET name = ?, score_tugas = ?, score_quiz = ?, score_uts = ?, score_uas = ?, average = ?, grade = ?, description = ? WHERE nim = ?");
-            preparedStatement.setString(1, name);
-            preparedStatement.setDouble(2, score_tugas);
-            preparedStatement.setDouble(3, score_quiz);
-            preparedStatement.setDouble(4, score_uts);
-            preparedStatement.setDouble(5, score_uas);
-            preparedStatement.setDouble(6, average);
-            preparedStatement.setString(7, grade);
-            preparedStatement.setString(8, description);
-            preparedStatement.setString(9, nim);
-            preparedStatement.executeUpdate();
+            if (update("updateStudent", UPDATE_SQL,
+                    name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description, nim) > 0) {
+                fireChange(StudentChangeEvent.Type.UPDATED, nim, new Student(nim, name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description));
+            }
+        } catch (SQLException error) {
+            failed(error);
+        }
+    }
+
+    /**
+     * Inserts a new student, or updates the student with the same NIM if it already exists,
+     * in a single atomic statement.
+     *
+     * @param nim the NIM of the student
+     * @param name the name of the student
+     * @param score_tugas the task score of the student
+     * @param score_quiz the quiz score of the student
+     * @param score_uts the UTS score of the student
+     * @param score_uas the UAS score of the student
+     * @param average the average score of the student
+     * @param grade the grade of the student
+     * @param description the description of the student
+     */
+    public void upsertStudent(String nim, String name, double score_tugas, double score_quiz, double score_uts, double score_uas, double average, String grade, String description) {
+        try {
+            // MySQL reports 1 affected row for an insert and 2 for an update of an existing row; the version
+            // changes on every update, so an existing row saved unchanged still counts as an update.
+            // The row version is not read back, so the students in the events have version 0
+            int count = update("upsertStudent", UPSERT_SQL,
+                    nim, name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description);
+            if (count > 0) {
+                fireChange(count == 1 ? StudentChangeEvent.Type.INSERTED : StudentChangeEvent.Type.UPDATED, nim,
+                        new Student(nim, name, score_tugas, score_quiz, score_uts, score_uas, average, grade, description));
+            }
+        } catch (SQLException error) {
+            failed(error);
+        }
+    }
+
+    /**
+     * Saves the student only if nobody else wrote its row since it was read, without holding a lock
+     * in between. A student with version 0 is inserted, and conflicts if the NIM is taken; any other
+     * student is updated only if its row still has the student's version.
+     *
+     * @param student the student to save, with the version it was read with
+     * @return the saved student with its new version, or the conflict and the row as it is now
+     */
+    public SaveResult saveStudent(Student student) {
+        try {
+            Student saved = null;
+            if (student.getVersion() == 0) {
+                update("saveStudent", INSERT_SQL, student.getNim(), student.getName(), student.getScoreTugas(), student.getScoreQuiz(),
+                        student.getScoreUTS(), student.getScoreUAS(), student.getAverage(), student.getGrade(), student.getDescription());
+                saved = student.withVersion(1);
+            } else if (update("saveStudent", CONDITIONAL_UPDATE_SQL, student.getName(), student.getScoreTugas(), student.getScoreQuiz(),
+                    student.getScoreUTS(), student.getScoreUAS(), student.getAverage(), student.getGrade(), student.getDescription(),
+                    student.getNim(), student.getVersion()) > 0) {
+                saved = student.withVersion(student.getVersion() + 1);
+            }
+            if (saved != null) {
+                fireChange(student.getVersion() == 0 ? StudentChangeEvent.Type.INSERTED : StudentChangeEvent.Type.UPDATED, saved.getNim(), saved);
+                return new SaveResult(SaveResult.Status.SAVED, saved, null);
+            }
+        } catch (SQLException error) {
+            if (!isDuplicateKey(error)) {
+                failed(error);
+                return new SaveResult(SaveResult.Status.FAILED, null, null);
+            }
+        }
+        Student current = findStudent(student.getNim());
+        return new SaveResult(current == null ? SaveResult.Status.NOT_FOUND : SaveResult.Status.CONFLICT, null, current);
+    }
+
+    private static boolean isDuplicateKey(SQLException error) {
+        return error instanceof SQLIntegrityConstraintViolationException
+                || (error.getSQLState() != null && error.getSQLState().startsWith("23"));
+    }
+
+    /**
+     * Inserts the student, or updates the student with the same NIM if it already exists.
+     *
+     * @param student the student to save
+     */
+    public void upsertStudent(Student student) {
+        upsertStudent(student.getNim(), student.getName(), student.getScoreTugas(), student.getScoreQuiz(), student.getScoreUTS(),
+                student.getScoreUAS(), student.getAverage(), student.getGrade(), student.getDescription());
+    }
+
+    /**
+     * Inserts many students using JDBC batching, one transaction per chunk of {@link #setBatchSize(int)} rows.
+     * Rows that fail are reported in the result and do not stop the rest of the load.
+     *
+     * @param students the students to insert
+     * @return the number of rows written, the failed rows and the elapsed time
+     */
+    public BatchResult insertStudents(Collection<Student> students) {
+        return executeBatch("insertStudents", INSERT_SQL, students, StudentDAO::bindInsert, false, false);
+    }
+
+    /**
+     * Updates many students using JDBC batching, one transaction per chunk of {@link #setBatchSize(int)} rows.
+     * Rows that fail or match no student are reported in the result and do not stop the rest of the load.
+     *
+     * @param students the students to update
+     * @return the number of rows written, the failed rows and the elapsed time
+     */
+    public BatchResult updateStudents(Collection<Student> students) {
+        return executeBatch("updateStudents", UPDATE_SQL, students, StudentDAO::bindUpdate, true, false);
+    }
+
+    /**
+     * Inserts or updates many students using JDBC batching, one transaction per chunk of
+     * {@link #setBatchSize(int)} rows. Rows that fail are reported in the result and do not stop the rest of the load.
+     *
+     * @param students the students to insert or update
+     * @return the number of rows written, the failed rows and the elapsed time
+     */
+    public BatchResult upsertStudents(Collection<Student> students) {
+        return executeBatch("upsertStudents", UPSERT_SQL, students, StudentDAO::bindInsert, false, false);
+    }
+
+    /**
+     * Inserts or updates many students like {@link #upsertStudents(Collection)}, but tells the listeners
+     * about each written student instead of sending one {@link StudentChangeEvent.Type#BULK_CHANGED},
+     * so frequent small batches do not make every listener reload the whole table.
+     *
+     * @param students the students to insert or update
+     * @return the number of rows written, the failed rows and the elapsed time
+     */
+    public BatchResult upsertStudentsEach(Collection<Student> students) {
+        return executeBatch("upsertStudents", UPSERT_SQL, students, StudentDAO::bindInsert, false, true);
+    }
+
+    /**
+     * Writes new derived columns (average, grade and description) for many students using JDBC batching,
+     * one transaction per chunk of {@link #setBatchSize(int)} rows. A row is only written if its scores
+     * still match the student, so a row edited in the meantime keeps the values saved with its new scores.
+     *
+     * @param students the students with their scores and new derived values
+     * @return the number of rows written, the rows skipped or failed, and the elapsed time
+     */
+    public BatchResult regradeStudents(Collection<Student> students) {
+        return executeBatch("regradeStudents", REGRADE_SQL, students, StudentDAO::bindRegrade, true, false);
+    }
+
+    private static void bindInsert(PreparedStatement preparedStatement, Student student) throws SQLException {
+        bind(preparedStatement, student.getNim(), student.getName(), student.getScoreTugas(), student.getScoreQuiz(),
+                student.getScoreUTS(), student.getScoreUAS(), student.getAverage(), student.getGrade(), student.getDescription());
+    }
+
+    private static void bindUpdate(PreparedStatement preparedStatement, Student student) throws SQLException {
+        bind(preparedStatement, student.getName(), student.getScoreTugas(), student.getScoreQuiz(), student.getScoreUTS(),
+                student.getScoreUAS(), student.getAverage(), student.getGrade(), student.getDescription(), student.getNim());
+    }
+
+    private static void bindRegrade(PreparedStatement preparedStatement, Student student) throws SQLException {
+        bind(preparedStatement, student.getAverage(), student.getGrade(), student.getDescription(), student.getNim(),
+                student.getScoreTugas(), student.getScoreQuiz(), student.getScoreUTS(), student.getScoreUAS());
+    }
+
+    /**
+     * Binds one student to the parameters of a batched statement.
+     */
+    private interface StudentBinder {
+        void bind(PreparedStatement preparedStatement, Student student) throws SQLException;
+    }
+
+    /**
+     * Writes the students in chunks. A chunk whose batch fails is rolled back and replayed row by row,
+     * so only the rows that really fail are left out. Listeners are sent one event per written row if
+     * rowEvents is set, or else one bulk change.
+     */
+    private BatchResult executeBatch(String operation, String sql, Collection<Student> students, StudentBinder binder, boolean requireMatch, boolean rowEvents) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult(students.size());
+        List<Student> chunk = new ArrayList<>(Math.min(batchSize, students.size()));
+        List<StudentChangeEvent> events = new ArrayList<>();
+        int index = 0;
+        for (Student student : students) {
+            chunk.add(student);
+            if (chunk.size() == batchSize) {
+                int[] counts = executeChunk(sql, chunk, index - chunk.size() + 1, binder, requireMatch, result);
+                addRowEvents(rowEvents, chunk, counts, events);
+                chunk.clear();
+            }
+            index++;
+        }
+        if (!chunk.isEmpty()) {
+            int[] counts = executeChunk(sql, chunk, index - chunk.size(), binder, requireMatch, result);
+            addRowEvents(rowEvents, chunk, counts, events);
+        }
+        result.setElapsedNanos(System.nanoTime() - start);
+        metrics.addRowsWritten(result.getSuccessCount());
+        metrics.record(operation, start, !result.getFailures().isEmpty());
+        if (rowEvents) {
+            for (StudentChangeEvent event : events) {
+                fireChange(event.getType(), event.getNim(), event.getStudent());
+            }
+        } else if (result.getSuccessCount() > 0) {
+            fireChange(StudentChangeEvent.Type.BULK_CHANGED, null, null);
+        }
+        return result;
+    }
+
+    /**
+     * Adds an event for every row of a chunk that was written. As with {@link #upsertStudent(Student)},
+     * 1 affected row is an insert; a driver that does not report the count makes it an update.
+     */
+    private static void addRowEvents(boolean rowEvents, List<Student> chunk, int[] counts, List<StudentChangeEvent> events) {
+        if (!rowEvents) {
+            return;
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                Student student = chunk.get(i).withVersion(0);
+                events.add(new StudentChangeEvent(counts[i] == 1 ? StudentChangeEvent.Type.INSERTED : StudentChangeEvent.Type.UPDATED,
+                        student.getNim(), student));
+            }
+        }
+    }
+
+    /**
+     * Writes one chunk in a transaction.
+     *
+     * @return the update count of every row of the chunk, {@link Statement#EXECUTE_FAILED} for the rows that failed
+     */
+    private int[] executeChunk(String sql, List<Student> chunk, int firstIndex, StudentBinder binder, boolean requireMatch, BatchResult result) {
+        int[] rowCounts = new int[chunk.size()];
+        Arrays.fill(rowCounts, Statement.EXECUTE_FAILED);
+        Connection connection = null;
+        try {
+            connection = acquire();
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement preparedStatement = prepare(connection, sql);
+                for (Student student : chunk) {
+                    binder.bind(preparedStatement, student);
+                    preparedStatement.addBatch();
+                }
+                int[] counts = preparedStatement.executeBatch();
+                connection.commit();
+                System.arraycopy(counts, 0, rowCounts, 0, Math.min(counts.length, rowCounts.length));
+                for (int i = 0; i < counts.length; i++) {
+                    if (requireMatch && counts[i] == 0) {
+                        result.addFailure(firstIndex + i, chunk.get(i).getNim(), "No matching student row");
+                    }
+                }
+            } catch (SQLException batchError) {
+                connection.rollback();
+                executeRowByRow(connection, sql, chunk, firstIndex, binder, requireMatch, result, rowCounts);
+            } finally {
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException error) {
             error.printStackTrace();
+            for (int i = 0; i < chunk.size(); i++) {
+                result.addFailure(firstIndex + i, chunk.get(i).getNim(), error);
+            }
+        } finally {
+            release(connection);
         }
+        return rowCounts;
+    }
+
+    /**
+     * Replays a chunk one row at a time in one transaction. A row error that rolls back the whole
+     * transaction, such as a deadlock, also undoes the rows before it, so the replay is then rolled
+     * back and tried again, and if it keeps failing every row of the chunk is reported as failed.
+     */
+    private void executeRowByRow(Connection connection, String sql, List<Student> chunk, int firstIndex, StudentBinder binder, boolean requireMatch,
+            BatchResult result, int[] rowCounts) throws SQLException {
+        PreparedStatement preparedStatement = prepare(connection, sql);
+        preparedStatement.clearBatch();
+        for (int attempt = 1; ; attempt++) {
+            BatchResult replay = new BatchResult(chunk.size());
+            int[] replayCounts = new int[chunk.size()];
+            Arrays.fill(replayCounts, Statement.EXECUTE_FAILED);
+            SQLException rolledBack = null;
+            for (int i = 0; i < chunk.size() && rolledBack == null; i++) {
+                Student student = chunk.get(i);
+                try {
+                    binder.bind(preparedStatement, student);
+                    int count = preparedStatement.executeUpdate();
+                    replayCounts[i] = count;
+                    if (requireMatch && count == 0) {
+                        replay.addFailure(firstIndex + i, student.getNim(), "No matching student row");
+                    }
+                } catch (SQLException error) {
+                    if (rollsBackTransaction(error)) {
+                        rolledBack = error;
+                    } else {
+                        replay.addFailure(firstIndex + i, student.getNim(), error);
+                    }
+                }
+            }
+            if (rolledBack == null) {
+                connection.commit();
+                System.arraycopy(replayCounts, 0, rowCounts, 0, rowCounts.length);
+                for (BatchResult.Failure failure : replay.getFailures()) {
+                    result.addFailure(failure);
+                }
+                return;
+            }
+            connection.rollback();
+            if (attempt == MAX_REPLAY_ATTEMPTS) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    result.addFailure(firstIndex + i, chunk.get(i).getNim(), rolledBack);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells whether an error ended the whole transaction rather than just the statement: a deadlock
+     * or serialization failure (SQLState class 40).
+     */
+    private static boolean rollsBackTransaction(SQLException error) {
+        return error.getSQLState() != null && error.getSQLState().startsWith("40");
     }
 
     /**
@@ -125,16 +1188,13 @@ public class StudentDAO {
      */
     public boolean studentExists(String nim) {
         try {
-            PreparedStatement preparedStatement = dbConnection.prepareStatement("SELECT * FROM students WHERE nim = ?");
-            preparedStatement.setString(1, nim);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            return resultSet.next();
+            return query("studentExists", "SELECT 1 FROM students WHERE nim = ?", ResultSet::next, nim);
         } catch (SQLException error) {
-            error.printStackTrace();
+            failed(error);
         }
         return false;
     }
-    
+
     /**
     * Deletes a student with the specified NIM from the database.
     *
@@ -142,11 +1202,11 @@ public class StudentDAO {
     */
    public void deleteStudent(String nim) {
        try {
-           PreparedStatement preparedStatement = dbConnection.prepareStatement("DELETE FROM students WHERE nim = ?");
-           preparedStatement.setString(1, nim);
-           preparedStatement.executeUpdate();
+           if (update("deleteStudent", "DELETE FROM students WHERE nim = ?", nim) > 0) {
+               fireChange(StudentChangeEvent.Type.DELETED, nim, null);
+           }
        } catch (SQLException error) {
-           error.printStackTrace();
+           failed(error);
        }
    }
 }
@@ -0,0 +1,811 @@
+package examples;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Exports the students table to a CSV file or an XLSX workbook without holding the table in memory.
+ *
+ * The table is read in NIM order, one chunk at a time, into a columnar store. Each chunk is cut
+ * into slices that are formatted in parallel on a fork/join pool, and for XLSX also compressed in
+ * parallel, each slice as its own deflate block. One writer thread writes the chunks in order with
+ * gathering writes to a file channel. At most {@link #PIPELINE_CHUNKS} chunks are in flight, so the
+ * next chunk is read while the previous ones are formatted and written, and memory stays the same
+ * whatever the size of the table.
+ *
+ * The export is written to a temporary file next to the target and moved over it once complete,
+ * so a failed or cancelled export leaves no partial file behind.
+ *
+ * An XLSX sheet holds at most {@link #MAX_SHEET_ROWS} rows; larger tables continue on further sheets.
+ * Cells are written as inline strings, so the workbook needs no shared string table.
+ */
+public class StudentExporter {
+    static final int PIPELINE_CHUNKS = 3;
+    static final int MAX_SHEET_ROWS = 1048575;
+    private static final int SLICE_ROWS = 1024;
+    private static final String[] HEADERS = {"NIM", "Nama", "Nilai Tugas", "Nilai Kuis", "Nilai UTS", "Nilai UAS", "Rerata", "Grade", "Keterangan"};
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    /**
+     * The file formats an export can be written in.
+     */
+    public enum Format {
+        CSV, XLSX;
+
+        /**
+         * Picks the format from the extension of a file name.
+         *
+         * @param file the file to export to
+         * @return XLSX for a .xlsx file, otherwise CSV
+         */
+        public static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".xlsx") ? XLSX : CSV;
+        }
+    }
+
+    private final StudentRepository studentRepository;
+    private final int chunkSize;
+    private final ForkJoinPool forkJoinPool;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a new StudentExporter formatting on the common fork/join pool.
+     *
+     * @param studentRepository the repository to read the students from
+     * @param chunkSize the number of students read per chunk
+     */
+    public StudentExporter(StudentRepository studentRepository, int chunkSize) {
+        this(studentRepository, chunkSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new StudentExporter.
+     *
+     * @param studentRepository the repository to read the students from
+     * @param chunkSize the number of students read per chunk
+     * @param forkJoinPool the pool formatting the chunks
+     */
+    public StudentExporter(StudentRepository studentRepository, int chunkSize, ForkJoinPool forkJoinPool) {
+        this.studentRepository = studentRepository;
+        this.chunkSize = chunkSize;
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Stops a running export. The export then throws a {@link CancellationException} and leaves the
+     * target file as it was.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Exports every student to a file, replacing it if it exists.
+     *
+     * @param file the file to write
+     * @param format the format to write the file in
+     * @param progress called on the writer thread with the number of students written so far, after every chunk
+     * @return the number of students written
+     * @throws IOException if the file cannot be written
+     * @throws SQLException if the students cannot be read
+     * @throws CancellationException if the export was cancelled
+     */
+    public long export(Path file, Format format, LongConsumer progress) throws IOException, SQLException {
+        cancelled = false;
+        Path temporary = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "student-export-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Chunk> freeChunks = new ArrayBlockingQueue<>(PIPELINE_CHUNKS);
+        for (int i = 0; i < PIPELINE_CHUNKS; i++) {
+            freeChunks.add(new Chunk(chunkSize, format));
+        }
+        boolean complete = false;
+        Writer fileWriter = null;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer writer = format == Format.XLSX ? new XlsxWriter(channel) : new CsvWriter(channel);
+            fileWriter = writer;
+            CompletableFuture<Void> written = CompletableFuture.runAsync(writer::start, writerThread);
+            String lastNim = null;
+            int sheetRows = 0;
+            try {
+                while (!cancelled && !written.isCompletedExceptionally()) {
+                    Chunk chunk = freeChunks.take();
+                    int limit = format == Format.XLSX ? Math.min(chunkSize, MAX_SHEET_ROWS - sheetRows) : chunkSize;
+                    chunk.columns.clear();
+                    chunk.newSheet = sheetRows == 0;
+                    String chunkEnd = studentRepository.readStudentsAfter(chunk.columns, lastNim, limit);
+                    if (chunkEnd == null) {
+                        freeChunks.add(chunk);
+                        break;
+                    }
+                    int size = chunk.columns.size();
+                    CompletableFuture<Void> formatted = CompletableFuture.runAsync(new FormatTask(chunk, 0, chunk.sliceCount())::invoke, forkJoinPool);
+                    written = written.thenCombineAsync(formatted, (previous, ignored) -> {
+                        writer.write(chunk);
+                        progress.accept(writer.rowsWritten);
+                        return previous;
+                    }, writerThread).whenComplete((result, error) -> freeChunks.add(chunk));
+                    lastNim = chunkEnd;
+                    sheetRows = (sheetRows + size) % MAX_SHEET_ROWS;
+                    if (size < limit) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            } catch (SQLException | RuntimeException error) {
+                // Let the chunks in flight settle before the channel is closed and their deflaters ended
+                written.handle((result, ignored) -> null).join();
+                throw error;
+            }
+            if (cancelled) {
+                written.handle((result, error) -> null).join();
+                throw new CancellationException("The export was cancelled");
+            }
+            try {
+                written.thenRunAsync(writer::finish, writerThread).join();
+            } catch (CompletionException error) {
+                if (error.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) error.getCause()).getCause();
+                }
+                throw error;
+            }
+            channel.force(false);
+            complete = true;
+            return writer.rowsWritten;
+        } finally {
+            writerThread.shutdown();
+            for (Chunk chunk : freeChunks) {
+                chunk.end();
+            }
+            // Ended after the chunks in flight settled, like the deflaters of the chunks
+            if (fileWriter != null) {
+                fileWriter.end();
+            }
+            if (complete) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * A chunk of students and the formatted slices of it, reused from chunk to chunk.
+     */
+    private static final class Chunk {
+        final StudentColumns columns;
+        final Format format;
+        final ByteSink[] text;
+        final ByteSink[] compressed;
+        final Deflater[] deflaters;
+        boolean newSheet;
+
+        Chunk(int chunkSize, Format format) {
+            this.columns = new StudentColumns(chunkSize);
+            this.format = format;
+            int slices = (chunkSize + SLICE_ROWS - 1) / SLICE_ROWS;
+            text = new ByteSink[slices];
+            compressed = new ByteSink[slices];
+            deflaters = new Deflater[slices];
+            for (int i = 0; i < slices; i++) {
+                text[i] = new ByteSink(SLICE_ROWS * 128);
+                if (format == Format.XLSX) {
+                    compressed[i] = new ByteSink(SLICE_ROWS * 32);
+                    deflaters[i] = new Deflater(Deflater.BEST_SPEED, true);
+                }
+            }
+        }
+
+        int sliceCount() {
+            return (columns.size() + SLICE_ROWS - 1) / SLICE_ROWS;
+        }
+
+        void end() {
+            for (Deflater deflater : deflaters) {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+    }
+
+    /**
+     * Formats a range of the slices of a chunk, and compresses them when writing XLSX.
+     */
+    private static final class FormatTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Chunk chunk;
+        private final int from;
+        private final int to;
+
+        FormatTask(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FormatTask(chunk, from, middle), new FormatTask(chunk, middle, to));
+                return;
+            }
+            ByteSink text = chunk.text[from];
+            text.clear();
+            int end = Math.min(chunk.columns.size(), (from + 1) * SLICE_ROWS);
+            if (chunk.format == Format.XLSX) {
+                for (int i = from * SLICE_ROWS; i < end; i++) {
+                    formatXlsxRow(chunk.columns, i, text);
+                }
+                chunk.deflaters[from].reset();
+                deflate(chunk.deflaters[from], text, false, chunk.compressed[from]);
+            } else {
+                for (int i = from * SLICE_ROWS; i < end; i++) {
+                    formatCsvRow(chunk.columns, i, text);
+                }
+            }
+        }
+    }
+
+    private static void formatCsvRow(StudentColumns columns, int i, ByteSink out) {
+        out.csv(columns.getNim(i)).put(',');
+        out.csv(columns.getName(i)).put(',');
+        out.number(columns.getScoreTugas()[i]).put(',');
+        out.number(columns.getScoreQuiz()[i]).put(',');
+        out.number(columns.getScoreUTS()[i]).put(',');
+        out.number(columns.getScoreUAS()[i]).put(',');
+        out.number(columns.getAverage()[i]).put(',');
+        out.csv(columns.getGrade(i)).put(',');
+        out.csv(columns.getDescription(i)).put('\r').put('\n');
+    }
+
+    private static void formatXlsxRow(StudentColumns columns, int i, ByteSink out) {
+        out.ascii("<row>");
+        out.xlsxString(columns.getNim(i));
+        out.xlsxString(columns.getName(i));
+        out.xlsxNumber(columns.getScoreTugas()[i]);
+        out.xlsxNumber(columns.getScoreQuiz()[i]);
+        out.xlsxNumber(columns.getScoreUTS()[i]);
+        out.xlsxNumber(columns.getScoreUAS()[i]);
+        out.xlsxNumber(columns.getAverage()[i]);
+        out.xlsxString(columns.getGrade(i));
+        out.xlsxString(columns.getDescription(i));
+        out.ascii("</row>");
+    }
+
+    /**
+     * Compresses the text into raw deflate blocks. A sync flush ends the blocks on a byte boundary
+     * without ending the stream, so independently compressed pieces can be concatenated and the last
+     * piece finishes the stream.
+     */
+    private static void deflate(Deflater deflater, ByteSink text, boolean finish, ByteSink out) {
+        out.clear();
+        deflater.setInput(text.bytes, 0, text.length);
+        if (finish) {
+            deflater.finish();
+        }
+        while (true) {
+            out.ensure(Math.max(4096, text.length / 4));
+            int count = deflater.deflate(out.bytes, out.length, out.bytes.length - out.length, finish ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+            out.length += count;
+            if (finish ? deflater.finished() : out.length < out.bytes.length) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the file: its header, the chunks in order and its trailer. Only used by the writer thread.
+     */
+    private abstract static class Writer {
+        final FileChannel channel;
+        final ByteSink buffer = new ByteSink(8192);
+        long rowsWritten;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void start() {
+            try {
+                writeStart();
+            } catch (IOException error) {
+                throw new UncheckedIOException(error);
+            }
+        }
+
+        void write(Chunk chunk) {
+            try {
+                writeChunk(chunk);
+            } catch (IOException error) {
+                throw new UncheckedIOException(error);
+            }
+            rowsWritten += chunk.columns.size();
+        }
+
+        void finish() {
+            try {
+                writeFinish();
+            } catch (IOException error) {
+                throw new UncheckedIOException(error);
+            }
+        }
+
+        abstract void writeStart() throws IOException;
+
+        abstract void writeChunk(Chunk chunk) throws IOException;
+
+        abstract void writeFinish() throws IOException;
+
+        /**
+         * Releases the native memory of the writer, whether or not the file was finished.
+         */
+        void end() {
+        }
+
+        void writeFully(ByteBuffer... buffers) throws IOException {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+    }
+
+    private static final class CsvWriter extends Writer {
+        CsvWriter(FileChannel channel) {
+            super(channel);
+        }
+
+        @Override
+        void writeStart() throws IOException {
+            // Excel reads a CSV file as UTF-8 only when it starts with a byte order mark
+            buffer.clear();
+            buffer.put(UTF8_BOM);
+            for (int i = 0; i < HEADERS.length; i++) {
+                buffer.csv(HEADERS[i]).put(i < HEADERS.length - 1 ? ',' : '\r');
+            }
+            buffer.put('\n');
+            writeFully(buffer.toBuffer());
+        }
+
+        @Override
+        void writeChunk(Chunk chunk) throws IOException {
+            ByteBuffer[] buffers = new ByteBuffer[chunk.sliceCount()];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = chunk.text[i].toBuffer();
+            }
+            writeFully(buffers);
+        }
+
+        @Override
+        void writeFinish() {
+        }
+    }
+
+    /**
+     * Writes a minimal SpreadsheetML workbook as a ZIP file: the sheets are streamed as entries
+     * whose sizes follow their data in a data descriptor, and the small package parts and the
+     * central directory are written at the end.
+     */
+    private static final class XlsxWriter extends Writer {
+        private static final String SHEET_START = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>";
+        private static final String SHEET_END = "</sheetData></worksheet>";
+        private static final long MAX_ZIP_OFFSET = 0xFFFFFFFFL;
+
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        private final ByteSink compressed = new ByteSink(8192);
+        private final List<ZipEntry> entries = new ArrayList<>();
+        private final int dosTime;
+        private final int dosDate;
+        private ZipEntry entry;
+        private long position;
+        private int sheetCount;
+
+        XlsxWriter(FileChannel channel) {
+            super(channel);
+            LocalDateTime now = LocalDateTime.now();
+            dosTime = now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() / 2;
+            dosDate = (now.getYear() - 1980) << 9 | now.getMonthValue() << 5 | now.getDayOfMonth();
+        }
+
+        @Override
+        void writeStart() {
+        }
+
+        @Override
+        void writeChunk(Chunk chunk) throws IOException {
+            if (chunk.newSheet) {
+                if (entry != null) {
+                    endSheet();
+                }
+                startSheet();
+            }
+            int slices = chunk.sliceCount();
+            ByteBuffer[] buffers = new ByteBuffer[slices];
+            for (int i = 0; i < slices; i++) {
+                entry.crc.update(chunk.text[i].bytes, 0, chunk.text[i].length);
+                entry.size += chunk.text[i].length;
+                buffers[i] = chunk.compressed[i].toBuffer();
+            }
+            writeData(buffers);
+        }
+
+        @Override
+        void writeFinish() throws IOException {
+            if (entry == null) {
+                startSheet();
+            }
+            endSheet();
+            StringBuilder sheets = new StringBuilder();
+            StringBuilder sheetRelationships = new StringBuilder();
+            StringBuilder sheetTypes = new StringBuilder();
+            for (int i = 1; i <= sheetCount; i++) {
+                sheets.append("<sheet name=\"Mahasiswa").append(i > 1 ? " " + i : "").append("\" sheetId=\"").append(i)
+                        .append("\" r:id=\"rId").append(i).append("\"/>");
+                sheetRelationships.append("<Relationship Id=\"rId").append(i)
+                        .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                        .append(i).append(".xml\"/>");
+                sheetTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                        .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            }
+            String declaration = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+            writeEntry("[Content_Types].xml", declaration
+                    + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                    + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                    + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                    + sheetTypes + "</Types>");
+            writeEntry("_rels/.rels", declaration
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+            writeEntry("xl/workbook.xml", declaration
+                    + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+                    + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>"
+                    + sheets + "</sheets></workbook>");
+            writeEntry("xl/_rels/workbook.xml.rels", declaration
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + sheetRelationships + "</Relationships>");
+            writeCentralDirectory();
+        }
+
+        @Override
+        void end() {
+            deflater.end();
+        }
+
+        private void startSheet() throws IOException {
+            sheetCount++;
+            startEntry("xl/worksheets/sheet" + sheetCount + ".xml");
+            buffer.clear();
+            buffer.ascii(SHEET_START).ascii("<row>");
+            for (String header : HEADERS) {
+                buffer.xlsxString(header);
+            }
+            buffer.ascii("</row>");
+            writeCompressed(buffer, false);
+        }
+
+        private void endSheet() throws IOException {
+            buffer.clear();
+            buffer.ascii(SHEET_END);
+            writeCompressed(buffer, true);
+            endEntry();
+        }
+
+        private void writeEntry(String name, String content) throws IOException {
+            startEntry(name);
+            buffer.clear();
+            buffer.ascii(content);
+            writeCompressed(buffer, true);
+            endEntry();
+        }
+
+        /**
+         * Compresses a piece of the current entry on its own, so it does not refer back to the
+         * pieces compressed by the slices.
+         */
+        private void writeCompressed(ByteSink text, boolean finish) throws IOException {
+            entry.crc.update(text.bytes, 0, text.length);
+            entry.size += text.length;
+            deflater.reset();
+            deflate(deflater, text, finish, compressed);
+            writeData(compressed.toBuffer());
+        }
+
+        private void writeData(ByteBuffer... buffers) throws IOException {
+            long before = position;
+            for (ByteBuffer buffer : buffers) {
+                position += buffer.remaining();
+            }
+            entry.compressedSize += position - before;
+            writeFully(buffers);
+        }
+
+        private void startEntry(String name) throws IOException {
+            entry = new ZipEntry(name, position);
+            entries.add(entry);
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = ByteBuffer.allocate(30 + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0x04034b50).putShort((short) 20).putShort((short) ZipEntry.FLAGS).putShort((short) 8)
+                    .putShort((short) dosTime).putShort((short) dosDate).putInt(0).putInt(0).putInt(0)
+                    .putShort((short) nameBytes.length).putShort((short) 0).put(nameBytes);
+            header.flip();
+            position += header.remaining();
+            writeFully(header);
+        }
+
+        private void endEntry() throws IOException {
+            if (position > MAX_ZIP_OFFSET || entry.size > MAX_ZIP_OFFSET) {
+                throw new IOException("The export is too large for an XLSX file");
+            }
+            ByteBuffer descriptor = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            descriptor.putInt(0x08074b50).putInt((int) entry.crc.getValue()).putInt((int) entry.compressedSize).putInt((int) entry.size);
+            descriptor.flip();
+            position += descriptor.remaining();
+            writeFully(descriptor);
+            entry = null;
+        }
+
+        private void writeCentralDirectory() throws IOException {
+            long start = position;
+            for (ZipEntry zipEntry : entries) {
+                byte[] nameBytes = zipEntry.name.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer header = ByteBuffer.allocate(46 + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(0x02014b50).putShort((short) 20).putShort((short) 20).putShort((short) ZipEntry.FLAGS).putShort((short) 8)
+                        .putShort((short) dosTime).putShort((short) dosDate).putInt((int) zipEntry.crc.getValue())
+                        .putInt((int) zipEntry.compressedSize).putInt((int) zipEntry.size).putShort((short) nameBytes.length)
+                        .putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 0).putInt(0)
+                        .putInt((int) zipEntry.offset).put(nameBytes);
+                header.flip();
+                position += header.remaining();
+                writeFully(header);
+            }
+            if (position > MAX_ZIP_OFFSET) {
+                throw new IOException("The export is too large for an XLSX file");
+            }
+            ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) entries.size()).putShort((short) entries.size())
+                    .putInt((int) (position - start)).putInt((int) start).putShort((short) 0);
+            end.flip();
+            writeFully(end);
+        }
+    }
+
+    /**
+     * An entry of the ZIP file, whose checksum and sizes are known once its data is written.
+     */
+    private static final class ZipEntry {
+        // Sizes in a data descriptor after the data, and a UTF-8 name
+        static final int FLAGS = 0x0808;
+
+        final String name;
+        final long offset;
+        final CRC32 crc = new CRC32();
+        long size;
+        long compressedSize;
+
+        ZipEntry(String name, long offset) {
+            this.name = name;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * A growable byte array that text is encoded into as UTF-8.
+     */
+    private static final class ByteSink {
+        byte[] bytes;
+        int length;
+
+        ByteSink(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void clear() {
+            length = 0;
+        }
+
+        void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, length + extra)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+
+        ByteSink put(char c) {
+            ensure(1);
+            bytes[length++] = (byte) c;
+            return this;
+        }
+
+        ByteSink put(byte[] values) {
+            ensure(values.length);
+            System.arraycopy(values, 0, bytes, length, values.length);
+            length += values.length;
+            return this;
+        }
+
+        ByteSink ascii(String value) {
+            ensure(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                bytes[length++] = (byte) value.charAt(i);
+            }
+            return this;
+        }
+
+        /**
+         * Writes a number as the shortest text that reads back as the same double, without a
+         * fraction when it is a whole number.
+         */
+        ByteSink number(double value) {
+            long whole = (long) value;
+            if (whole == value && Math.abs(whole) < 1000000000000000L) {
+                return ascii(Long.toString(whole));
+            }
+            return ascii(Double.toString(value));
+        }
+
+        /**
+         * Writes a CSV field, quoted when it contains a separator, a quote or a line break.
+         * Null is written as an empty field.
+         */
+        ByteSink csv(String value) {
+            if (value == null) {
+                return this;
+            }
+            boolean quoted = false;
+            for (int i = 0; i < value.length() && !quoted; i++) {
+                char c = value.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quoted) {
+                return utf8(value, false);
+            }
+            put('"');
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) == '"') {
+                    put('"');
+                }
+                appendChar(value, i, false);
+                if (Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length()) {
+                    i++;
+                }
+            }
+            return put('"');
+        }
+
+        ByteSink xlsxString(String value) {
+            if (value == null) {
+                return ascii("<c/>");
+            }
+            return ascii("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">").utf8(value, true).ascii("</t></is></c>");
+        }
+
+        ByteSink xlsxNumber(double value) {
+            return ascii("<c><v>").number(value).ascii("</v></c>");
+        }
+
+        private ByteSink utf8(String value, boolean xml) {
+            for (int i = 0; i < value.length(); i++) {
+                appendChar(value, i, xml);
+                if (Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length()) {
+                    i++;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Encodes the character at an index as UTF-8, escaped for XML if asked. Control characters
+         * XML cannot hold are left out.
+         */
+        private void appendChar(String value, int index, boolean xml) {
+            int c = value.codePointAt(index);
+            ensure(6);
+            if (xml) {
+                switch (c) {
+                    case '&':
+                        ascii("&amp;");
+                        return;
+                    case '<':
+                        ascii("&lt;");
+                        return;
+                    case '>':
+                        ascii("&gt;");
+                        return;
+                    default:
+                        if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                            return;
+                        }
+                }
+            }
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xC0 | c >> 6);
+                bytes[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (c < 0x10000) {
+                bytes[length++] = (byte) (0xE0 | c >> 12);
+                bytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[length++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                bytes[length++] = (byte) (0xF0 | c >> 18);
+                bytes[length++] = (byte) (0x80 | c >> 12 & 0x3F);
+                bytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    /**
+     * Exports the students table to a file, as XLSX when its name ends in .xlsx and CSV otherwise.
+     *
+     * @param args the file to write and optionally the chunk size
+     * @throws Exception if the export fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: StudentExporter <file.csv|file.xlsx> [chunkSize]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        DatabaseConnection dbConnection = new DatabaseConnection();
+        dbConnection.connectPooled(1, 2);
+        try {
+            StudentDAO studentDAO = new StudentDAO(dbConnection.getPool());
+            int total = studentDAO.countStudents();
+            long start = System.nanoTime();
+            long rows = new StudentExporter(studentDAO, chunkSize).export(file, Format.of(file), written -> {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Exported %d of %d rows, %.0f rows/s%n", written, total, written / Math.max(seconds, 1e-9));
+            });
+            System.out.printf("Done: %d rows written to %s in %d ms%n", rows, file, (System.nanoTime() - start) / 1000000);
+        } finally {
+            dbConnection.close();
+        }
+    }
+}
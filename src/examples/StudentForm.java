@@ -1,9 +1,6 @@
 package examples;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import javax.swing.JOptionPane;
-import javax.swing.table.DefaultTableModel;
 
 /**
  *
@@ -11,21 +8,73 @@ import javax.swing.table.DefaultTableModel;
  */
 public class StudentForm extends javax.swing.JFrame {
     
-    // Error Message Properties
-    private static final String ERROR_ONLY_LETTERS = "%s hanya boleh mengandung huruf";
-    private static final String ERROR_EMPTY = "%s tidak boleh kosong";
-    private static final String ERROR_NAME_TOO_SHORT = "Nama tidak boleh kurang dari 2 karakter";
-    private static final String ERROR_NAME_TOO_LONG = "Nama tidak boleh lebih dari 100 karakter";
-    private static final String ERROR_NOT_NUMERIC = "%s hanya boleh berisi angka";
-    private static final String ERROR_NIM_INVALID_LENGTH = "NIM harus terdiri dari 10 angka";
-    private static final String ERROR_NOT_A_NUMBER = "Nilai %s harus berupa angka";
-    private static final String ERROR_SCORE_OUT_OF_RANGE = "Nilai %s harus berada di antara 0 dan 100";
+    // Connection Pool Size
+    private static final int MIN_CONNECTIONS = 1;
+    private static final int MAX_CONNECTIONS = 4;
+    
+    // Number of students read per query when loading the table, and pages kept in memory
+    private static final int PAGE_SIZE = 100;
+    private static final int CACHED_PAGES = 8;
     
     // Database Connection
     private DatabaseConnection dbConnection;
     
-    // Student DAO
-    private StudentDAO studentDAO;
+    // Student DAO, or the student server in thin-client mode, and the executor that runs its calls off the event dispatch thread
+    private StudentRepository studentRepository;
+    private AsyncStudentDAO asyncStudentDAO;
+    private final java.util.concurrent.ExecutorService databaseExecutor = AsyncStudentDAO.newExecutor(MAX_CONNECTIONS);
+    
+    // Recently viewed students
+    private static final int CACHED_STUDENTS = 1000;
+    private static final long CACHED_STUDENT_TTL_MINUTES = 5;
+    private StudentCache studentCache;
+    
+    // Students Table Model
+    private StudentTableModel studentTableModel;
+    
+    // Search index over NIM and name, the number of students read per query to build it, and the most rows a search shows
+    private static final int SEARCH_INDEX_PAGE_SIZE = 5000;
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    private StudentSearchIndex studentSearchIndex;
+    
+    // Number of students read per chunk when exporting the table to CSV or XLSX
+    private static final int EXPORT_CHUNK_SIZE = 10000;
+    
+    // Poller of the change log that applies the changes made by other clients; -Dstudentform.changes.pollMillis=0 switches it off
+    private static final String CHANGE_POLL_MILLIS_PROPERTY = "studentform.changes.pollMillis";
+    private static final long DEFAULT_CHANGE_POLL_MILLIS = 2000;
+    private static final int CHANGE_POLL_BATCH_SIZE = 500;
+    private ChangePoller changePoller;
+    
+    // Journal file of the write-behind mode, switched on with -Dstudentform.writeBehind.journal=students.journal: a save is done
+    // once it is synced to the journal, and the saves are drained to the database in the background
+    private static final String WRITE_BEHIND_JOURNAL_PROPERTY = "studentform.writeBehind.journal";
+    private static final long WRITE_BEHIND_FLUSH_MILLIS = 200;
+    private static final int WRITE_BEHIND_BATCH_SIZE = 500;
+    private WriteBehindFlusher writeBehindFlusher;
+    
+    // URL of a StudentServer, such as http://localhost:8080; when set, the form runs as a thin client without a database connection
+    private static final String SERVER_URL_PROPERTY = "studentform.server";
+    
+    // File of an embedded MappedStudentRepository, such as students.store; when set, the form runs without a database server
+    private static final String STORE_PROPERTY = "studentform.store";
+    
+    // Local port of the plain-text metrics endpoint; it is only started when this system property is set
+    private static final String METRICS_PORT_PROPERTY = "studentform.metrics.port";
+    
+    // Event dispatch monitoring, switched on with -Dstudentform.edt.monitor=true
+    private static final String EDT_MONITOR_PROPERTY = "studentform.edt.monitor";
+    private static final String EDT_STALL_MILLIS_PROPERTY = "studentform.edt.stallMillis";
+    private static final String EDT_STALL_REPORT_PROPERTY = "studentform.edt.stallReport";
+    private static final long DEFAULT_EDT_STALL_MILLIS = 500;
+    private static final String DEFAULT_EDT_STALL_REPORT = "edt-stalls.log";
+    
+    // Menu bar, added after the generated components
+    private javax.swing.JMenuItem statisticsMenuItem;
+    private javax.swing.JMenuItem exportMenuItem;
+    private javax.swing.JTextField searchTextField;
+    private javax.swing.JComboBox<String> gradeFilterComboBox;
+    private javax.swing.JComboBox<String> descriptionFilterComboBox;
     
     // Student Properties
     private String name;
@@ -34,143 +83,478 @@ public class StudentForm extends javax.swing.JFrame {
     private double scoreQuiz;
     private double scoreUTS;
     private double scoreUAS;
+    // The student as last read from the database, whose row version the next save is checked against
+    private Student loadedStudent;
     
     /**
      * Creates new form StudentForm
      */
     public StudentForm() {
         initComponents();
-        connectDatabase();
-        initStudentDAO();
         setStudentsTableListener();
-        loadData();
+        initMenuBar();
+        setComponentNames();
+        setDatabaseActionsEnabled(false);
+        java.util.concurrent.CompletableFuture.runAsync(this::connectDatabase, databaseExecutor)
+                .thenComposeAsync(connected -> {
+                    initStudentDAO();
+                    initStudentsTableModel();
+                    return startChangePoller();
+                }, AsyncStudentDAO.EDT)
+                .thenRunAsync(() -> {
+                    setDatabaseActionsEnabled(true);
+                    loadData();
+                    buildSearchIndex();
+                }, AsyncStudentDAO.EDT)
+                .whenCompleteAsync((result, error) -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        JOptionPane.showMessageDialog(null, "Data tidak dapat dibuka: " + cause.getLocalizedMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }, AsyncStudentDAO.EDT);
+    }
+    
+    /**
+    * This method starts polling the change log, so the table, the cache and the search index follow the changes
+    * made by other clients without reloading the whole table. The table is loaded only after the poller knows
+    * where the change log ends, so no change is missed in between.
+    * @return A future completed once the poller started, or at once if polling is switched off.
+    */
+    private java.util.concurrent.CompletableFuture<Void> startChangePoller() {
+        long pollMillis = Long.getLong(CHANGE_POLL_MILLIS_PROPERTY, DEFAULT_CHANGE_POLL_MILLIS);
+        if (pollMillis <= 0) {
+            return java.util.concurrent.CompletableFuture.completedFuture(null);
+        }
+        changePoller = new ChangePoller(studentRepository, pollMillis, CHANGE_POLL_BATCH_SIZE);
+        changePoller.addChangeListener(studentCache);
+        changePoller.addChangeListener(studentSearchIndex);
+        changePoller.addChangeListener(studentTableModel);
+        return changePoller.start();
     }
     
     /**
     * This method establishes a connection to the database by creating a new DatabaseConnection object
-    * and calling its connect method.
+    * and calling its connectPooled method. It runs on the database executor, not the event dispatch thread.
+    * In thin-client mode there is no database connection to open, and in embedded mode the store file is opened instead.
     */
     private void connectDatabase() {
+        if (System.getProperty(SERVER_URL_PROPERTY) != null) {
+            return;
+        }
+        String storeFile = System.getProperty(STORE_PROPERTY);
+        if (storeFile != null) {
+            try {
+                studentRepository = new MappedStudentRepository(java.nio.file.Paths.get(storeFile));
+            } catch (java.io.IOException error) {
+                throw new java.io.UncheckedIOException(error);
+            }
+            return;
+        }
         dbConnection = new DatabaseConnection();
-        dbConnection.connect();
+        try {
+            dbConnection.connectPooled(MIN_CONNECTIONS, MAX_CONNECTIONS);
+        } catch (java.sql.SQLException error) {
+            throw new DataAccessException(error);
+        }
     }
     
     /**
-    * This method initializes the StudentDAO object which is used to interact with the database.
-    * It uses the connection established in the connectDatabase method.
+    * This method initializes the StudentDAO object which is used to interact with the database, or the
+    * HttpStudentRepository that goes through the student server in thin-client mode, or keeps the
+    * MappedStudentRepository opened by connectDatabase in embedded mode,
+    * the AsyncStudentDAO that runs its calls on the database executor, and the cache of recently viewed students.
+    * It uses the connection pool opened in the connectDatabase method.
     */
     private void initStudentDAO() {
-        studentDAO = new StudentDAO(dbConnection.getConnection());
+        String serverUrl = System.getProperty(SERVER_URL_PROPERTY);
+        if (serverUrl != null) {
+            studentRepository = new HttpStudentRepository(serverUrl);
+        } else if (studentRepository == null) {
+            StudentDAO studentDAO = new StudentDAO(dbConnection.getPool());
+            // A failed read must fail its future, not show up as an empty page or a missing student
+            studentDAO.setRethrowErrors(true);
+            studentRepository = studentDAO;
+        }
+        asyncStudentDAO = new AsyncStudentDAO(studentRepository, databaseExecutor);
+        studentCache = new StudentCache(studentRepository::findStudent, CACHED_STUDENTS, CACHED_STUDENT_TTL_MINUTES, java.util.concurrent.TimeUnit.MINUTES);
+        studentRepository.addChangeListener(studentCache);
+        studentSearchIndex = new StudentSearchIndex(studentRepository, SEARCH_INDEX_PAGE_SIZE, databaseExecutor);
+        studentRepository.addChangeListener(studentSearchIndex);
+        initWriteBehind();
+    }
+    
+    /**
+    * This method opens the write-behind journal if the write-behind mode is switched on, and starts draining it,
+    * which first writes the saves left in the journal by a previous run. The mode needs a database connection,
+    * so it is not available in thin-client mode. The saves still queued are drained once more when the application exits.
+    */
+    private void initWriteBehind() {
+        String journalFile = System.getProperty(WRITE_BEHIND_JOURNAL_PROPERTY);
+        if (journalFile == null || !(studentRepository instanceof StudentDAO)) {
+            return;
+        }
+        try {
+            StudentJournal journal = new StudentJournal(java.nio.file.Paths.get(journalFile));
+            writeBehindFlusher = new WriteBehindFlusher((StudentDAO) studentRepository, journal, WRITE_BEHIND_FLUSH_MILLIS, WRITE_BEHIND_BATCH_SIZE);
+            writeBehindFlusher.start();
+            WriteBehindFlusher flusher = writeBehindFlusher;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    flusher.close();
+                } catch (java.io.IOException error) {
+                    error.printStackTrace();
+                }
+            }, "write-behind-shutdown"));
+        } catch (java.io.IOException error) {
+            error.printStackTrace();
+            JOptionPane.showMessageDialog(null, "Jurnal " + journalFile + " tidak dapat dibuka; data disimpan langsung ke database.",
+                    "Peringatan", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+    
+    /**
+    * This method names the components whose handlers the event dispatch monitor times, so their
+    * latencies are reported as, for example, "saveButton MOUSE_RELEASED" rather than "JButton MOUSE_RELEASED".
+    */
+    private void setComponentNames() {
+        saveButton.setName("saveButton");
+        resetButton.setName("resetButton");
+        calculateButton.setName("calculateButton");
+        exitButton.setName("exitButton");
+        studentsTable.setName("studentsTable");
+        studentsTable.getTableHeader().setName("studentsTableHeader");
+        statisticsMenuItem.setName("statisticsMenuItem");
+        searchTextField.setName("searchTextField");
+        gradeFilterComboBox.setName("gradeFilterComboBox");
+        descriptionFilterComboBox.setName("descriptionFilterComboBox");
+    }
+    
+    /**
+    * This method enables or disables the buttons that need the database.
+    * @param enabled Whether the buttons are enabled.
+    */
+    private void setDatabaseActionsEnabled(boolean enabled) {
+        saveButton.setEnabled(enabled);
+        resetButton.setEnabled(enabled);
+        statisticsMenuItem.setEnabled(enabled);
+        exportMenuItem.setEnabled(enabled);
+        searchTextField.setEnabled(enabled);
+        gradeFilterComboBox.setEnabled(enabled);
+        descriptionFilterComboBox.setEnabled(enabled);
+    }
+    
+    /**
+    * This method adds the menu bar to the form. It is built here rather than in initComponents so the
+    * generated code stays untouched, and the form is packed again to make room for it.
+    */
+    private void initMenuBar() {
+        statisticsMenuItem = new javax.swing.JMenuItem("Statistik Kelas");
+        statisticsMenuItem.addActionListener(evt -> showStatistics());
+        exportMenuItem = new javax.swing.JMenuItem("Ekspor...");
+        exportMenuItem.addActionListener(evt -> exportStudents());
+        javax.swing.JMenu dataMenu = new javax.swing.JMenu("Data");
+        dataMenu.add(statisticsMenuItem);
+        dataMenu.add(exportMenuItem);
+        javax.swing.JMenuBar menuBar = new javax.swing.JMenuBar();
+        menuBar.add(dataMenu);
+        
+        gradeFilterComboBox = newFilterComboBox(StudentColumns.GRADES);
+        descriptionFilterComboBox = newFilterComboBox(StudentColumns.DESCRIPTIONS);
+        menuBar.add(javax.swing.Box.createHorizontalStrut(16));
+        menuBar.add(new javax.swing.JLabel("Grade: "));
+        menuBar.add(gradeFilterComboBox);
+        menuBar.add(javax.swing.Box.createHorizontalStrut(8));
+        menuBar.add(new javax.swing.JLabel("Keterangan: "));
+        menuBar.add(descriptionFilterComboBox);
+        
+        searchTextField = new javax.swing.JTextField(20);
+        searchTextField.setMaximumSize(searchTextField.getPreferredSize());
+        searchTextField.setToolTipText("Cari berdasarkan awalan NIM atau bagian nama");
+        searchTextField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent evt) {
+                applySearch();
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent evt) {
+                applySearch();
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent evt) {
+                applySearch();
+            }
+        });
+        menuBar.add(javax.swing.Box.createHorizontalGlue());
+        menuBar.add(new javax.swing.JLabel("Cari: "));
+        menuBar.add(searchTextField);
+        setJMenuBar(menuBar);
+        pack();
+    }
+    
+    /**
+    * This method creates a combo box that filters the students table on one of the values, or on none of them.
+    * @param values The values to choose from.
+    * @return The combo box.
+    */
+    private javax.swing.JComboBox<String> newFilterComboBox(String[] values) {
+        javax.swing.JComboBox<String> comboBox = new javax.swing.JComboBox<>();
+        comboBox.addItem("Semua");
+        for (String value : values) {
+            comboBox.addItem(value);
+        }
+        comboBox.setMaximumSize(comboBox.getPreferredSize());
+        comboBox.addActionListener(evt -> applyQueryFilters());
+        return comboBox;
+    }
+    
+    /**
+    * This method filters the students table on the grade and description chosen in the menu bar. The filter runs
+    * in the database on its secondary indexes, keeping the current sort order.
+    */
+    private void applyQueryFilters() {
+        if (studentTableModel == null) {
+            return;
+        }
+        String grade = gradeFilterComboBox.getSelectedIndex() > 0 ? (String) gradeFilterComboBox.getSelectedItem() : null;
+        String description = descriptionFilterComboBox.getSelectedIndex() > 0 ? (String) descriptionFilterComboBox.getSelectedItem() : null;
+        StudentQuery query = studentTableModel.getQuery()
+                .withGrades(grade == null ? new String[0] : new String[] {grade})
+                .withDescription(description);
+        studentTableModel.setQuery(query);
+        updateSortHeaders();
+    }
+    
+    /**
+    * This method sorts the students table on a column in the database, reversing the order when it is already
+    * sorted on that column. While a search narrows the table, its rows stay in NIM order.
+    * @param columnIndex The column of the table model.
+    */
+    private void sortStudentsTable(int columnIndex) {
+        studentTableModel.toggleSort(columnIndex);
+        updateSortHeaders();
+    }
+    
+    /**
+    * This method shows the sort order of the students table in its column headers.
+    */
+    private void updateSortHeaders() {
+        javax.swing.table.TableColumnModel columns = studentsTable.getColumnModel();
+        for (int i = 0; i < columns.getColumnCount(); i++) {
+            javax.swing.table.TableColumn column = columns.getColumn(i);
+            column.setHeaderValue(studentTableModel.getColumnName(column.getModelIndex()));
+        }
+        studentsTable.getTableHeader().repaint();
+    }
+    
+    /**
+    * This method builds the search index in the background, then applies whatever was typed in the search box meanwhile.
+    */
+    private void buildSearchIndex() {
+        studentSearchIndex.rebuildAsync().thenRunAsync(this::applySearch, AsyncStudentDAO.EDT);
+    }
+    
+    /**
+    * This method narrows the students table to the students matching the text of the search box: those whose NIM
+    * starts with it, or whose name contains it. The search runs on the in-memory index, so it is done on every keystroke.
+    * An empty search box shows every student again.
+    */
+    private void applySearch() {
+        String query = searchTextField.getText().trim();
+        if (query.isEmpty()) {
+            if (studentTableModel != null && studentTableModel.isFiltered()) {
+                studentTableModel.setFilter(null);
+            }
+            return;
+        }
+        if (studentSearchIndex == null || !studentSearchIndex.isReady()) {
+            return;
+        }
+        studentTableModel.setFilter(studentSearchIndex.search(query, MAX_SEARCH_RESULTS));
+    }
+    
+    /**
+    * This method computes the statistics of all students in the background and shows them in a dialog.
+    * The menu item stays disabled until the statistics are shown.
+    */
+    private void showStatistics() {
+        statisticsMenuItem.setEnabled(false);
+        asyncStudentDAO.submit(studentRepository::getStatistics)
+                .whenCompleteAsync((statistics, error) -> {
+                    statisticsMenuItem.setEnabled(true);
+                    if (error != null) {
+                        error.printStackTrace();
+                        JOptionPane.showMessageDialog(null, "Gagal menghitung statistik.", "Statistik Kelas", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    javax.swing.JDialog dialog = new javax.swing.JDialog(this, "Statistik Kelas");
+                    dialog.setContentPane(new StatisticsPanel(statistics));
+                    dialog.pack();
+                    dialog.setLocationRelativeTo(this);
+                    dialog.setVisible(true);
+                }, AsyncStudentDAO.EDT);
+    }
+    
+    /**
+    * This method exports the whole students table to a CSV or XLSX file chosen by the user. The export runs in the
+    * background, streaming the table chunk by chunk, and a progress monitor shows how far it is and lets it be cancelled.
+    */
+    private void exportStudents() {
+        javax.swing.JFileChooser fileChooser = new javax.swing.JFileChooser();
+        javax.swing.filechooser.FileNameExtensionFilter xlsxFilter = new javax.swing.filechooser.FileNameExtensionFilter("Excel (*.xlsx)", "xlsx");
+        fileChooser.addChoosableFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV (*.csv)", "csv"));
+        fileChooser.addChoosableFileFilter(xlsxFilter);
+        fileChooser.setAcceptAllFileFilterUsed(false);
+        fileChooser.setSelectedFile(new java.io.File("mahasiswa.csv"));
+        if (fileChooser.showSaveDialog(this) != javax.swing.JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.nio.file.Path file = fileChooser.getSelectedFile().toPath();
+        String extension = fileChooser.getFileFilter() == xlsxFilter ? ".xlsx" : ".csv";
+        if (!file.getFileName().toString().toLowerCase().endsWith(extension)) {
+            file = file.resolveSibling(file.getFileName() + extension);
+        }
+        java.nio.file.Path target = file;
+        
+        exportMenuItem.setEnabled(false);
+        StudentExporter exporter = new StudentExporter(studentRepository, EXPORT_CHUNK_SIZE);
+        asyncStudentDAO.countStudents().thenComposeAsync(total -> {
+            javax.swing.ProgressMonitor progressMonitor = new javax.swing.ProgressMonitor(this, "Mengekspor ke " + target.getFileName(), "", 0, Math.max(total, 1));
+            progressMonitor.setMillisToDecideToPopup(200);
+            return asyncStudentDAO.submit(() -> exporter.export(target, StudentExporter.Format.of(target), written ->
+                    javax.swing.SwingUtilities.invokeLater(() -> {
+                        if (progressMonitor.isCanceled()) {
+                            exporter.cancel();
+                        }
+                        progressMonitor.setProgress((int) Math.min(written, total));
+                        progressMonitor.setNote(written + " dari " + total + " mahasiswa");
+                    })))
+                    .whenCompleteAsync((rows, error) -> progressMonitor.close(), AsyncStudentDAO.EDT);
+        }, AsyncStudentDAO.EDT).whenCompleteAsync((rows, error) -> {
+            exportMenuItem.setEnabled(true);
+            Throwable cause = error != null && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof java.util.concurrent.CancellationException) {
+                return;
+            }
+            if (cause != null) {
+                cause.printStackTrace();
+                JOptionPane.showMessageDialog(null, "Gagal mengekspor data: " + cause.getLocalizedMessage(), "Ekspor", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            JOptionPane.showMessageDialog(null, rows + " mahasiswa diekspor ke " + target, "Ekspor", JOptionPane.INFORMATION_MESSAGE);
+        }, AsyncStudentDAO.EDT);
+    }
+    
+    /**
+    * This method replaces the model of the students table with a model that loads the students
+    * page by page as they are displayed, and that applies every change made through the DAO to the affected row.
+    */
+    private void initStudentsTableModel() {
+        studentTableModel = new StudentTableModel(asyncStudentDAO, PAGE_SIZE, CACHED_PAGES);
+        studentRepository.addChangeListener(studentTableModel);
+        studentsTable.setModel(studentTableModel);
     }
     
     /**
     * This method sets a mouse click listener for the students table. When a row in the table is clicked,
-    * it fetches the student data and binds it to the UI.
+    * it fetches the student data and binds it to the UI. When a column header is clicked, the table is sorted on it.
     */
     private void setStudentsTableListener() {
+        studentsTable.getTableHeader().addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent evt) {
+                int column = studentsTable.columnAtPoint(evt.getPoint());
+                if (column != -1 && studentTableModel != null) {
+                    sortStudentsTable(studentsTable.convertColumnIndexToModel(column));
+                }
+            }
+        });
         studentsTable.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override
             public void mouseClicked(java.awt.event.MouseEvent evt) {
                 int selectedRow = studentsTable.getSelectedRow();
-                String nim = studentsTable.getValueAt(selectedRow, 0).toString();
-                bindStudentToUI(nim);
+                Object nim = selectedRow == -1 ? null : studentsTable.getValueAt(selectedRow, 0);
+                if (nim != null) {
+                    bindStudentToUI(nim.toString());
+                }
             }
         });
     }
     
     /**
     * This method fetches a student's data from the database using their NIM and displays it in the UI.
-    * It retrieves the data from the ResultSet and sets the text fields and labels in the UI.
+    * The student is read in the background through the student cache; when rows are clicked quickly, only the last
+    * clicked student is shown.
     * @param nim The NIM of the student whose data is to be fetched.
     */
     private void bindStudentToUI(String nim) {
-        ResultSet resultSet = studentDAO.getStudent(nim);
-        try {
-            if (resultSet.next()) {
-                this.nim = nim;
-                name = resultSet.getString("name");
-                scoreTugas = resultSet.getDouble("score_tugas");
-                scoreQuiz = resultSet.getDouble("score_quiz");
-                scoreUTS = resultSet.getDouble("score_uts");
-                scoreUAS = resultSet.getDouble("score_uas");
-                
-                double average = resultSet.getDouble("average");
-                String grade = resultSet.getString("grade");
-                String description = resultSet.getString("description");
-                
-                nameTextField.setText(name);
-                nimTextField.setText(nim);
-                tugasTextField.setText(Double.toString(scoreTugas));
-                quizTextField.setText(Double.toString(scoreQuiz));
-                utsTextField.setText(Double.toString(scoreUTS));
-                uasTextField.setText(Double.toString(scoreUAS));
-                
-                nameLabel.setText(name);
-                nimLabel.setText(nim);
-                averageLabel.setText(String.valueOf(average));
-                gradeLabel.setText(grade);
-                descriptionLabel.setText(description);
-            }
-        } catch (SQLException error) {
-            error.printStackTrace();
+        asyncStudentDAO.latest("bindStudentToUI", () -> studentCache.get(nim))
+                .thenAcceptAsync(this::bindStudentToUI, AsyncStudentDAO.EDT);
+    }
+    
+    /**
+    * This method displays a student's data in the UI by setting the text fields and labels.
+    * @param student The student to display, or null if the student no longer exists.
+    */
+    private void bindStudentToUI(Student student) {
+        if (student == null) {
+            return;
         }
+        loadedStudent = student;
+        nim = student.getNim();
+        name = student.getName();
+        scoreTugas = student.getScoreTugas();
+        scoreQuiz = student.getScoreQuiz();
+        scoreUTS = student.getScoreUTS();
+        scoreUAS = student.getScoreUAS();
+        
+        nameTextField.setText(name);
+        nimTextField.setText(nim);
+        tugasTextField.setText(Double.toString(scoreTugas));
+        quizTextField.setText(Double.toString(scoreQuiz));
+        utsTextField.setText(Double.toString(scoreUTS));
+        uasTextField.setText(Double.toString(scoreUAS));
+        
+        nameLabel.setText(name);
+        nimLabel.setText(nim);
+        averageLabel.setText(String.valueOf(student.getAverage()));
+        gradeLabel.setText(student.getGrade());
+        descriptionLabel.setText(student.getDescription());
     }
     
     /**
-    * This method calculates the average score of a student.
+    * This method calculates the average score of a student with the default grading engine.
     * @return The average score.
     */
     private double getAverage() {
-        return (scoreTugas + scoreQuiz + scoreUTS + scoreUAS) / 4;
+        return GradingEngine.DEFAULT.average(scoreTugas, scoreQuiz, scoreUTS, scoreUAS);
     }
     
     /**
     * This method assigns a grade to a student based on their average score.
+    * @param average The average score.
     * @return The grade.
     */
-    private String getGrade() {
-        String grade;
-        double score = getAverage();
-        
-        if (score >= 90) {
-            grade = "A";
-        } else if (score >= 85) {
-            grade = "A-";
-        } else if (score >= 80) {
-            grade = "B+";
-        } else if (score >= 75) {
-            grade = "B";
-        } else if (score >= 70) {
-            grade = "B-";
-        } else if (score >= 65) {
-            grade = "C+";
-        } else if (score >= 60) {
-            grade = "C";
-        } else if (score >= 55) {
-            grade = "C-";
-        } else if (score >= 50) {
-            grade = "D";
-        } else {
-            grade = "E";
-        }
-        return grade;
+    private String getGrade(double average) {
+        return GradingEngine.DEFAULT.grade(average);
     }
     
     /**
     * This method determines whether a student has passed or failed based on their average score.
+    * @param average The average score.
     * @return The pass/fail status.
     */
-    private String getDescription() {
-        if (getAverage() >= 60) {
-            return "Dinyatakan Lulus";
-        } 
-        return "Dinyatakan Tidak Lulus";   
+    private String getDescription(double average) {
+        return GradingEngine.DEFAULT.description(average);
     }
     
     /**
     * This method clears all the text fields in the UI.
     */
     private void resetTextFields() {
+        loadedStudent = null;
         nameTextField.setText("");
         nimTextField.setText("");
         tugasTextField.setText("");
@@ -205,137 +589,64 @@ public class StudentForm extends javax.swing.JFrame {
     }
     
     /**
-    * This method validates the name entered by the user. It checks if the name is not null, not empty,
-    * only contains letters, and is within the valid length range. If the name is invalid, it displays
-    * an error message and returns false. Otherwise, it returns true.
-    * @return Whether the name is valid.
+    * This method validates the scores entered by the user with the StudentValidator. If any score is invalid,
+    * it displays every error in one message and returns false. Otherwise, it assigns the scores to the
+    * corresponding properties and returns true.
+    * @return Whether all the scores are valid.
     */
-    private boolean validateName() {
-        name = nameTextField.getText();
-
-        if (name == null || name.trim().isEmpty()) {
-            JOptionPane.showMessageDialog(null, String.format(ERROR_EMPTY, "Nama"));
-            return false;
-        }
-        
-        if (!name.matches("[a-zA-Z ]+")) {
-            JOptionPane.showMessageDialog(null, String.format(ERROR_ONLY_LETTERS, "Nama"));
-            return false;
-        }
-        
-        if (name.length() < 3) {
-            JOptionPane.showMessageDialog(null, ERROR_NAME_TOO_SHORT);
-            return false;
-        }
-        
-        if (name.length() > 100) {
-            JOptionPane.showMessageDialog(null, ERROR_NAME_TOO_LONG);
+    private boolean validateScores() {
+        java.util.List<StudentValidator.FieldError> errors = StudentValidator.validateScores(
+                tugasTextField.getText(), quizTextField.getText(), utsTextField.getText(), uasTextField.getText());
+        if (!errors.isEmpty()) {
+            showValidationErrors(errors);
             return false;
         }
+        assignScores();
         return true;
     }
 
     /**
-    * This method validates the NIM entered by the user. It checks if the NIM is not null, not empty,
-    * is numeric, and is of the valid length. If the NIM is invalid, it displays an error message and
-    * returns false. Otherwise, it returns true.
-    * @return Whether the NIM is valid.
+    * This method validates all the text fields in the UI with the StudentValidator. If any field is invalid,
+    * it displays every error in one message and returns false. Otherwise, it assigns the scores to the
+    * corresponding properties and returns true.
+    * @return Whether all the text fields are valid.
     */
-    private boolean validateNim() {
+    private boolean validateTextFields() {
+        name = nameTextField.getText();
         nim = nimTextField.getText();
-
-        if (nim == null || nim.trim().isEmpty()) {
-            JOptionPane.showMessageDialog(null, String.format(ERROR_EMPTY, "NIM"));
-            return false;
-        }
-
-        if (!nim.matches("[0-9]+")) {
-            JOptionPane.showMessageDialog(null, String.format(ERROR_NOT_NUMERIC, "NIM"));
-            return false;
-        }
-
-        if (nim.length() != 10) {
-            JOptionPane.showMessageDialog(null, ERROR_NIM_INVALID_LENGTH);
-            return false;
-        }
-        return true;
-    }
-
-    /**
-    * This method validates a score entered by the user. It checks if the score is a number and is within
-    * the valid range (0 to 100). If the score is invalid, it displays an error message and returns false.
-    * Otherwise, it assigns the score to the corresponding property and returns true.
-    * @param scoreStr The score as a string.
-    * @param fieldName The name of the field (used in the error message).
-    * @return Whether the score is valid.
-    */
-    private boolean validateScore(String scoreStr, String fieldName) {
-        try {
-            double score = Double.parseDouble(scoreStr);
-            
-            if (score < 0 || score > 100) {
-                JOptionPane.showMessageDialog(null, String.format(ERROR_SCORE_OUT_OF_RANGE, fieldName));
-                return false;
-            }
-            
-            switch (fieldName) {
-                case "Tugas":
-                    scoreTugas = score;
-                    break;
-                case "Kuis":
-                    scoreQuiz = score;
-                    break;
-                case "UTS":
-                    scoreUTS = score;
-                    break;
-                case "UAS":
-                    scoreUAS = score;
-                    break;
-            }
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(null, String.format(ERROR_NOT_A_NUMBER, fieldName));
+        java.util.List<StudentValidator.FieldError> errors = StudentValidator.validate(nim, name,
+                tugasTextField.getText(), quizTextField.getText(), utsTextField.getText(), uasTextField.getText());
+        if (!errors.isEmpty()) {
+            showValidationErrors(errors);
             return false;
         }
-
+        assignScores();
         return true;
     }
     
     /**
-    * This method validates all the scores entered by the user. It calls the validateScore method for each
-    * score. If any score is invalid, it returns false. Otherwise, it returns true.
-    * @return Whether all the scores are valid.
+    * This method assigns the validated scores of the text fields to the score properties.
     */
-    private boolean validateScores() {
-        if (!validateScore(tugasTextField.getText(), "Tugas")) {
-            return false;
-        }
-
-        if (!validateScore(quizTextField.getText(), "Kuis")) {
-            return false;
-        }
-
-        if (!validateScore(utsTextField.getText(), "UTS")) {
-            return false;
-        }
-
-        return validateScore(uasTextField.getText(), "UAS");
+    private void assignScores() {
+        scoreTugas = StudentValidator.parseScore(tugasTextField.getText());
+        scoreQuiz = StudentValidator.parseScore(quizTextField.getText());
+        scoreUTS = StudentValidator.parseScore(utsTextField.getText());
+        scoreUAS = StudentValidator.parseScore(uasTextField.getText());
     }
-
+    
     /**
-    * This method validates all the text fields in the UI. It calls the validateName, validateNim, and
-    * validateScores methods. If any field is invalid, it returns false. Otherwise, it returns true.
-    * @return Whether all the text fields are valid.
+    * This method displays the messages of all invalid fields in a single dialog.
+    * @param errors The invalid fields.
     */
-    private boolean validateTextFields() {
-        if (!validateName()) {
-            return false;
-        }
-
-        if (!validateNim()) {
-            return false;
+    private void showValidationErrors(java.util.List<StudentValidator.FieldError> errors) {
+        StringBuilder message = new StringBuilder();
+        for (StudentValidator.FieldError error : errors) {
+            if (message.length() > 0) {
+                message.append('\n');
+            }
+            message.append(error.getMessage());
         }
-        
-        return validateScores();
+        JOptionPane.showMessageDialog(null, message.toString());
     }
     
     /**
@@ -343,16 +654,19 @@ public class StudentForm extends javax.swing.JFrame {
     * It calls the getAverage, getGrade, and getDescription methods and sets the labels in the UI.
     */
     private void calculateScores() {
-        String averageText = String.valueOf(getAverage());
-        averageLabel.setText(averageText);
-        gradeLabel.setText(getGrade());
-        descriptionLabel.setText(getDescription());
+        double average = getAverage();
+        averageLabel.setText(String.valueOf(average));
+        gradeLabel.setText(getGrade(average));
+        descriptionLabel.setText(getDescription(average));
     }
     
     /**
     * This method saves the student data to the database if the input fields are valid. It validates the input fields,
-    * calculates the scores, and then either updates the existing student data or inserts new student data into the database.
-    * After saving the data, it reloads the data in the UI and displays a success message.
+    * calculates the scores, and then saves the student on the condition that nobody changed it since it was loaded:
+    * a student that was not loaded is inserted, a loaded student is updated only if its row version is unchanged.
+    * The statement runs in the background; the save button stays disabled until it completes. After saving the data,
+    * it displays a success message; the table model updates the saved row on its own.
+    * In write-behind mode the save is done once it is in the journal, without a version check: the last save wins.
     */
     private void saveData() {
         if (validateTextFields()) {
@@ -360,38 +674,127 @@ public class StudentForm extends javax.swing.JFrame {
             setNIMLabel();
             calculateScores();
             
-            if (studentDAO.studentExists(nim)) {
-                studentDAO.updateStudent(nim, name, scoreTugas, scoreQuiz, scoreUTS, scoreUAS, getAverage(), getGrade(), getDescription());
-            } else {
-                studentDAO.insertStudent(nim, name, scoreTugas, scoreQuiz, scoreUTS, scoreUAS, getAverage(), getGrade(), getDescription());
+            double average = getAverage();
+            if (writeBehindFlusher != null) {
+                saveWriteBehind(new Student(nim, name, scoreTugas, scoreQuiz, scoreUTS, scoreUAS, average, getGrade(average), getDescription(average)));
+                return;
             }
-            loadData();
-            JOptionPane.showMessageDialog(null, "Berhasil menyimpan data.");
+            long version = loadedStudent != null && loadedStudent.getNim().equals(nim) ? loadedStudent.getVersion() : 0;
+            saveStudent(new Student(nim, name, scoreTugas, scoreQuiz, scoreUTS, scoreUAS, average, getGrade(average), getDescription(average), version));
         }
     }
     
     /**
-    * This method fetches all students data from the database and displays it in the table. It creates a new row in the table
-    * for each student and sets the cells in the row to the student's data.
+    * This method saves a student to the write-behind journal. The save is confirmed as soon as the journal is synced
+    * to disk; the table shows it once it is drained to the database.
+    * @param student The student to save.
     */
-    private void loadData() {
-        try {
-            ResultSet resultSet = studentDAO.getStudents();
-            DefaultTableModel model = (DefaultTableModel) studentsTable.getModel();
-            model.setRowCount(0);
-            while (resultSet.next()) {
-                Object[] row = new Object[5];
-                row[0] = resultSet.getString("nim");
-                row[1] = resultSet.getString("name");
-                row[2] = resultSet.getDouble("average");
-                row[3] = resultSet.getString("grade");
-                row[4] = resultSet.getString("description");
-                model.addRow(row);
+    private void saveWriteBehind(Student student) {
+        saveButton.setEnabled(false);
+        writeBehindFlusher.save(student).whenCompleteAsync((result, error) -> {
+            saveButton.setEnabled(true);
+            if (error != null) {
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(null, "Gagal menyimpan data ke jurnal.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        } catch (SQLException error) {
-            error.printStackTrace();
+            JOptionPane.showMessageDialog(null, "Berhasil menyimpan data.");
+        }, AsyncStudentDAO.EDT);
+    }
+    
+    /**
+    * This method saves a student in the background and handles the result on the event dispatch thread.
+    * @param student The student to save, with the row version it was loaded with, or 0 to insert it.
+    */
+    private void saveStudent(Student student) {
+        saveButton.setEnabled(false);
+        asyncStudentDAO.saveStudent(student).whenCompleteAsync((result, error) -> {
+            saveButton.setEnabled(true);
+            if (error != null) {
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(null, "Gagal menyimpan data.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            switch (result.getStatus()) {
+                case SAVED:
+                    loadedStudent = result.getStudent();
+                    JOptionPane.showMessageDialog(null, "Berhasil menyimpan data.");
+                    break;
+                case CONFLICT:
+                    resolveConflict(student, result.getCurrent());
+                    break;
+                case NOT_FOUND:
+                    if (JOptionPane.showConfirmDialog(null, "Data mahasiswa " + student.getNim() + " telah dihapus oleh pengguna lain.\n"
+                            + "Simpan sebagai data baru?", "Data Dihapus", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                        saveStudent(student.withVersion(0));
+                    }
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(null, "Gagal menyimpan data.", "Error", JOptionPane.ERROR_MESSAGE);
+                    break;
+            }
+        }, AsyncStudentDAO.EDT);
+    }
+    
+    /**
+    * This method is called when a student was changed by someone else since it was loaded. It shows the fields
+    * that differ and lets the user merge the changes, reload the student, or cancel the save.
+    * Merging keeps the fields the user changed and takes the other fields from the current row, then saves again
+    * against the current row version.
+    * @param mine The student as the user tried to save it.
+    * @param current The student as it is in the database now.
+    */
+    private void resolveConflict(Student mine, Student current) {
+        Student base = loadedStudent != null && loadedStudent.getNim().equals(mine.getNim()) ? loadedStudent : current;
+        String[] fields = {"Nama", "Nilai Tugas", "Nilai Kuis", "Nilai UTS", "Nilai UAS"};
+        Object[] baseValues = fieldValues(base);
+        Object[] mineValues = fieldValues(mine);
+        Object[] currentValues = fieldValues(current);
+        
+        StringBuilder message = new StringBuilder("Data mahasiswa " + mine.getNim() + " telah diubah oleh pengguna lain.\n");
+        for (int i = 0; i < fields.length; i++) {
+            if (!mineValues[i].equals(currentValues[i])) {
+                message.append("\n").append(fields[i]).append(": ").append(currentValues[i]).append(" -> ").append(mineValues[i]);
+            }
+        }
+        String[] options = {"Gabungkan", "Muat Ulang", "Batal"};
+        int choice = JOptionPane.showOptionDialog(null, message.toString(), "Konflik Data", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+        if (choice == 0) {
+            Object[] merged = new Object[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                merged[i] = mineValues[i].equals(baseValues[i]) ? currentValues[i] : mineValues[i];
+            }
+            double mergedTugas = (Double) merged[1];
+            double mergedQuiz = (Double) merged[2];
+            double mergedUTS = (Double) merged[3];
+            double mergedUAS = (Double) merged[4];
+            double average = GradingEngine.DEFAULT.average(mergedTugas, mergedQuiz, mergedUTS, mergedUAS);
+            Student student = new Student(mine.getNim(), (String) merged[0], mergedTugas, mergedQuiz, mergedUTS, mergedUAS, average,
+                    GradingEngine.DEFAULT.grade(average), GradingEngine.DEFAULT.description(average), current.getVersion());
+            bindStudentToUI(student);
+            saveStudent(student);
+        } else if (choice == 1) {
+            bindStudentToUI(current);
         }
     }
+    
+    /**
+    * This method lists the fields of a student that the user can edit, in the order of the conflict dialog.
+    * @param student The student to read.
+    * @return The name and the four scores.
+    */
+    private static Object[] fieldValues(Student student) {
+        return new Object[] {String.valueOf(student.getName()), student.getScoreTugas(), student.getScoreQuiz(), student.getScoreUTS(), student.getScoreUAS()};
+    }
+    
+    /**
+    * This method reloads the students table. Only the number of students is read here; the rows are
+    * fetched page by page as they are displayed.
+    */
+    private void loadData() {
+        studentTableModel.refresh();
+    }
        
     /**
      * This method is called from within the constructor to initialize the form.
@@ -743,18 +1146,28 @@ public class StudentForm extends javax.swing.JFrame {
 
     private void resetButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_resetButtonActionPerformed
         int selectedRow = studentsTable.getSelectedRow();
+        // A row whose page is still loading has no NIM yet
+        Object selectedNim = selectedRow == -1 ? null : studentsTable.getValueAt(selectedRow, 0);
         if (selectedRow == -1) {
             JOptionPane.showMessageDialog(null, "Silakan pilih data yang ingin direset.", "Tidak ada data yang dipilih", JOptionPane.WARNING_MESSAGE);
+        } else if (selectedNim == null) {
+            JOptionPane.showMessageDialog(null, "Data masih dimuat, silakan coba lagi.", "Data belum tersedia", JOptionPane.WARNING_MESSAGE);
         } else {
             Object[] options = {"Ya", "Tidak"};
             int confirm = JOptionPane.showOptionDialog(null, "Apakah Anda yakin ingin mereset data?", "Konfirmasi Reset", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
             if (confirm == JOptionPane.YES_OPTION) {
-                String nim = studentsTable.getValueAt(selectedRow, 0).toString();
-                studentDAO.deleteStudent(nim);
-                resetTextFields();
-                resetLabels();
-                studentsTable.clearSelection();
-                loadData();
+                String nim = selectedNim.toString();
+                resetButton.setEnabled(false);
+                asyncStudentDAO.deleteStudent(nim).whenCompleteAsync((result, error) -> {
+                    resetButton.setEnabled(true);
+                    if (error != null) {
+                        error.printStackTrace();
+                        return;
+                    }
+                    resetTextFields();
+                    resetLabels();
+                    studentsTable.clearSelection();
+                }, AsyncStudentDAO.EDT);
             }
         }
     }//GEN-LAST:event_resetButtonActionPerformed
@@ -767,10 +1180,44 @@ public class StudentForm extends javax.swing.JFrame {
         }
     }//GEN-LAST:event_calculateButtonActionPerformed
     
+    /**
+    * This method publishes the database metrics over JMX and, when the studentform.metrics.port system
+    * property is set, as plain text at http://localhost:PORT/metrics together with the event dispatch latencies.
+    * Failing to publish them does not stop the form.
+    * @param eventQueue The instrumented event queue, or null when event dispatch is not monitored.
+    */
+    private static void startMetrics(InstrumentedEventQueue eventQueue) {
+        try {
+            DatabaseMetrics.DEFAULT.registerMBean();
+        } catch (javax.management.JMException error) {
+            error.printStackTrace();
+        }
+        String port = System.getProperty(METRICS_PORT_PROPERTY);
+        if (port != null) {
+            try {
+                MetricsServer metricsServer = new MetricsServer(DatabaseMetrics.DEFAULT, Integer.parseInt(port.trim()));
+                if (eventQueue != null) {
+                    metricsServer.addSource(eventQueue);
+                }
+                metricsServer.start();
+                System.out.println("Metrics available at http://localhost:" + metricsServer.getPort() + "/metrics");
+            } catch (java.io.IOException | NumberFormatException error) {
+                error.printStackTrace();
+            }
+        }
+    }
+    
     /**
      * @param args the command line arguments
      */
     public static void main(String args[]) {
+        InstrumentedEventQueue eventQueue = null;
+        if (Boolean.getBoolean(EDT_MONITOR_PROPERTY)) {
+            eventQueue = InstrumentedEventQueue.install(Long.getLong(EDT_STALL_MILLIS_PROPERTY, DEFAULT_EDT_STALL_MILLIS),
+                    java.nio.file.Paths.get(System.getProperty(EDT_STALL_REPORT_PROPERTY, DEFAULT_EDT_STALL_REPORT)));
+        }
+        startMetrics(eventQueue);
+        
         /* Set the Nimbus look and feel */
 
         /* Create and display the form */
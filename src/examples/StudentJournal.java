@@ -0,0 +1,355 @@
+package examples;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of saved students that makes a save durable before it reaches the database.
+ *
+ * Each record is written as its length, the CRC32 of its payload and the payload: a save of a
+ * student under a sequence number, or a checkpoint saying every save up to a sequence number is
+ * in the database. Appends are written by one thread, which writes and syncs everything queued
+ * since its previous sync at once, so concurrent saves share one fsync (group commit). A checkpoint
+ * that covers the last save truncates the file instead of growing it.
+ *
+ * When the journal is opened, the saves after the last checkpoint are read back for replay. A
+ * record cut short or damaged by a crash ends the journal; it and anything after it are dropped.
+ */
+public class StudentJournal implements Closeable {
+    private static final byte SAVE = 1;
+    private static final byte CHECKPOINT = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<String, Record> recovered = new LinkedHashMap<>();
+    private final Thread writer;
+
+    private final Object lock = new Object();
+    private List<Pending> queue = new ArrayList<>();
+    private boolean closed;
+
+    private long recoveredSequence;
+    // The sequence number of the last save written to the file; only used by the writer thread
+    private long lastWrittenSequence;
+    private long syncCount;
+    private long recordCount;
+
+    /**
+     * Opens the journal file, creating it if it does not exist, and reads back the saves that are
+     * not covered by a checkpoint.
+     *
+     * @param file the journal file
+     * @throws IOException if the file cannot be opened or read
+     */
+    public StudentJournal(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            replay();
+        } catch (IOException | RuntimeException error) {
+            channel.close();
+            throw error;
+        }
+        lastWrittenSequence = recoveredSequence;
+        writer = new Thread(this::write, "student-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * A save read back from the journal.
+     */
+    public static class Record {
+        private final long sequence;
+        private final Student student;
+
+        Record(long sequence, Student student) {
+            this.sequence = sequence;
+            this.student = student;
+        }
+
+        /**
+         * @return the sequence number the student was saved under
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return the saved student
+         */
+        public Student getStudent() {
+            return student;
+        }
+    }
+
+    private static final class Pending {
+        final byte type;
+        final long sequence;
+        final ByteBuffer record;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(byte type, long sequence, ByteBuffer record) {
+            this.type = type;
+            this.sequence = sequence;
+            this.record = record;
+        }
+    }
+
+    /**
+     * Returns the saves found in the journal when it was opened that no checkpoint covers, the
+     * last save of each NIM only, in sequence order.
+     *
+     * @return the saves to replay
+     */
+    public List<Record> getRecovered() {
+        List<Record> records = new ArrayList<>(recovered.values());
+        records.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        return records;
+    }
+
+    /**
+     * @return the greatest sequence number found in the journal when it was opened, or 0
+     */
+    public long getRecoveredSequence() {
+        return recoveredSequence;
+    }
+
+    /**
+     * Queues a save. Saves must be appended in increasing sequence order.
+     *
+     * @param sequence the sequence number of the save
+     * @param student the saved student
+     * @return a future completed once the save is synced to disk
+     */
+    public CompletableFuture<Void> append(long sequence, Student student) {
+        return enqueue(new Pending(SAVE, sequence, encode(SAVE, sequence, student)));
+    }
+
+    /**
+     * Queues a checkpoint: every save up to the sequence number is in the database, or superseded
+     * by a later save of the same NIM.
+     *
+     * @param sequence the sequence number of the last save covered
+     * @return a future completed once the checkpoint is synced to disk
+     */
+    public CompletableFuture<Void> checkpoint(long sequence) {
+        return enqueue(new Pending(CHECKPOINT, sequence, encode(CHECKPOINT, sequence, null)));
+    }
+
+    private CompletableFuture<Void> enqueue(Pending pending) {
+        synchronized (lock) {
+            if (closed) {
+                pending.future.completeExceptionally(new IOException("The journal " + file + " is closed"));
+            } else {
+                queue.add(pending);
+                lock.notifyAll();
+            }
+        }
+        return pending.future;
+    }
+
+    /**
+     * @return the number of fsyncs so far
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * @return the number of records written so far
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes what is queued, waits for the writer to finish and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void write() {
+        while (true) {
+            List<Pending> batch;
+            synchronized (lock) {
+                while (queue.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException error) {
+                        return;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                batch = queue;
+                queue = new ArrayList<>();
+            }
+            try {
+                writeBatch(batch);
+                for (Pending pending : batch) {
+                    pending.future.complete(null);
+                }
+            } catch (IOException | RuntimeException error) {
+                for (Pending pending : batch) {
+                    pending.future.completeExceptionally(error);
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        Pending last = batch.get(batch.size() - 1);
+        List<ByteBuffer> records = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            if (pending.type == SAVE) {
+                lastWrittenSequence = pending.sequence;
+            }
+            records.add(pending.record);
+        }
+        if (last.type == CHECKPOINT && last.sequence >= lastWrittenSequence) {
+            // Everything written is in the database; start over with an empty file
+            channel.truncate(0);
+        } else {
+            ByteBuffer[] buffers = records.toArray(new ByteBuffer[records.size()]);
+            channel.position(channel.size());
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+        channel.force(false);
+        synchronized (this) {
+            syncCount++;
+            recordCount += batch.size();
+        }
+    }
+
+    private static ByteBuffer encode(byte type, long sequence, Student student) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            out.writeLong(sequence);
+            if (student != null) {
+                out.writeUTF(student.getNim());
+                writeNullable(out, student.getName());
+                out.writeDouble(student.getScoreTugas());
+                out.writeDouble(student.getScoreQuiz());
+                out.writeDouble(student.getScoreUTS());
+                out.writeDouble(student.getScoreUAS());
+                out.writeDouble(student.getAverage());
+                writeNullable(out, student.getGrade());
+                writeNullable(out, student.getDescription());
+            }
+        } catch (IOException error) {
+            throw new IllegalStateException(error);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, record.limit() - HEADER_BYTES);
+        record.putInt(0, record.limit() - HEADER_BYTES);
+        record.putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private void replay() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || length > MAX_RECORD_BYTES || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            try {
+                apply(new DataInputStream(new ByteArrayInputStream(payload.array())));
+            } catch (EOFException | IllegalArgumentException error) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        if (position < size) {
+            System.err.println("Dropping " + (size - position) + " damaged bytes at the end of the journal " + file);
+            channel.truncate(position);
+            channel.force(false);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        long sequence = in.readLong();
+        if (type == SAVE) {
+            Student student = new Student(in.readUTF(), readNullable(in), in.readDouble(), in.readDouble(), in.readDouble(),
+                    in.readDouble(), in.readDouble(), readNullable(in), readNullable(in));
+            recovered.remove(student.getNim());
+            recovered.put(student.getNim(), new Record(sequence, student));
+        } else if (type == CHECKPOINT) {
+            recovered.values().removeIf(record -> record.sequence <= sequence);
+        } else {
+            throw new IllegalArgumentException("Unknown record type " + type);
+        }
+        recoveredSequence = Math.max(recoveredSequence, sequence);
+    }
+}
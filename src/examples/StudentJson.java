@@ -0,0 +1,223 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts students, queries and statistics to and from the JSON values of {@link Json},
+ * as exchanged by {@link StudentServer} and {@link HttpStudentRepository}.
+ */
+final class StudentJson {
+
+    private StudentJson() {
+    }
+
+    static Map<String, Object> toJson(Student student) {
+        if (student == null) {
+            return null;
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("nim", student.getNim());
+        json.put("name", student.getName());
+        json.put("scoreTugas", student.getScoreTugas());
+        json.put("scoreQuiz", student.getScoreQuiz());
+        json.put("scoreUTS", student.getScoreUTS());
+        json.put("scoreUAS", student.getScoreUAS());
+        json.put("average", student.getAverage());
+        json.put("grade", student.getGrade());
+        json.put("description", student.getDescription());
+        json.put("version", student.getVersion());
+        return json;
+    }
+
+    static List<Map<String, Object>> toJson(Collection<Student> students) {
+        List<Map<String, Object>> json = new ArrayList<>(students.size());
+        for (Student student : students) {
+            json.add(toJson(student));
+        }
+        return json;
+    }
+
+    static Student toStudent(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Map<?, ?> json = object(value);
+        return new Student((String) json.get("nim"), (String) json.get("name"), number(json.get("scoreTugas")),
+                number(json.get("scoreQuiz")), number(json.get("scoreUTS")), number(json.get("scoreUAS")),
+                number(json.get("average")), (String) json.get("grade"), (String) json.get("description"),
+                json.get("version") == null ? 0 : ((Number) json.get("version")).longValue());
+    }
+
+    static List<Student> toStudents(Object value) {
+        List<?> json = array(value);
+        List<Student> students = new ArrayList<>(json.size());
+        for (Object element : json) {
+            students.add(toStudent(element));
+        }
+        return students;
+    }
+
+    static Map<String, Object> toJson(SaveResult result) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("status", result.getStatus().name());
+        json.put("student", toJson(result.getStudent()));
+        json.put("current", toJson(result.getCurrent()));
+        return json;
+    }
+
+    static SaveResult toSaveResult(Object value) {
+        Map<?, ?> json = object(value);
+        return new SaveResult(SaveResult.Status.valueOf((String) json.get("status")), toStudent(json.get("student")), toStudent(json.get("current")));
+    }
+
+    static List<Map<String, Object>> toChangesJson(List<StudentChange> changes) {
+        List<Map<String, Object>> json = new ArrayList<>(changes.size());
+        for (StudentChange change : changes) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("sequence", change.getSequence());
+            entry.put("type", change.getType().name());
+            entry.put("nim", change.getNim());
+            entry.put("student", toJson(change.getStudent()));
+            json.add(entry);
+        }
+        return json;
+    }
+
+    static List<StudentChange> toChanges(Object value) {
+        List<?> json = array(value);
+        List<StudentChange> changes = new ArrayList<>(json.size());
+        for (Object element : json) {
+            Map<?, ?> entry = object(element);
+            changes.add(new StudentChange(((Number) entry.get("sequence")).longValue(), StudentChangeEvent.Type.valueOf((String) entry.get("type")),
+                    (String) entry.get("nim"), toStudent(entry.get("student"))));
+        }
+        return changes;
+    }
+
+    static Map<String, Object> toJson(StudentQuery query) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("grades", new ArrayList<>(query.getGrades()));
+        json.put("description", query.getDescription());
+        json.put("minAverage", query.getMinAverage());
+        json.put("maxAverage", query.getMaxAverage());
+        json.put("sortColumn", query.getSortColumn().name());
+        json.put("descending", query.isDescending());
+        return json;
+    }
+
+    static StudentQuery toStudentQuery(Object value) {
+        if (value == null) {
+            return StudentQuery.ALL;
+        }
+        Map<?, ?> json = object(value);
+        List<?> grades = json.get("grades") == null ? new ArrayList<>() : array(json.get("grades"));
+        Object sortColumn = json.get("sortColumn");
+        return StudentQuery.ALL
+                .withGrades(grades.toArray(new String[grades.size()]))
+                .withDescription((String) json.get("description"))
+                .withAverageBetween(boxed(json.get("minAverage")), boxed(json.get("maxAverage")))
+                .sortedBy(sortColumn == null ? StudentQuery.SortColumn.NIM : StudentQuery.SortColumn.valueOf((String) sortColumn),
+                        Boolean.TRUE.equals(json.get("descending")));
+    }
+
+    static Map<String, Object> toJson(CohortStatistics statistics) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("count", statistics.count);
+        json.put("passCount", statistics.passCount);
+        json.put("mean", list(statistics.mean));
+        json.put("standardDeviation", list(statistics.standardDeviation));
+        json.put("min", list(statistics.min));
+        json.put("max", list(statistics.max));
+        json.put("gradeCounts", statistics.gradeCounts);
+        List<Object> sketches = new ArrayList<>();
+        List<Object> letterCounts = new ArrayList<>();
+        for (int component = 0; component < CohortStatistics.COMPONENTS.length; component++) {
+            sketches.add(list(statistics.sketches[component].toSparseBins()));
+            letterCounts.add(list(statistics.letterCounts[component]));
+        }
+        json.put("sketches", sketches);
+        json.put("letterCounts", letterCounts);
+        return json;
+    }
+
+    static CohortStatistics toStatistics(Object value) {
+        Map<?, ?> json = object(value);
+        CohortStatistics statistics = new CohortStatistics();
+        statistics.count = (long) number(json.get("count"));
+        statistics.passCount = (long) number(json.get("passCount"));
+        readDoubles(json.get("mean"), statistics.mean);
+        readDoubles(json.get("standardDeviation"), statistics.standardDeviation);
+        readDoubles(json.get("min"), statistics.min);
+        readDoubles(json.get("max"), statistics.max);
+        for (Map.Entry<?, ?> entry : object(json.get("gradeCounts")).entrySet()) {
+            statistics.gradeCounts.put(String.valueOf(entry.getKey()), (long) number(entry.getValue()));
+        }
+        List<?> sketches = array(json.get("sketches"));
+        List<?> letterCounts = array(json.get("letterCounts"));
+        for (int component = 0; component < CohortStatistics.COMPONENTS.length; component++) {
+            List<?> pairs = array(sketches.get(component));
+            long[] bins = new long[pairs.size()];
+            for (int i = 0; i < bins.length; i++) {
+                bins[i] = (long) number(pairs.get(i));
+            }
+            statistics.sketches[component].addSparseBins(bins);
+            List<?> letters = array(letterCounts.get(component));
+            for (int letter = 0; letter < CohortStatistics.LETTERS.length; letter++) {
+                statistics.letterCounts[component][letter] = (long) number(letters.get(letter));
+            }
+        }
+        return statistics;
+    }
+
+    private static List<Object> list(double[] values) {
+        List<Object> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static List<Object> list(long[] values) {
+        List<Object> list = new ArrayList<>(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static void readDoubles(Object value, double[] into) {
+        List<?> json = array(value);
+        for (int i = 0; i < into.length; i++) {
+            into[i] = number(json.get(i));
+        }
+    }
+
+    static Map<?, ?> object(Object value) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<?, ?>) value;
+    }
+
+    static List<?> array(Object value) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Expected a JSON array");
+        }
+        return (List<?>) value;
+    }
+
+    /**
+     * Reads a number, treating null, written for a number that is not finite, as NaN.
+     */
+    static double number(Object value) {
+        return value == null ? Double.NaN : ((Number) value).doubleValue();
+    }
+
+    private static Double boxed(Object value) {
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+}
@@ -0,0 +1,263 @@
+package examples;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A filter and sort order over the students table, run by {@link StudentDAO#queryStudents(StudentQuery, Student, int)}.
+ *
+ * A query filters by grade, description and average range and sorts on one column, with the NIM
+ * as tie-breaker so the order is total and pages can be read with keyset conditions. Queries are
+ * immutable; the with methods return a modified copy. Every sort column, and the grade and
+ * description filters, are backed by the indexes added in migrations/001_secondary_indexes.sql; a
+ * filter sorted by another column still sorts the rows it reads. The columns are expected to be non-null,
+ * as they always are for students saved by StudentForm.
+ */
+public final class StudentQuery {
+
+    /**
+     * Every student in NIM order.
+     */
+    public static final StudentQuery ALL = new StudentQuery(Collections.<String>emptySet(), null, null, null, SortColumn.NIM, false);
+
+    /**
+     * The columns a query can sort on.
+     */
+    public enum SortColumn {
+        NIM("nim"),
+        NAME("name"),
+        AVERAGE("average"),
+        GRADE("grade"),
+        DESCRIPTION("description");
+
+        private final String column;
+
+        SortColumn(String column) {
+            this.column = column;
+        }
+
+        /**
+         * @return the name of the column in the students table
+         */
+        public String getColumn() {
+            return column;
+        }
+
+        Object valueOf(Student student) {
+            switch (this) {
+                case NAME:
+                    return student.getName();
+                case AVERAGE:
+                    return student.getAverage();
+                case GRADE:
+                    return student.getGrade();
+                case DESCRIPTION:
+                    return student.getDescription();
+                default:
+                    return student.getNim();
+            }
+        }
+    }
+
+    private final Set<String> grades;
+    private final String description;
+    private final Double minAverage;
+    private final Double maxAverage;
+    private final SortColumn sortColumn;
+    private final boolean descending;
+
+    private StudentQuery(Set<String> grades, String description, Double minAverage, Double maxAverage, SortColumn sortColumn, boolean descending) {
+        this.grades = grades;
+        this.description = description;
+        this.minAverage = minAverage;
+        this.maxAverage = maxAverage;
+        this.sortColumn = sortColumn;
+        this.descending = descending;
+    }
+
+    /**
+     * @param grades the grades to keep; none to keep every grade
+     * @return a copy of this query keeping only the students with one of the grades
+     */
+    public StudentQuery withGrades(String... grades) {
+        Set<String> kept = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(grades)));
+        return new StudentQuery(kept, description, minAverage, maxAverage, sortColumn, descending);
+    }
+
+    /**
+     * @param description the description to keep, or null to keep every description
+     * @return a copy of this query keeping only the students with the description
+     */
+    public StudentQuery withDescription(String description) {
+        return new StudentQuery(grades, description, minAverage, maxAverage, sortColumn, descending);
+    }
+
+    /**
+     * @param minAverage the lowest average to keep, or null for no lower bound
+     * @param maxAverage the highest average to keep, or null for no upper bound
+     * @return a copy of this query keeping only the students whose average is in the range
+     */
+    public StudentQuery withAverageBetween(Double minAverage, Double maxAverage) {
+        return new StudentQuery(grades, description, minAverage, maxAverage, sortColumn, descending);
+    }
+
+    /**
+     * @param sortColumn the column to sort on
+     * @param descending whether to sort in descending order
+     * @return a copy of this query sorted on the column, then on the NIM in the same direction
+     */
+    public StudentQuery sortedBy(SortColumn sortColumn, boolean descending) {
+        return new StudentQuery(grades, description, minAverage, maxAverage, sortColumn, descending);
+    }
+
+    /**
+     * @return the grades kept, or an empty set if every grade is kept
+     */
+    public Set<String> getGrades() {
+        return grades;
+    }
+
+    /**
+     * @return the description kept, or null if every description is kept
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the lowest average kept, or null
+     */
+    public Double getMinAverage() {
+        return minAverage;
+    }
+
+    /**
+     * @return the highest average kept, or null
+     */
+    public Double getMaxAverage() {
+        return maxAverage;
+    }
+
+    /**
+     * @return the column sorted on
+     */
+    public SortColumn getSortColumn() {
+        return sortColumn;
+    }
+
+    /**
+     * @return whether the order is descending
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @return whether this query keeps every student in NIM order, like {@link #ALL}
+     */
+    public boolean isAll() {
+        return grades.isEmpty() && description == null && minAverage == null && maxAverage == null && sortColumn == SortColumn.NIM && !descending;
+    }
+
+    /**
+     * Tests a student against the filters of this query, as the database would.
+     *
+     * @param student the student to test
+     * @return whether the query keeps the student
+     */
+    public boolean matches(Student student) {
+        return (grades.isEmpty() || grades.contains(student.getGrade()))
+                && (description == null || description.equals(student.getDescription()))
+                && (minAverage == null || student.getAverage() >= minAverage)
+                && (maxAverage == null || student.getAverage() <= maxAverage);
+    }
+
+    /**
+     * Appends the WHERE clause of the filters, and of the keyset condition when after is given.
+     *
+     * @param sql the statement being built
+     * @param params receives the parameters of the clause
+     * @param after the last student of the previous page, or null
+     */
+    void appendWhere(StringBuilder sql, List<Object> params, Student after) {
+        String glue = " WHERE ";
+        if (!grades.isEmpty()) {
+            sql.append(glue).append("grade IN (");
+            String separator = "";
+            for (String grade : grades) {
+                sql.append(separator).append('?');
+                params.add(grade);
+                separator = ", ";
+            }
+            sql.append(')');
+            glue = " AND ";
+        }
+        if (description != null) {
+            sql.append(glue).append("description = ?");
+            params.add(description);
+            glue = " AND ";
+        }
+        if (minAverage != null) {
+            sql.append(glue).append("average >= ?");
+            params.add(minAverage);
+            glue = " AND ";
+        }
+        if (maxAverage != null) {
+            sql.append(glue).append("average <= ?");
+            params.add(maxAverage);
+            glue = " AND ";
+        }
+        if (after != null) {
+            String comparison = descending ? " < ?" : " > ?";
+            if (sortColumn == SortColumn.NIM) {
+                sql.append(glue).append("nim").append(comparison);
+            } else {
+                String column = sortColumn.getColumn();
+                sql.append(glue).append('(').append(column).append(comparison)
+                        .append(" OR (").append(column).append(" = ? AND nim").append(comparison).append("))");
+                params.add(sortColumn.valueOf(after));
+                params.add(sortColumn.valueOf(after));
+            }
+            params.add(after.getNim());
+        }
+    }
+
+    /**
+     * Appends the ORDER BY clause of this query.
+     *
+     * @param sql the statement being built
+     */
+    void appendOrderBy(StringBuilder sql) {
+        String direction = descending ? " DESC" : "";
+        sql.append(" ORDER BY ");
+        if (sortColumn != SortColumn.NIM) {
+            sql.append(sortColumn.getColumn()).append(direction).append(", ");
+        }
+        sql.append("nim").append(direction);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof StudentQuery)) {
+            return false;
+        }
+        StudentQuery query = (StudentQuery) other;
+        return grades.equals(query.grades) && Objects.equals(description, query.description) && Objects.equals(minAverage, query.minAverage)
+                && Objects.equals(maxAverage, query.maxAverage) && sortColumn == query.sortColumn && descending == query.descending;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(grades, description, minAverage, maxAverage, sortColumn, descending);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentQuery[grades=" + grades + ", description=" + description + ", average=" + minAverage + ".." + maxAverage
+                + ", sort=" + sortColumn + (descending ? " DESC" : "") + "]";
+    }
+}
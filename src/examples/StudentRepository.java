@@ -0,0 +1,152 @@
+package examples;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The student operations the form and its views need, whether the students are read from the
+ * database directly ({@link StudentDAO}) or through a {@link StudentServer} ({@link HttpStudentRepository}).
+ *
+ * Like StudentDAO, the methods report a failed call by returning null, an empty list or 0, except
+ * where they declare an exception.
+ */
+public interface StudentRepository {
+
+    /**
+     * Registers a listener that is told about every change made through this repository.
+     *
+     * @param listener the listener to add
+     */
+    void addChangeListener(StudentChangeListener listener);
+
+    /**
+     * Removes a listener added with {@link #addChangeListener(StudentChangeListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    void removeChangeListener(StudentChangeListener listener);
+
+    /**
+     * Finds the student with the specified NIM.
+     *
+     * @param nim the NIM of the student to find
+     * @return the student, or null if there is no such student or the call failed
+     */
+    Student findStudent(String nim);
+
+    /**
+     * Finds the students with the specified NIMs.
+     *
+     * @param nims the NIMs of the students to find
+     * @return the students that exist, in NIM order
+     */
+    List<Student> findStudents(Collection<String> nims);
+
+    /**
+     * @return the number of students
+     */
+    int countStudents();
+
+    /**
+     * @param studentQuery the filters to apply
+     * @return the number of students kept by the query
+     */
+    int countStudents(StudentQuery studentQuery);
+
+    /**
+     * Retrieves the page of students that follows afterNim in NIM order.
+     *
+     * @param afterNim the last NIM of the previous page, or null for the first page
+     * @param limit the maximum number of students to retrieve
+     * @return the students of the page, in NIM order
+     */
+    List<Student> getStudentsAfter(String afterNim, int limit);
+
+    /**
+     * Retrieves the students at positions offset to offset + limit - 1 in NIM order.
+     *
+     * @param offset the position of the first student to retrieve
+     * @param limit the maximum number of students to retrieve
+     * @return the students of the page, in NIM order
+     */
+    List<Student> getStudentPage(int offset, int limit);
+
+    /**
+     * Retrieves the page of students kept by a query that follows after in the order of the query.
+     *
+     * @param studentQuery the filters and sort order to apply
+     * @param after the last student of the previous page, or null for the first page
+     * @param limit the maximum number of students to retrieve
+     * @return the students of the page, in the order of the query
+     */
+    List<Student> queryStudents(StudentQuery studentQuery, Student after, int limit);
+
+    /**
+     * Retrieves the students kept by a query at positions offset to offset + limit - 1 in the order of the query.
+     *
+     * @param studentQuery the filters and sort order to apply
+     * @param offset the position of the first student to retrieve
+     * @param limit the maximum number of students to retrieve
+     * @return the students of the page, in the order of the query
+     */
+    List<Student> queryStudentPage(StudentQuery studentQuery, int offset, int limit);
+
+    /**
+     * Reads the page of students that follows afterNim in NIM order into the columnar store.
+     *
+     * @param columns the store to append the students to
+     * @param afterNim the last NIM of the previous page, or null for the first page
+     * @param limit the maximum number of students to read
+     * @return the last NIM read, or null if the page was empty
+     * @throws SQLException if the page cannot be read
+     */
+    String readStudentsAfter(StudentColumns columns, String afterNim, int limit) throws SQLException;
+
+    /**
+     * Inserts the student, or updates the student with the same NIM if it already exists.
+     *
+     * @param student the student to save
+     */
+    void upsertStudent(Student student);
+
+    /**
+     * Saves the student only if its row was not changed since the student was read: a student with
+     * version 0 is inserted, any other student is updated only if its row still has its version.
+     *
+     * @param student the student to save, with the version it was read with
+     * @return the saved student with its new version, or the conflict and the row as it is now
+     */
+    SaveResult saveStudent(Student student);
+
+    /**
+     * Deletes the student with the specified NIM.
+     *
+     * @param nim the NIM of the student to delete
+     */
+    void deleteStudent(String nim);
+
+    /**
+     * Reads the changes made to the students table after a sequence number, by any client.
+     *
+     * @param sequence the sequence number of the last change already seen, or 0 for all changes
+     * @param limit the maximum number of changes to read
+     * @return the changes, in sequence order, each with the student as it is now
+     * @throws SQLException if the change log cannot be read
+     */
+    List<StudentChange> getChangesSince(long sequence, int limit) throws SQLException;
+
+    /**
+     * @return the sequence number of the latest change, or 0 if no change was logged
+     * @throws SQLException if the change log cannot be read
+     */
+    long getLastChangeSequence() throws SQLException;
+
+    /**
+     * Computes the statistics of the whole students table.
+     *
+     * @return the statistics
+     * @throws SQLException if the students cannot be read
+     */
+    CohortStatistics getStatistics() throws SQLException;
+}
@@ -0,0 +1,410 @@
+package examples;
+
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory search index over the NIM and name of every student, for type-ahead search.
+ *
+ * A query made of digits matches the students whose NIM starts with it. NIMs are fixed-width
+ * decimal keys, so instead of a trie they are kept as packed longs in one sorted array, where the
+ * NIMs with a given prefix form a contiguous range found by two binary searches. Any other query
+ * matches the students whose name contains it, ignoring case: every trigram of every name maps to
+ * the sorted list of NIMs having it, and a query walks the list of its rarest trigram in NIM order,
+ * seeks forward in the lists of its other trigrams, checks the name of each common NIM, and stops
+ * at the limit. Queries of one or two letters scan the names in NIM order.
+ *
+ * The index is built by reading the table page by page and is kept up to date as a
+ * StudentChangeListener. Bulk changes rebuild it in the background; changes made while a rebuild
+ * reads the table are replayed on the rebuilt index. It may be searched and changed from any thread.
+ */
+public class StudentSearchIndex implements StudentChangeListener {
+    private static final int GRAM = 3;
+    private static final int NIM_LENGTH = 10;
+
+    private final StudentRepository studentRepository;
+    private final int pageSize;
+    private final Executor executor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private Data data = new Data();
+    private List<StudentChangeEvent> pendingChanges;
+    private volatile boolean ready;
+
+    /**
+     * Constructs a new, empty StudentSearchIndex. Call {@link #rebuildAsync()} to fill it.
+     *
+     * @param studentRepository the DAO or other repository to read the students with
+     * @param pageSize the number of students read per query when building the index
+     * @param executor the executor running the rebuilds
+     */
+    public StudentSearchIndex(StudentRepository studentRepository, int pageSize, Executor executor) {
+        this.studentRepository = studentRepository;
+        this.pageSize = pageSize;
+        this.executor = executor;
+    }
+
+    /**
+     * @return whether the index has been built at least once
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of students in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database on the executor.
+     *
+     * @return a future completed once the rebuilt index is in use
+     */
+    public CompletableFuture<Void> rebuildAsync() {
+        return CompletableFuture.runAsync(this::rebuild, executor);
+    }
+
+    /**
+     * Rebuilds the index from the database. The current index keeps answering searches meanwhile,
+     * and is kept if the database cannot be read.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Data rebuilt = null;
+        StudentColumns page = new StudentColumns(pageSize);
+        try {
+            Data read = new Data();
+            String lastNim = null;
+            do {
+                page.clear();
+                lastNim = studentRepository.readStudentsAfter(page, lastNim, pageSize);
+                for (int i = 0; i < page.size(); i++) {
+                    read.append(page.getPackedNim(i), normalize(page.getName(i)));
+                }
+            } while (lastNim != null && page.size() == pageSize);
+            rebuilt = read;
+        } catch (SQLException error) {
+            error.printStackTrace();
+        } finally {
+            // Stop collecting changes however the read ended, or they would pile up until the next rebuild
+            lock.writeLock().lock();
+            try {
+                if (rebuilt != null) {
+                    for (StudentChangeEvent event : pendingChanges) {
+                        rebuilt.apply(event);
+                    }
+                    data = rebuilt;
+                    ready = true;
+                }
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Finds the students matching a query: those whose NIM starts with it if it is made of digits,
+     * otherwise those whose name contains it, ignoring case.
+     *
+     * @param query the text typed by the user
+     * @param limit the maximum number of students to return
+     * @return the NIMs of the first matching students, in NIM order; the list cannot be modified
+     */
+    public List<String> search(String query, int limit) {
+        String trimmed = query.trim();
+        long[] nims;
+        lock.readLock().lock();
+        try {
+            nims = isDigits(trimmed) ? data.searchNim(trimmed, limit) : data.searchName(normalize(trimmed), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new NimList(nims);
+    }
+
+    /**
+     * Applies a change made through the DAO. Bulk changes rebuild the index on the executor.
+     *
+     * @param event the change
+     */
+    @Override
+    public void studentChanged(StudentChangeEvent event) {
+        if (event.getType() == StudentChangeEvent.Type.BULK_CHANGED) {
+            rebuildAsync();
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            data.apply(event);
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isDigits(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(String text, int start) {
+        return (long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2);
+    }
+
+    /**
+     * The contents of the index: the NIMs in order with the lowercased names, and the posting list of every trigram.
+     */
+    private static final class Data {
+        private long[] nims = new long[1024];
+        private String[] names = new String[1024];
+        private int size;
+
+        private final Map<Long, Postings> postings = new HashMap<>();
+
+        /**
+         * Adds a student whose NIM is greater than every NIM in the index.
+         */
+        void append(long nim, String name) {
+            insertAt(size, nim, name);
+        }
+
+        void apply(StudentChangeEvent event) {
+            long nim;
+            try {
+                nim = StudentColumns.packNim(event.getNim());
+            } catch (IllegalArgumentException error) {
+                return;
+            }
+            switch (event.getType()) {
+                case INSERTED:
+                case UPDATED:
+                    if (event.getStudent() != null) {
+                        put(nim, normalize(event.getStudent().getName()));
+                    }
+                    break;
+                case DELETED:
+                    remove(nim);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void put(long nim, String name) {
+            int position = Arrays.binarySearch(nims, 0, size, nim);
+            if (position < 0) {
+                insertAt(-position - 1, nim, name);
+            } else if (!name.equals(names[position])) {
+                unindexName(nim, names[position]);
+                names[position] = name;
+                indexName(nim, name);
+            }
+        }
+
+        private void insertAt(int position, long nim, String name) {
+            if (size == nims.length) {
+                nims = Arrays.copyOf(nims, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+            }
+            System.arraycopy(nims, position, nims, position + 1, size - position);
+            System.arraycopy(names, position, names, position + 1, size - position);
+            nims[position] = nim;
+            names[position] = name;
+            size++;
+            indexName(nim, name);
+        }
+
+        private void remove(long nim) {
+            int position = Arrays.binarySearch(nims, 0, size, nim);
+            if (position < 0) {
+                return;
+            }
+            unindexName(nim, names[position]);
+            size--;
+            System.arraycopy(nims, position + 1, nims, position, size - position);
+            System.arraycopy(names, position + 1, names, position, size - position);
+            names[size] = null;
+        }
+
+        private void indexName(long nim, String name) {
+            for (int i = 0; i + GRAM <= name.length(); i++) {
+                postings.computeIfAbsent(gram(name, i), key -> new Postings()).add(nim);
+            }
+        }
+
+        private void unindexName(long nim, String name) {
+            for (int i = 0; i + GRAM <= name.length(); i++) {
+                Long key = gram(name, i);
+                Postings list = postings.get(key);
+                if (list != null && list.remove(nim) && list.size == 0) {
+                    postings.remove(key);
+                }
+            }
+        }
+
+        long[] searchNim(String prefix, int limit) {
+            if (prefix.length() > NIM_LENGTH) {
+                return new long[0];
+            }
+            long scale = 1;
+            for (int i = prefix.length(); i < NIM_LENGTH; i++) {
+                scale *= 10;
+            }
+            long low = Long.parseLong(prefix) * scale;
+            int from = lowerBound(nims, size, low);
+            int to = lowerBound(nims, size, low + scale);
+            return Arrays.copyOfRange(nims, from, Math.min(to, from + limit));
+        }
+
+        long[] searchName(String query, int limit) {
+            if (query.length() < GRAM) {
+                return scanNames(query, limit);
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (int i = 0; i + GRAM <= query.length(); i++) {
+                Postings list = postings.get(gram(query, i));
+                if (list == null) {
+                    return new long[0];
+                }
+                lists.add(list);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+            // Walk the rarest list in NIM order, seeking forward in the others, and stop at the limit
+            Postings rarest = lists.get(0);
+            int[] cursors = new int[lists.size()];
+            long[] result = new long[Math.min(limit, rarest.size)];
+            int matches = 0;
+            candidates:
+            for (int i = 0; i < rarest.size && matches < result.length; i++) {
+                long nim = rarest.ids[i];
+                for (int l = 1; l < cursors.length; l++) {
+                    Postings list = lists.get(l);
+                    int position = Arrays.binarySearch(list.ids, cursors[l], list.size, nim);
+                    if (position < 0) {
+                        cursors[l] = -position - 1;
+                        if (cursors[l] == list.size) {
+                            break candidates;
+                        }
+                        continue candidates;
+                    }
+                    cursors[l] = position + 1;
+                }
+                if (cursors.length == 1 || names[Arrays.binarySearch(nims, 0, size, nim)].contains(query)) {
+                    result[matches++] = nim;
+                }
+            }
+            return Arrays.copyOf(result, matches);
+        }
+
+        private long[] scanNames(String query, int limit) {
+            long[] result = new long[Math.min(limit, size)];
+            int matches = 0;
+            for (int i = 0; i < size && matches < result.length; i++) {
+                if (names[i].contains(query)) {
+                    result[matches++] = nims[i];
+                }
+            }
+            return Arrays.copyOf(result, matches);
+        }
+    }
+
+    private static int lowerBound(long[] values, int size, long value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * A sorted list of packed NIMs.
+     */
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            int position = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                position = -position - 1;
+            } else if (position < size) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            size--;
+            System.arraycopy(ids, position + 1, ids, position, size - position);
+            return true;
+        }
+    }
+
+    /**
+     * A read-only list of NIMs that unpacks each NIM when it is read.
+     */
+    private static final class NimList extends AbstractList<String> implements RandomAccess {
+        private final long[] nims;
+
+        NimList(long[] nims) {
+            this.nims = nims;
+        }
+
+        @Override
+        public String get(int index) {
+            return StudentColumns.unpackNim(nims[index]);
+        }
+
+        @Override
+        public int size() {
+            return nims.length;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package examples;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Headless server that exposes the student operations as a JSON API over HTTP, so many
+ * StudentForms can share one connection pool instead of each opening its own connections.
+ * Each request runs on a virtual thread when the JDK supports them.
+ *
+ * <pre>
+ * GET    /api/students?after=NIM&amp;limit=N    page in NIM order after a NIM (keyset)
+ * GET    /api/students?offset=N&amp;limit=N     page in NIM order at an offset
+ * GET    /api/students/count                 number of students
+ * POST   /api/students/count                 number of students kept by {"query": ...}
+ * POST   /api/students/query                 page of {"query": ..., "after": student | "offset": N, "limit": N}
+ * POST   /api/students/find                  students with {"nims": [...]}
+ * POST   /api/students/save                  save the student in the body if its version is current
+ * GET    /api/students/NIM                   one student, or 404
+ * PUT    /api/students/NIM                   insert or update the student in the body
+ * DELETE /api/students/NIM                   delete the student
+ * GET    /api/statistics                     statistics of the whole table
+ * GET    /api/changes?since=N&amp;limit=N       changes after a sequence number, with the students as they are now
+ * GET    /api/changes/last                   {"sequence": N} of the latest change
+ * </pre>
+ *
+ * Writes answer {"change": "INSERTED" | "UPDATED" | "DELETED" | null} so clients can tell their
+ * listeners what happened. A database error answers 503 when the database is unavailable and 500
+ * otherwise, never an empty result. Saves answer {"status": ..., "student": saved, "current": row on conflict}.
+ */
+public class StudentServer {
+    private static final String STUDENTS_PATH = "/api/students";
+    private static final String STATISTICS_PATH = "/api/statistics";
+    private static final String CHANGES_PATH = "/api/changes";
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 10000;
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int MIN_CONNECTIONS = 2;
+    private static final int MAX_CONNECTIONS = 16;
+
+    private final StudentRepository repository;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // The change made by the write running on this request's thread, as reported by the repository
+    private final ThreadLocal<StudentChangeEvent> lastChange = new ThreadLocal<>();
+
+    /**
+     * Creates a server for the repository. Call {@link #start()} to start serving.
+     *
+     * @param repository the repository to serve, usually a pooled StudentDAO
+     * @param address the address and port to listen on; port 0 picks a free port
+     * @throws IOException if the port cannot be opened
+     */
+    public StudentServer(StudentRepository repository, InetSocketAddress address) throws IOException {
+        this.repository = repository;
+        repository.addChangeListener(lastChange::set);
+        executor = AsyncStudentDAO.newExecutor(MAX_CONNECTIONS);
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext(STUDENTS_PATH, this::handle);
+        server.createContext(STATISTICS_PATH, this::handle);
+        server.createContext(CHANGES_PATH, this::handle);
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most delaySeconds for requests in progress.
+     *
+     * @param delaySeconds the longest time to wait for requests in progress
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Object response = route(exchange);
+            send(exchange, response == null ? 404 : 200, response == null ? error("Not found") : response);
+        } catch (IllegalArgumentException | ClassCastException | IndexOutOfBoundsException error) {
+            send(exchange, 400, error(error.getMessage()));
+        } catch (UnsupportedOperationException error) {
+            send(exchange, 405, error(error.getMessage()));
+        } catch (DataAccessException error) {
+            error.printStackTrace();
+            send(exchange, status(error.getSQLException()), error(error.getLocalizedMessage()));
+        } catch (SQLException error) {
+            error.printStackTrace();
+            send(exchange, status(error), error(error.getLocalizedMessage()));
+        } catch (RuntimeException error) {
+            error.printStackTrace();
+            send(exchange, 500, error(error.getLocalizedMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers 503 when the database cannot be reached or no connection became free in time, so clients
+     * know to try again later, and 500 for any other database error.
+     */
+    private static int status(SQLException error) {
+        boolean unavailable = error instanceof SQLTransientException
+                || (error.getSQLState() != null && error.getSQLState().startsWith("08"));
+        return unavailable ? 503 : 500;
+    }
+
+    /**
+     * Runs the request and returns the JSON value to answer with, or null for 404.
+     */
+    private Object route(HttpExchange exchange) throws IOException, SQLException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+
+        if (path.equals(STATISTICS_PATH)) {
+            requireMethod(method, "GET");
+            return StudentJson.toJson(repository.getStatistics());
+        }
+        if (path.equals(CHANGES_PATH)) {
+            requireMethod(method, "GET");
+            String since = parameters.get("since");
+            return StudentJson.toChangesJson(repository.getChangesSince(since == null ? 0 : Long.parseLong(since), limit(parameters.get("limit"))));
+        }
+        if (path.equals(CHANGES_PATH + "/last")) {
+            requireMethod(method, "GET");
+            return Collections.singletonMap("sequence", repository.getLastChangeSequence());
+        }
+        if (!path.equals(STUDENTS_PATH) && !path.startsWith(STUDENTS_PATH + "/")) {
+            return null;
+        }
+        String rest = path.length() > STUDENTS_PATH.length() ? path.substring(STUDENTS_PATH.length() + 1) : "";
+        switch (rest) {
+            case "":
+                requireMethod(method, "GET");
+                if (parameters.containsKey("offset")) {
+                    return StudentJson.toJson(repository.getStudentPage(Integer.parseInt(parameters.get("offset")), limit(parameters.get("limit"))));
+                }
+                return StudentJson.toJson(repository.getStudentsAfter(parameters.get("after"), limit(parameters.get("limit"))));
+            case "count": {
+                int count;
+                if (method.equals("GET")) {
+                    count = repository.countStudents();
+                } else {
+                    requireMethod(method, "POST");
+                    count = repository.countStudents(StudentJson.toStudentQuery(body(exchange).get("query")));
+                }
+                return Collections.singletonMap("count", count);
+            }
+            case "query": {
+                requireMethod(method, "POST");
+                Map<?, ?> body = body(exchange);
+                StudentQuery query = StudentJson.toStudentQuery(body.get("query"));
+                if (body.get("offset") != null) {
+                    return StudentJson.toJson(repository.queryStudentPage(query, ((Number) body.get("offset")).intValue(), limit(body.get("limit"))));
+                }
+                return StudentJson.toJson(repository.queryStudents(query, StudentJson.toStudent(body.get("after")), limit(body.get("limit"))));
+            }
+            case "find": {
+                requireMethod(method, "POST");
+                List<String> nims = new ArrayList<>();
+                for (Object nim : StudentJson.array(body(exchange).get("nims"))) {
+                    nims.add((String) nim);
+                }
+                if (nims.size() > MAX_LIMIT) {
+                    throw new IllegalArgumentException("At most " + MAX_LIMIT + " NIMs can be found at once");
+                }
+                return StudentJson.toJson(repository.findStudents(nims));
+            }
+            case "save": {
+                requireMethod(method, "POST");
+                Student student = StudentJson.toStudent(body(exchange));
+                if (student == null) {
+                    throw new IllegalArgumentException("Expected a student");
+                }
+                return StudentJson.toJson(repository.saveStudent(student));
+            }
+            default:
+                return routeStudent(exchange, method, rest);
+        }
+    }
+
+    private Object routeStudent(HttpExchange exchange, String method, String nim) throws IOException {
+        switch (method) {
+            case "GET":
+                return StudentJson.toJson(repository.findStudent(nim));
+            case "PUT": {
+                Student student = StudentJson.toStudent(body(exchange));
+                if (student == null || !nim.equals(student.getNim())) {
+                    throw new IllegalArgumentException("The NIM of the student does not match the path");
+                }
+                lastChange.remove();
+                repository.upsertStudent(student);
+                StudentChangeEvent change = takeChange();
+                if (change == null) {
+                    throw new IllegalStateException("The student could not be saved");
+                }
+                return change(change);
+            }
+            case "DELETE":
+                lastChange.remove();
+                repository.deleteStudent(nim);
+                return change(takeChange());
+            default:
+                throw new UnsupportedOperationException("Method " + method + " is not allowed");
+        }
+    }
+
+    private StudentChangeEvent takeChange() {
+        StudentChangeEvent change = lastChange.get();
+        lastChange.remove();
+        return change;
+    }
+
+    private static Map<String, Object> change(StudentChangeEvent change) {
+        return Collections.singletonMap("change", change == null ? null : change.getType().name());
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        return error;
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new UnsupportedOperationException("Method " + method + " is not allowed");
+        }
+    }
+
+    private static int limit(Object value) {
+        int limit = value == null ? DEFAULT_LIMIT : value instanceof Number ? ((Number) value).intValue() : Integer.parseInt((String) value);
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    private static Map<String, String> parameters(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    private static Map<?, ?> body(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return StudentJson.object(Json.parse(new String(body.toByteArray(), StandardCharsets.UTF_8)));
+    }
+
+    private static void send(HttpExchange exchange, int status, Object response) throws IOException {
+        byte[] body = Json.write(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Runs the server on a pooled connection to the database until the process is stopped.
+     *
+     * Configured with system properties: studentserver.port (default 8080); studentserver.host, the
+     * address to listen on (default: the loopback address only, as the API has no authentication;
+     * set it, for example to 0.0.0.0, to serve other hosts on a trusted network); studentserver.url, studentserver.user and
+     * studentserver.password, the database to connect to (default: the local students_db); and
+     * studentserver.createSchema=true to create the students table in an empty database, such as
+     * an embedded one, for example {@code -Dstudentserver.url=jdbc:h2:mem:students;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1}.
+     * With studentserver.store, the file of a {@link MappedStudentRepository}, the students are
+     * served from that file instead of a database.
+     *
+     * @param args ignored; see the description for the system properties
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        String storeFile = System.getProperty("studentserver.store");
+        if (storeFile != null) {
+            MappedStudentRepository store = new MappedStudentRepository(Paths.get(storeFile));
+            serve(store, () -> {
+                try {
+                    store.close();
+                } catch (IOException error) {
+                    error.printStackTrace();
+                }
+            });
+            return;
+        }
+        String url = System.getProperty("studentserver.url");
+        DatabaseConnection dbConnection = url == null ? new DatabaseConnection()
+                : new DatabaseConnection(url, System.getProperty("studentserver.user", ""), System.getProperty("studentserver.password", ""));
+        try {
+            dbConnection.connectPooled(MIN_CONNECTIONS, MAX_CONNECTIONS);
+        } catch (SQLException error) {
+            System.err.println("Cannot open the database: " + error.getLocalizedMessage());
+            System.exit(1);
+        }
+        StudentDAO studentDAO = new StudentDAO(dbConnection.getPool());
+        // A failed call must answer with an error, not with an empty list or 404
+        studentDAO.setRethrowErrors(true);
+        if (Boolean.getBoolean("studentserver.createSchema") && studentDAO.createSchema()) {
+            System.out.println("Created the students table");
+        }
+
+        serve(studentDAO, dbConnection::close);
+    }
+
+    private static void serve(StudentRepository repository, Runnable closeRepository) throws IOException {
+        String host = System.getProperty("studentserver.host");
+        int port = Integer.getInteger("studentserver.port", DEFAULT_PORT);
+        StudentServer server = new StudentServer(repository,
+                host == null ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port) : new InetSocketAddress(host, port));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            closeRepository.run();
+        }));
+        System.out.println("Student server listening on port " + server.getPort());
+    }
+}
@@ -0,0 +1,522 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model for the students table that loads rows one page at a time as they are displayed.
+ *
+ * Only the total row count is read up front. Pages are fetched in the background when a row
+ * on them is first shown (the row stays empty until its page arrives), kept in a small
+ * least-recently-used cache, and the page after the one being shown is prefetched.
+ * A page whose read failed is read again after a delay that doubles while reads keep failing.
+ * All state is owned by the event dispatch thread.
+ *
+ * Registered as a StudentChangeListener, the model applies single-row changes in place:
+ * a NIM-to-row index over the cached pages finds the affected row, and only the pages
+ * after it are dropped, so a save or delete costs at most one page reload.
+ *
+ * A StudentQuery filters and sorts the rows in the database; pages are then read with keyset
+ * conditions on the sort column, and changes that may move a row reload the table.
+ *
+ * A filter restricts the model to a list of NIMs, such as the result of a search. The pages of a
+ * filtered model are read by NIM, and a student missing from the database shows as an empty row.
+ */
+public class StudentTableModel extends AbstractTableModel implements StudentChangeListener {
+    private static final long serialVersionUID = 1L;
+    private static final int MIN_RETRY_MILLIS = 1000;
+    private static final int MAX_RETRY_MILLIS = 30000;
+
+    private static final String[] COLUMN_NAMES = {"NIM", "Nama", "Rerata", "Grade", "Keterangan"};
+    private static final Class<?>[] COLUMN_TYPES = {String.class, String.class, Double.class, String.class, String.class};
+    private static final StudentQuery.SortColumn[] SORT_COLUMNS = {StudentQuery.SortColumn.NIM, StudentQuery.SortColumn.NAME,
+        StudentQuery.SortColumn.AVERAGE, StudentQuery.SortColumn.GRADE, StudentQuery.SortColumn.DESCRIPTION};
+
+    private final transient AsyncStudentDAO studentDAO;
+    private final int pageSize;
+    private final int maxCachedPages;
+
+    private int rowCount;
+    private int generation;
+    private final Map<Integer, List<Student>> pages;
+    // Last student of every page read so far, so the next page can be read with a keyset query
+    private final Map<Integer, Student> pageEnds = new HashMap<>();
+    // Pages being read, with a token that tells a current read from one made obsolete by a change
+    private final Map<Integer, Object> loading = new HashMap<>();
+    // Pages whose last read failed, not read again until their retry timer fires
+    private final Set<Integer> failed = new HashSet<>();
+    // Delay before the next retry, 0 while reads succeed
+    private int retryMillis;
+    // Row of every student on a cached page
+    private final Map<String, Integer> rowByNim = new HashMap<>();
+    // Filters and sort order applied by the database
+    private StudentQuery query = StudentQuery.ALL;
+    // NIMs shown while a filter is set, in NIM order, or null to show every student
+    private List<String> filter;
+
+    /**
+     * Constructs a new StudentTableModel.
+     *
+     * @param studentDAO the asynchronous DAO to read students from
+     * @param pageSize the number of rows per page
+     * @param maxCachedPages the number of pages kept in memory
+     */
+    public StudentTableModel(AsyncStudentDAO studentDAO, int pageSize, int maxCachedPages) {
+        this.studentDAO = studentDAO;
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.pages = new LinkedHashMap<Integer, List<Student>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Student>> eldest) {
+                if (size() <= StudentTableModel.this.maxCachedPages) {
+                    return false;
+                }
+                unindexPage(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Shows only the students with the specified NIMs, or every student.
+     *
+     * @param nims the NIMs to show, in NIM order, or null to remove the filter; the list is not copied
+     * @return a future completed on the event dispatch thread once the new rows are counted
+     */
+    public CompletableFuture<Void> setFilter(List<String> nims) {
+        filter = nims;
+        return refresh();
+    }
+
+    /**
+     * Filters and sorts the rows with a query run by the database.
+     *
+     * @param query the query, or {@link StudentQuery#ALL} for every student in NIM order
+     * @return a future completed on the event dispatch thread once the new rows are counted
+     */
+    public CompletableFuture<Void> setQuery(StudentQuery query) {
+        this.query = query;
+        return refresh();
+    }
+
+    /**
+     * @return the query filtering and sorting the rows
+     */
+    public StudentQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Sorts the rows on a column, in ascending order, or in the opposite order if they are already sorted on it.
+     *
+     * @param columnIndex the column of the table model
+     * @return a future completed on the event dispatch thread once the new rows are counted
+     */
+    public CompletableFuture<Void> toggleSort(int columnIndex) {
+        StudentQuery.SortColumn sortColumn = SORT_COLUMNS[columnIndex];
+        boolean descending = query.getSortColumn() == sortColumn && !query.isDescending();
+        return setQuery(query.sortedBy(sortColumn, descending));
+    }
+
+    /**
+     * @return whether a filter is set
+     */
+    public boolean isFiltered() {
+        return filter != null;
+    }
+
+    /**
+     * Drops all cached pages and re-reads the number of students in the background.
+     * Rows are loaded again as they are shown.
+     *
+     * @return a future completed on the event dispatch thread once the new row count is applied
+     */
+    public CompletableFuture<Void> refresh() {
+        int requestedGeneration = ++generation;
+        pages.clear();
+        pageEnds.clear();
+        loading.clear();
+        failed.clear();
+        rowByNim.clear();
+        if (filter != null) {
+            rowCount = filter.size();
+            fireTableDataChanged();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Integer> request = query.isAll() ? studentDAO.countStudents() : studentDAO.countStudents(query);
+        return request.thenAcceptAsync(count -> {
+            if (requestedGeneration == generation) {
+                rowCount = count;
+                fireTableDataChanged();
+            }
+        }, AsyncStudentDAO.EDT);
+    }
+
+    /**
+     * Returns the student shown in the row if its page is loaded, and starts loading the page otherwise.
+     *
+     * @param rowIndex the row of the table model
+     * @return the student, or null if its page is still loading or the row no longer exists
+     */
+    public Student getStudentAt(int rowIndex) {
+        int pageIndex = rowIndex / pageSize;
+        List<Student> page = pages.get(pageIndex);
+        load(pageIndex + 1);
+        if (page == null) {
+            load(pageIndex);
+            return null;
+        }
+        int offset = rowIndex % pageSize;
+        if (offset >= page.size()) {
+            // A delete left this page short; read it again to pull up the rows that follow
+            if (page.size() < pageSize && (pageIndex + 1) * pageSize < rowCount && !loading.containsKey(pageIndex)) {
+                unindexPage(pageIndex, pages.remove(pageIndex));
+                load(pageIndex);
+            }
+            return null;
+        }
+        return page.get(offset);
+    }
+
+    /**
+     * Applies a change made through the DAO. May be called from any thread.
+     *
+     * @param event the change
+     */
+    @Override
+    public void studentChanged(StudentChangeEvent event) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> studentChanged(event));
+            return;
+        }
+        if (filter != null) {
+            filteredStudentChanged(event);
+            return;
+        }
+        if (!query.isAll()) {
+            queriedStudentChanged(event);
+            return;
+        }
+        switch (event.getType()) {
+            case INSERTED:
+            case UPDATED:
+                Integer row = rowByNim.get(event.getNim());
+                if (row != null) {
+                    updateRow(row, event.getStudent());
+                } else if (event.getType() == StudentChangeEvent.Type.INSERTED) {
+                    insertRow(event.getStudent());
+                }
+                break;
+            case DELETED:
+                deleteRow(event.getNim());
+                break;
+            default:
+                refresh();
+                break;
+        }
+    }
+
+    /**
+     * Applies a change while a filter is set. Inserted students are not shown until the filter changes.
+     */
+    private void filteredStudentChanged(StudentChangeEvent event) {
+        Integer row = rowByNim.get(event.getNim());
+        switch (event.getType()) {
+            case INSERTED:
+            case UPDATED:
+                if (row != null) {
+                    updateRow(row, event.getStudent());
+                }
+                break;
+            case DELETED:
+                int index = Collections.binarySearch(filter, event.getNim());
+                if (index >= 0) {
+                    filter = new ArrayList<>(filter);
+                    filter.remove(index);
+                    refresh();
+                }
+                break;
+            default:
+                refresh();
+                break;
+        }
+    }
+
+    /**
+     * Applies a change while a query other than {@link StudentQuery#ALL} is set. A student edited in place
+     * keeps its row if it still matches and its sort value did not change; other changes reload the table.
+     */
+    private void queriedStudentChanged(StudentChangeEvent event) {
+        Integer row = rowByNim.get(event.getNim());
+        switch (event.getType()) {
+            case INSERTED:
+            case UPDATED:
+                Student student = event.getStudent();
+                if (row != null) {
+                    Student shown = pages.get(row / pageSize).get(row % pageSize);
+                    StudentQuery.SortColumn sortColumn = query.getSortColumn();
+                    if (query.matches(student) && Objects.equals(sortColumn.valueOf(shown), sortColumn.valueOf(student))) {
+                        updateRow(row, student);
+                    } else {
+                        refresh();
+                    }
+                } else if (query.matches(student)) {
+                    refresh();
+                }
+                break;
+            case DELETED:
+                deleteRow(event.getNim());
+                break;
+            default:
+                refresh();
+                break;
+        }
+    }
+
+    private void updateRow(int row, Student student) {
+        int pageIndex = row / pageSize;
+        pages.get(pageIndex).set(row % pageSize, student);
+        fireTableRowsUpdated(row, row);
+    }
+
+    private void insertRow(Student student) {
+        for (Map.Entry<Integer, List<Student>> entry : pages.entrySet()) {
+            int pageIndex = entry.getKey();
+            List<Student> page = entry.getValue();
+            if (page.isEmpty()) {
+                continue;
+            }
+            boolean lastPage = (pageIndex + 1) * pageSize >= rowCount;
+            String nim = student.getNim();
+            if (nim.compareTo(page.get(0).getNim()) < 0 && pageIndex > 0) {
+                continue;
+            }
+            if (nim.compareTo(page.get(page.size() - 1).getNim()) > 0 && !lastPage) {
+                continue;
+            }
+            int offset = 0;
+            while (offset < page.size() && page.get(offset).getNim().compareTo(nim) < 0) {
+                offset++;
+            }
+            unindexPage(pageIndex, page);
+            page.add(offset, student);
+            if (page.size() > pageSize) {
+                page.remove(page.size() - 1);
+            }
+            indexPage(pageIndex, page);
+            pageEnds.put(pageIndex, page.get(page.size() - 1));
+            dropPagesAfter(pageIndex);
+            rowCount++;
+            int row = pageIndex * pageSize + offset;
+            fireTableRowsInserted(row, row);
+            return;
+        }
+        // The new row belongs to a page that is not cached; count again and reload what is visible
+        refresh();
+    }
+
+    private void deleteRow(String nim) {
+        Integer row = rowByNim.get(nim);
+        if (row == null) {
+            refresh();
+            return;
+        }
+        int pageIndex = row / pageSize;
+        List<Student> page = pages.get(pageIndex);
+        unindexPage(pageIndex, page);
+        page.remove(row % pageSize);
+        indexPage(pageIndex, page);
+        pageEnds.remove(pageIndex);
+        dropPagesAfter(pageIndex);
+        rowCount--;
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Drops the cached pages after pageIndex, whose rows moved after an insert or delete.
+     */
+    private void dropPagesAfter(int pageIndex) {
+        pages.entrySet().removeIf(entry -> {
+            if (entry.getKey() <= pageIndex) {
+                return false;
+            }
+            unindexPage(entry.getKey(), entry.getValue());
+            return true;
+        });
+        pageEnds.keySet().removeIf(index -> index > pageIndex);
+        loading.keySet().removeIf(index -> index > pageIndex);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    /**
+     * Returns the name of a column, followed by an arrow when the rows are sorted on it.
+     */
+    @Override
+    public String getColumnName(int columnIndex) {
+        if (query.getSortColumn() != SORT_COLUMNS[columnIndex] || query.isAll()) {
+            return COLUMN_NAMES[columnIndex];
+        }
+        return COLUMN_NAMES[columnIndex] + (query.isDescending() ? " \u25BC" : " \u25B2");
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return COLUMN_TYPES[columnIndex];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Student student = getStudentAt(rowIndex);
+        if (student == null) {
+            return null;
+        }
+        switch (columnIndex) {
+            case 0:
+                return student.getNim();
+            case 1:
+                return student.getName();
+            case 2:
+                return student.getAverage();
+            case 3:
+                return student.getGrade();
+            default:
+                return student.getDescription();
+        }
+    }
+
+    private void putPage(int pageIndex, List<Student> page) {
+        pages.put(pageIndex, page);
+        indexPage(pageIndex, page);
+        if (!page.isEmpty()) {
+            pageEnds.put(pageIndex, page.get(page.size() - 1));
+        }
+    }
+
+    private void indexPage(int pageIndex, List<Student> page) {
+        for (int i = 0; i < page.size(); i++) {
+            if (page.get(i) != null) {
+                rowByNim.put(page.get(i).getNim(), pageIndex * pageSize + i);
+            }
+        }
+    }
+
+    private void unindexPage(int pageIndex, List<Student> page) {
+        for (int i = 0; i < page.size(); i++) {
+            if (page.get(i) != null) {
+                rowByNim.remove(page.get(i).getNim(), pageIndex * pageSize + i);
+            }
+        }
+    }
+
+    private void load(int pageIndex) {
+        if (pageIndex * pageSize >= rowCount || pages.containsKey(pageIndex) || loading.containsKey(pageIndex) || failed.contains(pageIndex)) {
+            return;
+        }
+        Object token = new Object();
+        loading.put(pageIndex, token);
+        if (filter != null) {
+            loadFiltered(pageIndex, token);
+            return;
+        }
+        Student after = pageEnds.get(pageIndex - 1);
+        CompletableFuture<List<Student>> request;
+        if (pageIndex > 0 && after == null) {
+            request = query.isAll() ? studentDAO.getStudentPage(pageIndex * pageSize, pageSize)
+                    : studentDAO.queryStudentPage(query, pageIndex * pageSize, pageSize);
+        } else {
+            request = query.isAll() ? studentDAO.getStudentsAfter(after == null ? null : after.getNim(), pageSize)
+                    : studentDAO.queryStudents(query, after, pageSize);
+        }
+        request.whenCompleteAsync((page, error) -> {
+            if (!loading.remove(pageIndex, token)) {
+                return;
+            }
+            if (error != null) {
+                pageFailed(pageIndex, error);
+                return;
+            }
+            retryMillis = 0;
+            putPage(pageIndex, page);
+            firePageUpdated(pageIndex);
+        }, AsyncStudentDAO.EDT);
+    }
+
+    /**
+     * Reads a page of the filter by NIM and lines the students up with their NIMs.
+     */
+    private void loadFiltered(int pageIndex, Object token) {
+        List<String> nims = new ArrayList<>(filter.subList(pageIndex * pageSize, Math.min(filter.size(), (pageIndex + 1) * pageSize)));
+        studentDAO.findStudents(nims).whenCompleteAsync((students, error) -> {
+            if (!loading.remove(pageIndex, token)) {
+                return;
+            }
+            if (error != null) {
+                pageFailed(pageIndex, error);
+                return;
+            }
+            retryMillis = 0;
+            Map<String, Student> studentByNim = new HashMap<>();
+            for (Student student : students) {
+                studentByNim.put(student.getNim(), student);
+            }
+            List<Student> page = new ArrayList<>(nims.size());
+            for (String nim : nims) {
+                page.add(studentByNim.get(nim));
+            }
+            pages.put(pageIndex, page);
+            indexPage(pageIndex, page);
+            firePageUpdated(pageIndex);
+        }, AsyncStudentDAO.EDT);
+    }
+
+    /**
+     * Holds off reading a page whose read failed, then repaints its rows so the rows still shown
+     * read it again.
+     */
+    private void pageFailed(int pageIndex, Throwable error) {
+        // Report the first failure only, not one per page and retry while the database is away
+        if (retryMillis == 0) {
+            error.printStackTrace();
+        }
+        retryMillis = retryMillis == 0 ? MIN_RETRY_MILLIS : Math.min(MAX_RETRY_MILLIS, retryMillis * 2);
+        failed.add(pageIndex);
+        int requestedGeneration = generation;
+        Timer timer = new Timer(retryMillis, event -> {
+            if (requestedGeneration == generation && failed.remove(pageIndex)) {
+                firePageUpdated(pageIndex);
+            }
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    private void firePageUpdated(int pageIndex) {
+        int firstRow = pageIndex * pageSize;
+        int lastRow = Math.min(rowCount, firstRow + pageSize) - 1;
+        if (firstRow <= lastRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+}
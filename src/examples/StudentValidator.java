@@ -0,0 +1,314 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Validates student records as typed in StudentForm or read by a bulk import, and holds the
+ * messages shown for invalid fields.
+ *
+ * Every field of a record is checked and every invalid field is reported, not just the first.
+ * The checks scan the characters directly instead of matching regular expressions, and scores are
+ * parsed without throwing: the number is checked by a scanner first, and short decimals, which
+ * are all a form ever sees, are converted without Double.parseDouble. Valid records allocate nothing.
+ */
+public final class StudentValidator {
+
+    // Error Message Properties
+    public static final String ERROR_ONLY_LETTERS = "%s hanya boleh mengandung huruf";
+    public static final String ERROR_EMPTY = "%s tidak boleh kosong";
+    public static final String ERROR_NAME_TOO_SHORT = "Nama tidak boleh kurang dari 2 karakter";
+    public static final String ERROR_NAME_TOO_LONG = "Nama tidak boleh lebih dari 100 karakter";
+    public static final String ERROR_NOT_NUMERIC = "%s hanya boleh berisi angka";
+    public static final String ERROR_NIM_INVALID_LENGTH = "NIM harus terdiri dari 10 angka";
+    public static final String ERROR_NOT_A_NUMBER = "Nilai %s harus berupa angka";
+    public static final String ERROR_SCORE_OUT_OF_RANGE = "Nilai %s harus berada di antara 0 dan 100";
+
+    /**
+     * The names of the fields, in the order of a record: NIM, name, then the four scores.
+     */
+    public static final String[] FIELDS = {"NIM", "Nama", "Tugas", "Kuis", "UTS", "UAS"};
+
+    private static final int NIM_LENGTH = 10;
+    private static final int NAME_MIN_LENGTH = 3;
+    private static final int NAME_MAX_LENGTH = 100;
+    private static final int FAST_PATH_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private StudentValidator() {
+    }
+
+    /**
+     * An invalid field and the message explaining why.
+     */
+    public static final class FieldError {
+        private final String field;
+        private final String message;
+
+        FieldError(String field, String message) {
+            this.field = field;
+            this.message = message;
+        }
+
+        /**
+         * @return the name of the field, one of {@link #FIELDS}
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * @return the message to show
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return field + ": " + message;
+        }
+    }
+
+    /**
+     * Validates a record.
+     *
+     * @param nim the NIM
+     * @param name the name
+     * @param tugas the task score
+     * @param quiz the quiz score
+     * @param uts the UTS score
+     * @param uas the UAS score
+     * @return the invalid fields, in the order of {@link #FIELDS}; empty if the record is valid
+     */
+    public static List<FieldError> validate(String nim, String name, String tugas, String quiz, String uts, String uas) {
+        List<FieldError> errors = null;
+        errors = add(errors, FIELDS[0], checkNim(nim));
+        errors = add(errors, FIELDS[1], checkName(name));
+        errors = add(errors, FIELDS[2], checkScore(tugas, FIELDS[2]));
+        errors = add(errors, FIELDS[3], checkScore(quiz, FIELDS[3]));
+        errors = add(errors, FIELDS[4], checkScore(uts, FIELDS[4]));
+        errors = add(errors, FIELDS[5], checkScore(uas, FIELDS[5]));
+        return errors == null ? Collections.<FieldError>emptyList() : errors;
+    }
+
+    /**
+     * Validates the four scores of a record.
+     *
+     * @param tugas the task score
+     * @param quiz the quiz score
+     * @param uts the UTS score
+     * @param uas the UAS score
+     * @return the invalid scores; empty if all are valid
+     */
+    public static List<FieldError> validateScores(String tugas, String quiz, String uts, String uas) {
+        List<FieldError> errors = null;
+        errors = add(errors, FIELDS[2], checkScore(tugas, FIELDS[2]));
+        errors = add(errors, FIELDS[3], checkScore(quiz, FIELDS[3]));
+        errors = add(errors, FIELDS[4], checkScore(uts, FIELDS[4]));
+        errors = add(errors, FIELDS[5], checkScore(uas, FIELDS[5]));
+        return errors == null ? Collections.<FieldError>emptyList() : errors;
+    }
+
+    private static List<FieldError> add(List<FieldError> errors, String field, String message) {
+        if (message == null) {
+            return errors;
+        }
+        if (errors == null) {
+            errors = new ArrayList<>(2);
+        }
+        errors.add(new FieldError(field, message));
+        return errors;
+    }
+
+    /**
+     * Checks a name: not empty, only letters and spaces, and between 3 and 100 characters.
+     *
+     * @param name the name
+     * @return the error message, or null if the name is valid
+     */
+    public static String checkName(String name) {
+        if (isBlank(name)) {
+            return String.format(ERROR_EMPTY, "Nama");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == ' ')) {
+                return String.format(ERROR_ONLY_LETTERS, "Nama");
+            }
+        }
+        if (name.length() < NAME_MIN_LENGTH) {
+            return ERROR_NAME_TOO_SHORT;
+        }
+        if (name.length() > NAME_MAX_LENGTH) {
+            return ERROR_NAME_TOO_LONG;
+        }
+        return null;
+    }
+
+    /**
+     * Checks a NIM: not empty, only digits, and exactly 10 of them.
+     *
+     * @param nim the NIM
+     * @return the error message, or null if the NIM is valid
+     */
+    public static String checkNim(String nim) {
+        if (isBlank(nim)) {
+            return String.format(ERROR_EMPTY, "NIM");
+        }
+        for (int i = 0; i < nim.length(); i++) {
+            char c = nim.charAt(i);
+            if (c < '0' || c > '9') {
+                return String.format(ERROR_NOT_NUMERIC, "NIM");
+            }
+        }
+        if (nim.length() != NIM_LENGTH) {
+            return ERROR_NIM_INVALID_LENGTH;
+        }
+        return null;
+    }
+
+    /**
+     * Checks a score: a decimal number between 0 and 100.
+     *
+     * @param score the score as typed
+     * @param field the name of the field, used in the message
+     * @return the error message, or null if the score is valid
+     */
+    public static String checkScore(String score, String field) {
+        double value = parseScore(score);
+        if (value != value) {
+            return String.format(ERROR_NOT_A_NUMBER, field);
+        }
+        if (value < 0 || value > 100) {
+            return String.format(ERROR_SCORE_OUT_OF_RANGE, field);
+        }
+        return null;
+    }
+
+    /**
+     * Parses a decimal number such as "85", "-1.5" or "9.5e1", ignoring surrounding whitespace,
+     * without throwing. The result is the same double Double.parseDouble would return.
+     *
+     * @param text the text to parse
+     * @return the number, or NaN if the text is not a decimal number
+     */
+    public static double parseScore(String text) {
+        if (text == null) {
+            return Double.NaN;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (significantDigits > 0 || c != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits <= FAST_PATH_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (point) {
+                        fractionDigits++;
+                    }
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (i == end && significantDigits <= FAST_PATH_DIGITS && fractionDigits < POWERS_OF_TEN.length) {
+            // Both operands are exact doubles, so one division rounds correctly, like parseDouble
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int exponentStart = i;
+            while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == exponentStart) {
+                return Double.NaN;
+            }
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        // The scanner accepted the text, so parseDouble cannot throw here
+        return Double.parseDouble(text.substring(start, end));
+    }
+
+    private static boolean isBlank(String text) {
+        if (text == null) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Validates many records in parallel on the common fork/join pool.
+     *
+     * @param records the records, each made of the fields of {@link #FIELDS} in order
+     * @return the report of every invalid field, in record order
+     */
+    public static ValidationReport validateAll(List<String[]> records) {
+        long start = System.nanoTime();
+        List<ValidationReport.RecordError> errors = IntStream.range(0, records.size()).parallel()
+                .mapToObj(index -> validateRecord(index, records.get(index)))
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        return new ValidationReport(records.size(), errors, System.nanoTime() - start);
+    }
+
+    private static List<ValidationReport.RecordError> validateRecord(int index, String[] fields) {
+        if (fields.length != FIELDS.length) {
+            return Collections.singletonList(new ValidationReport.RecordError(index, fields.length > 0 ? fields[0] : null,
+                    null, "Record harus terdiri dari " + FIELDS.length + " kolom"));
+        }
+        List<FieldError> errors = validate(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]);
+        if (errors.isEmpty()) {
+            return null;
+        }
+        List<ValidationReport.RecordError> recordErrors = new ArrayList<>(errors.size());
+        for (FieldError error : errors) {
+            recordErrors.add(new ValidationReport.RecordError(index, fields[0], error.getField(), error.getMessage()));
+        }
+        return recordErrors;
+    }
+}
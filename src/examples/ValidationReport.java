@@ -0,0 +1,165 @@
+package examples;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outcome of validating many records with {@link StudentValidator#validateAll(List)}: every
+ * invalid field with the index and NIM of its record, and how many records were invalid.
+ */
+public class ValidationReport {
+    private final int recordCount;
+    private final int invalidCount;
+    private final List<RecordError> errors;
+    private final long elapsedNanos;
+
+    ValidationReport(int recordCount, List<RecordError> errors, long elapsedNanos) {
+        this.recordCount = recordCount;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedNanos = elapsedNanos;
+        int invalid = 0;
+        int lastIndex = -1;
+        for (RecordError error : errors) {
+            if (error.getIndex() != lastIndex) {
+                invalid++;
+                lastIndex = error.getIndex();
+            }
+        }
+        this.invalidCount = invalid;
+    }
+
+    /**
+     * An invalid field of one record.
+     */
+    public static class RecordError {
+        private final int index;
+        private final String nim;
+        private final String field;
+        private final String message;
+
+        RecordError(int index, String nim, String field, String message) {
+            this.index = index;
+            this.nim = nim;
+            this.field = field;
+            this.message = message;
+        }
+
+        /**
+         * @return the position of the record in the validated list
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the NIM of the record as given, which may itself be invalid
+         */
+        public String getNim() {
+            return nim;
+        }
+
+        /**
+         * @return the name of the field, one of {@link StudentValidator#FIELDS}, or null if the whole record is malformed
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * @return the message explaining why the field is invalid
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + " (" + nim + ") " + field + ": " + message;
+        }
+    }
+
+    /**
+     * @return the number of records validated
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the number of records with at least one invalid field
+     */
+    public int getInvalidCount() {
+        return invalidCount;
+    }
+
+    /**
+     * @return whether every record is valid
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * @return every invalid field, in record order
+     */
+    public List<RecordError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of times each message was reported, by message
+     */
+    public Map<String, Integer> getMessageCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (RecordError error : errors) {
+            counts.merge(error.getMessage(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * @return the time taken by the validation, in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    /**
+     * Writes the errors as CSV with the columns record, nim, field and message.
+     *
+     * @param out where to write the report
+     * @throws IOException if the report cannot be written
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("record,nim,field,message\n");
+        for (RecordError error : errors) {
+            out.append(Integer.toString(error.getIndex())).append(',');
+            appendCsv(out, error.getNim());
+            out.append(',');
+            appendCsv(out, error.getField());
+            out.append(',');
+            appendCsv(out, error.getMessage());
+            out.append('\n');
+        }
+    }
+
+    private static void appendCsv(Appendable out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationReport[records=" + recordCount + ", invalid=" + invalidCount + ", errors=" + errors.size()
+                + ", elapsed=" + getElapsedMillis() + " ms]";
+    }
+}
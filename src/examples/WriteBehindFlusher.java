@@ -0,0 +1,219 @@
+package examples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves students write-behind: a save is done once it is synced to a {@link StudentJournal}, and a
+ * background thread drains the saves to the database in batched transactions with
+ * {@link StudentDAO#upsertStudentsEach(java.util.Collection)}, which tells the DAO's listeners about
+ * each drained student rather than making them reload the table.
+ *
+ * Saves of the same NIM that have not been drained yet are coalesced, so only the last one is
+ * written. After each drain a checkpoint is written to the journal, which empties it once every
+ * save is in the database. Saves left in the journal by a crash are drained when the flusher starts.
+ * While the database cannot be reached the saves stay queued and the drain is retried, backing off
+ * to once every {@link #MAX_RETRY_MILLIS} ms, so they are written as soon as the connection comes back.
+ *
+ * Write-behind saves are unconditional: the last save of a NIM wins, whatever its row version.
+ * A row the database rejects for good, because a value does not fit (SQLState class 22) or breaks a
+ * constraint (class 23), is reported and dropped. Any other failed row, such as one hit by a deadlock,
+ * a lock wait timeout or a lost connection, stays queued and the checkpoint stays before it.
+ */
+public class WriteBehindFlusher implements Closeable {
+    static final long MAX_RETRY_MILLIS = 30000;
+
+    private final StudentDAO studentDAO;
+    private final StudentJournal journal;
+    private final long flushIntervalMillis;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+
+    // The saves not drained yet, by NIM, and the last sequence number given out; guarded by this
+    private final Map<String, StudentJournal.Record> queued = new LinkedHashMap<>();
+    private List<StudentJournal.Record> draining = new ArrayList<>();
+    private long lastSequence;
+    private long drainedCount;
+
+    // Only used by the scheduler thread
+    private long retryMillis;
+    private long nextAttempt;
+
+    /**
+     * Constructs a new WriteBehindFlusher. Call {@link #start()} to start draining.
+     *
+     * @param studentDAO the DAO the saves are drained to
+     * @param journal the journal the saves are made durable in
+     * @param flushIntervalMillis the time between drains
+     * @param batchSize the most students written in one drain; a full batch is drained without waiting
+     */
+    public WriteBehindFlusher(StudentDAO studentDAO, StudentJournal journal, long flushIntervalMillis, int batchSize) {
+        this.studentDAO = studentDAO;
+        this.journal = journal;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.batchSize = batchSize;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the saves left in the journal and starts draining.
+     */
+    public void start() {
+        synchronized (this) {
+            lastSequence = journal.getRecoveredSequence();
+            for (StudentJournal.Record record : journal.getRecovered()) {
+                queued.put(record.getStudent().getNim(), record);
+            }
+            if (!queued.isEmpty()) {
+                System.out.println("Replaying " + queued.size() + " saves from the journal");
+            }
+        }
+        scheduler.scheduleWithFixedDelay(this::drainQuietly, 0, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saves a student write-behind.
+     *
+     * @param student the student to save
+     * @return a future completed once the save is durable in the journal, not yet in the database
+     */
+    public CompletableFuture<Void> save(Student student) {
+        CompletableFuture<Void> durable;
+        boolean full;
+        synchronized (this) {
+            long sequence = ++lastSequence;
+            queued.remove(student.getNim());
+            queued.put(student.getNim(), new StudentJournal.Record(sequence, student));
+            // Appended while holding the lock, so the journal receives the saves in sequence order
+            durable = journal.append(sequence, student);
+            full = queued.size() >= batchSize;
+        }
+        if (full) {
+            scheduler.execute(this::drainQuietly);
+        }
+        return durable;
+    }
+
+    /**
+     * @return the number of saves not in the database yet
+     */
+    public synchronized int getPendingCount() {
+        return queued.size() + draining.size();
+    }
+
+    /**
+     * @return the number of saves written to the database so far
+     */
+    public synchronized long getDrainedCount() {
+        return drainedCount;
+    }
+
+    private void drainQuietly() {
+        if (System.currentTimeMillis() < nextAttempt) {
+            return;
+        }
+        try {
+            drain();
+        } catch (RuntimeException error) {
+            error.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the queued saves to the database, one batch at a time, and checkpoints the journal.
+     */
+    private void drain() {
+        while (true) {
+            List<StudentJournal.Record> batch = new ArrayList<>();
+            synchronized (this) {
+                for (Iterator<StudentJournal.Record> iterator = queued.values().iterator(); iterator.hasNext() && batch.size() < batchSize; ) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+                draining = batch;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<Student> students = new ArrayList<>(batch.size());
+            for (StudentJournal.Record record : batch) {
+                students.add(record.getStudent());
+            }
+            BatchResult result = studentDAO.upsertStudentsEach(students);
+            List<StudentJournal.Record> retry = new ArrayList<>();
+            for (BatchResult.Failure failure : result.getFailures()) {
+                if (failure.isRejected()) {
+                    System.err.println("Dropping the write-behind save of " + failure.getNim() + ": " + failure.getMessage());
+                } else {
+                    retry.add(batch.get(failure.getIndex()));
+                }
+            }
+            // Requeued before the checkpoint is computed, so it stays before every save still to be written
+            requeue(retry);
+            if (retry.size() < batch.size()) {
+                long checkpoint;
+                synchronized (this) {
+                    drainedCount += result.getSuccessCount();
+                    checkpoint = lastSequence;
+                    for (StudentJournal.Record record : queued.values()) {
+                        checkpoint = Math.min(checkpoint, record.getSequence() - 1);
+                    }
+                }
+                journal.checkpoint(checkpoint);
+            }
+            if (!retry.isEmpty()) {
+                retryMillis = retryMillis == 0 ? flushIntervalMillis : Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+                nextAttempt = System.currentTimeMillis() + retryMillis;
+                return;
+            }
+            retryMillis = 0;
+            nextAttempt = 0;
+        }
+    }
+
+    /**
+     * Puts back the saves a drain could not write, unless a NIM was saved again in the meantime,
+     * and ends the drain of the batch.
+     */
+    private synchronized void requeue(List<StudentJournal.Record> batch) {
+        Map<String, StudentJournal.Record> newer = new LinkedHashMap<>(queued);
+        queued.clear();
+        for (StudentJournal.Record record : batch) {
+            if (!newer.containsKey(record.getStudent().getNim())) {
+                queued.put(record.getStudent().getNim(), record);
+            }
+        }
+        queued.putAll(newer);
+        draining = new ArrayList<>();
+    }
+
+    /**
+     * Stops draining after a last attempt to write the queued saves, and closes the journal.
+     * Saves that could not be written stay in the journal for the next start.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(MAX_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+        nextAttempt = 0;
+        drainQuietly();
+        journal.close();
+    }
+}
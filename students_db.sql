@@ -36,7 +36,8 @@ CREATE TABLE `students` (
   `score_uas` double DEFAULT NULL,
   `average` double DEFAULT NULL,
   `grade` varchar(2) DEFAULT NULL,
-  `description` varchar(50) DEFAULT NULL
+  `description` varchar(50) DEFAULT NULL,
+  `version` bigint NOT NULL DEFAULT 1
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
 --
@@ -61,7 +62,39 @@ INSERT INTO `students` (`nim`, `name`, `score_tugas`, `score_quiz`, `score_uts`,
 -- Indexes for table `students`
 --
 ALTER TABLE `students`
-  ADD PRIMARY KEY (`nim`);
+  ADD PRIMARY KEY (`nim`),
+  ADD KEY `idx_students_grade` (`grade`),
+  ADD KEY `idx_students_description` (`description`),
+  ADD KEY `idx_students_grade_average` (`grade`,`average`),
+  ADD KEY `idx_students_description_average` (`description`,`average`),
+  ADD KEY `idx_students_average` (`average`),
+  ADD KEY `idx_students_name` (`name`);
+
+-- --------------------------------------------------------
+
+--
+-- Table structure for table `student_changes`
+--
+
+CREATE TABLE `student_changes` (
+  `seq` bigint NOT NULL AUTO_INCREMENT,
+  `nim` varchar(10) NOT NULL,
+  `change_type` varchar(8) NOT NULL,
+  `changed_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`seq`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+--
+-- Triggers `students`
+--
+DELIMITER $$
+CREATE TRIGGER `students_after_insert` AFTER INSERT ON `students` FOR EACH ROW INSERT INTO `student_changes` (`nim`, `change_type`) VALUES (NEW.`nim`, 'INSERTED')
+$$
+CREATE TRIGGER `students_after_update` AFTER UPDATE ON `students` FOR EACH ROW INSERT INTO `student_changes` (`nim`, `change_type`) SELECT OLD.`nim`, 'DELETED' FROM DUAL WHERE OLD.`nim` <> NEW.`nim` UNION ALL SELECT NEW.`nim`, 'UPDATED' FROM DUAL
+$$
+CREATE TRIGGER `students_after_delete` AFTER DELETE ON `students` FOR EACH ROW INSERT INTO `student_changes` (`nim`, `change_type`) VALUES (OLD.`nim`, 'DELETED')
+$$
+DELIMITER ;
 COMMIT;
 
 /*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;